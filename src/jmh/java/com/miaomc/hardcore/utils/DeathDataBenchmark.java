@@ -0,0 +1,101 @@
+package com.miaomc.hardcore.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 死亡数据解析和写入合并的基准测试
+ * 旧版 death_data JSON 的解析只在迁移回填和兼容接口中使用，仍需保证不会成为瓶颈
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DeathDataBenchmark {
+    private static final String LEGACY_JSON = "{\"deathAt\":1719830400,\"reviveAt\":1719834000," +
+            "\"deathCaused\":\"§fSteve was slain by Zombie\",\"deathWorld\":\"world\"," +
+            "\"deathLoc\":{\"x\":\"12.50\",\"y\":\"64.00\",\"z\":\"-301.25\"}}";
+    // 旧版本没有转义死亡消息中的引号，会走正则回退路径
+    private static final String MALFORMED_JSON = "{\"deathAt\":1719830400,\"reviveAt\":1719834000," +
+            "\"deathCaused\":\"Steve was killed by \"Herobrine\"\",\"deathWorld\":\"world\"}";
+
+    private UUID playerId;
+    private byte[] playerIdBytes;
+    private List<PendingWrite> writes;
+
+    @Setup
+    public void setup() {
+        playerId = UUID.randomUUID();
+        playerIdBytes = UuidUtil.toBytes(playerId);
+
+        // 模拟一个批次：100 名玩家各自死亡，其中一半随后修改了复活方式
+        writes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            DeathState state = new DeathState(0L, true, 1719830400L, 1719834000L, null, false, null);
+            writes.add(new PendingWrite.InsertDeath(id, state,
+                    DeathRecord.withoutLocation(state.deathAt(), state.reviveAt(), "Steve fell from a high place"), "FALL"));
+            if (i % 2 == 0) {
+                writes.add(new PendingWrite.UpdateRevival(id, 0L, "token", true));
+            }
+        }
+    }
+
+    @Benchmark
+    public DeathRecord parseLegacyJson() {
+        return DeathRecord.fromJson(LEGACY_JSON);
+    }
+
+    @Benchmark
+    public DeathRecord parseMalformedJson() {
+        return DeathRecord.fromJson(MALFORMED_JSON);
+    }
+
+    /**
+     * 与 {@link JdbcStorage#isDeathCooldownEnded(String)} 相同的判断
+     */
+    @Benchmark
+    public boolean isDeathCooldownEnded() {
+        DeathRecord record = DeathRecord.fromJson(LEGACY_JSON);
+        return record.reviveAt() > 0 && DeathState.now() >= record.reviveAt();
+    }
+
+    /**
+     * 替代旧版 OnPlayerDeath 中 Map 拼接 JSON 的写入路径
+     */
+    @Benchmark
+    public DeathState createDeathRecord(Blackhole blackhole) {
+        long now = DeathState.now();
+        DeathRecord record = new DeathRecord(now, now + 3600, "Steve was slain by Zombie", "world", 12.5D, 64D, -301.25D);
+        blackhole.consume(record);
+        return new DeathState(0L, true, record.deathAt(), record.reviveAt(), null, false, null);
+    }
+
+    @Benchmark
+    public boolean cooldownCheck() {
+        DeathState state = new DeathState(1L, true, 1719830400L, Long.MAX_VALUE, null, false, null);
+        return state.isInCooldown(DeathState.now());
+    }
+
+    @Benchmark
+    public byte[] uuidToBytes() {
+        return UuidUtil.toBytes(playerId);
+    }
+
+    @Benchmark
+    public UUID uuidFromBytes() {
+        return UuidUtil.fromBytes(playerIdBytes);
+    }
+
+    @Benchmark
+    public WriteQueue.WriteBatch coalesceBatch() {
+        return WriteQueue.coalesce(writes);
+    }
+}
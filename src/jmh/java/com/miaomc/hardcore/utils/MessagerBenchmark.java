@@ -0,0 +1,50 @@
+package com.miaomc.hardcore.utils;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息格式化和占位符渲染的基准测试
+ * 占位符在计分板上每个玩家每 tick 都可能被请求，这些路径的分配量直接影响GC
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessagerBenchmark {
+
+    @Param({"45", "3599", "86399", "172800"})
+    public long seconds;
+
+    private MessageTemplates.Template template;
+
+    @Setup
+    public void setup() {
+        template = new MessageTemplates.Template(Component.text("[硬核模式] "), "&7距离重生还剩 &e{time}&7。");
+    }
+
+    @Benchmark
+    public String formatTime() {
+        return Messager.formatTime(seconds);
+    }
+
+    /**
+     * 预解析模板只替换占位符
+     */
+    @Benchmark
+    public Component renderTemplate() {
+        return template.render("time", Messager.formatTime(seconds));
+    }
+
+    /**
+     * 占位符每秒首次请求时的渲染开销，同一秒内的后续请求直接复用结果
+     */
+    @Benchmark
+    public MHCPlaceholderHook.RenderedTime renderPlaceholder() {
+        return MHCPlaceholderHook.RenderedTime.of(DeathState.now(), seconds, TimeFormat.DEFAULT);
+    }
+}
@@ -0,0 +1,151 @@
+package com.miaomc.hardcore.utils;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 使用嵌入式 SQLite 数据库测试存储层的查询和批量写入
+ * 表结构由插件自身的迁移创建，与线上使用的 SQL 语句相同
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+    private static final String TABLE = "hardcore_bench";
+    private static final String SERVER = "bench";
+    private static final int PLAYERS = 10_000;
+    private static final int DEATHS_PER_PLAYER = 3;
+    private static final int BATCH_SIZE = 100;
+
+    private Path databaseFile;
+    private HikariDataSource dataSource;
+    private UUID[] players;
+    private String selectLatest;
+    private String insertDeath;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, SQLException {
+        databaseFile = Files.createTempFile("hardcore-bench", ".db");
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + databaseFile.toAbsolutePath());
+        config.setDriverClassName("org.sqlite.JDBC");
+        config.addDataSourceProperty("journal_mode", "WAL");
+        config.addDataSourceProperty("synchronous", "NORMAL");
+        config.addDataSourceProperty("busy_timeout", "5000");
+        config.setMaximumPoolSize(4);
+        dataSource = new HikariDataSource(config);
+
+        selectLatest = String.format(JdbcStorage.SQL_SELECT_LATEST_DEATH, TABLE);
+        insertDeath = String.format(JdbcStorage.SQL_INSERT_DEATH_DATA, TABLE);
+
+        try (Connection connection = dataSource.getConnection()) {
+            if (!new SchemaMigrator(Logger.getLogger("HardCoreBenchmark"), TABLE, SqlDialect.SQLITE).migrate(connection)) {
+                throw new IllegalStateException("数据表迁移失败");
+            }
+        }
+
+        players = new UUID[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = UUID.randomUUID();
+        }
+        for (int round = 0; round < DEATHS_PER_PLAYER; round++) {
+            insertRows(players, round * 3600L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataSource.close();
+        Files.deleteIfExists(databaseFile);
+        Files.deleteIfExists(Path.of(databaseFile + "-wal"));
+        Files.deleteIfExists(Path.of(databaseFile + "-shm"));
+    }
+
+    /**
+     * 登录预加载时查询玩家最新死亡记录
+     */
+    @Benchmark
+    public DeathState selectLatestDeath() throws SQLException {
+        UUID playerId = players[ThreadLocalRandom.current().nextInt(PLAYERS)];
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectLatest)) {
+            statement.setBytes(1, UuidUtil.toBytes(playerId));
+            statement.setString(2, SERVER);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return DeathState.NONE;
+                }
+                long deathAt = resultSet.getLong("death_at");
+                boolean recorded = !resultSet.wasNull();
+                String world = resultSet.getString("death_world");
+                DeathLocation location = world == null ? null : new DeathLocation(world, resultSet.getDouble("death_x"),
+                        resultSet.getDouble("death_y"), resultSet.getDouble("death_z"));
+                return new DeathState(resultSet.getLong("id"), recorded, deathAt, resultSet.getLong("revive_at"),
+                        resultSet.getString("revival_method"), resultSet.getBoolean("handled"), location);
+            }
+        }
+    }
+
+    /**
+     * 写入线程提交一个批次的死亡记录
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertDeathBatch() throws SQLException {
+        UUID[] batch = new UUID[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch[i] = players[ThreadLocalRandom.current().nextInt(PLAYERS)];
+        }
+        insertRows(batch, DeathState.now());
+    }
+
+    private void insertRows(UUID[] playerIds, long deathAt) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(insertDeath)) {
+                for (int i = 0; i < playerIds.length; i++) {
+                    statement.setBytes(1, UuidUtil.toBytes(playerIds[i]));
+                    statement.setString(2, SERVER);
+                    statement.setLong(3, deathAt);
+                    statement.setLong(4, deathAt + 3600);
+                    statement.setString(5, "Steve was slain by Zombie");
+                    statement.setString(6, "world");
+                    statement.setDouble(7, 12.5D);
+                    statement.setDouble(8, 64D);
+                    statement.setDouble(9, -301.25D);
+                    statement.setString(10, null);
+                    statement.setBoolean(11, false);
+                    statement.setString(12, "ENTITY_ATTACK");
+                    statement.addBatch();
+                    if ((i + 1) % 1000 == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
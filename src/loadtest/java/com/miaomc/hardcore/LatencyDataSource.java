@@ -0,0 +1,80 @@
+package com.miaomc.hardcore;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 在每次数据库往返前注入固定延迟和随机抖动的数据源包装
+ * 嵌入式数据库的查询在本地完成，加上延迟后可以模拟跨机房的 MySQL，观察连接池和写入队列在慢数据库下的表现
+ */
+final class LatencyDataSource {
+    // 需要一次网络往返的方法
+    private static final Set<String> ROUND_TRIPS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch",
+            "commit", "rollback", "isValid");
+
+    private LatencyDataSource() {
+    }
+
+    /**
+     * 包装数据源，取得的连接及其创建的语句都会注入延迟
+     *
+     * @param dataSource   实际的数据源
+     * @param delayMillis  每次往返的固定延迟，单位毫秒
+     * @param jitterMillis 每次往返额外的随机延迟上限，单位毫秒
+     * @return 包装后的数据源，延迟为0时原样返回
+     */
+    static DataSource wrap(DataSource dataSource, long delayMillis, long jitterMillis) {
+        if (delayMillis <= 0L && jitterMillis <= 0L) {
+            return dataSource;
+        }
+        return proxy(DataSource.class, dataSource, delayMillis, jitterMillis);
+    }
+
+    private static <T> T proxy(Class<T> type, T target, long delayMillis, long jitterMillis) {
+        Object proxy = Proxy.newProxyInstance(LatencyDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (instance, method, args) -> {
+                    if (ROUND_TRIPS.contains(method.getName())) {
+                        sleep(delayMillis, jitterMillis);
+                    }
+
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+
+                    // 连接和语句需要继续包装，结果集的读取不计入往返
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == Connection.class) {
+                        return proxy(Connection.class, (Connection) result, delayMillis, jitterMillis);
+                    }
+                    if (returnType == CallableStatement.class) {
+                        return proxy(CallableStatement.class, (CallableStatement) result, delayMillis, jitterMillis);
+                    }
+                    if (returnType == PreparedStatement.class) {
+                        return proxy(PreparedStatement.class, (PreparedStatement) result, delayMillis, jitterMillis);
+                    }
+                    if (returnType == Statement.class) {
+                        return proxy(Statement.class, (Statement) result, delayMillis, jitterMillis);
+                    }
+                    return result;
+                });
+        return type.cast(proxy);
+    }
+
+    private static void sleep(long delayMillis, long jitterMillis) {
+        long millis = delayMillis + (jitterMillis > 0L ? ThreadLocalRandom.current().nextLong(jitterMillis + 1L) : 0L);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,354 @@
+package com.miaomc.hardcore;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.miaomc.hardcore.utils.MHCPlaceholderHook;
+import com.miaomc.hardcore.utils.SQLite;
+import com.miaomc.hardcore.utils.StorageMetrics;
+import com.miaomc.hardcore.utils.WriteQueue;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.util.DriverDataSource;
+import org.bukkit.GameMode;
+import org.bukkit.plugin.PluginDescriptionFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+/**
+ * 模拟大量玩家同时登录、死亡、复活和刷新占位符的负载测试
+ * 使用 MockBukkit 启动插件，存储后端换成嵌入式 SQLite 并为每次数据库往返注入延迟，按 tick 执行脚本化的负载，
+ * 统计每 tick 的主线程耗时、各类操作的延迟分布和写入吞吐量，结果输出到控制台和 JSON 文件，便于对比不同版本。
+ * <p>
+ * 参数通过系统属性传入:
+ * loadtest.players 玩家数量，loadtest.latency 和 loadtest.jitter 数据库往返的固定延迟和随机抖动（毫秒），
+ * loadtest.ticks 稳定阶段的 tick 数，loadtest.deathsPerTick 稳定阶段每 tick 的死亡和复活人数，
+ * loadtest.realtime 是否按每 tick 50 毫秒运行，loadtest.seed 随机种子，loadtest.report 结果文件路径
+ */
+public final class LoadTest {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50L);
+    private static final int JOIN_TICKS = 20;
+    private static final int DRAIN_TICKS = 100;
+    private static final long DRAIN_TIMEOUT_MILLIS = 30_000L;
+    // 计分板插件通常每秒刷新一次，每 tick 轮到 1/20 的玩家
+    private static final int PLACEHOLDER_INTERVAL = 20;
+    private static final String[] PLACEHOLDERS = {
+            "time_remain_formatted", "is_coolingdown", "revive_needs", "deaths", "longest_survival", "top_deaths_1_name"
+    };
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final int playerCount = Integer.getInteger("loadtest.players", 1000);
+    private final int steadyTicks = Integer.getInteger("loadtest.ticks", 1200);
+    private final int deathsPerTick = Integer.getInteger("loadtest.deathsPerTick", 5);
+    private final long latencyMillis = Long.getLong("loadtest.latency", 2L);
+    private final long jitterMillis = Long.getLong("loadtest.jitter", 3L);
+    private final boolean realtime = Boolean.parseBoolean(System.getProperty("loadtest.realtime", "true"));
+    private final Path reportFile = Path.of(System.getProperty("loadtest.report", "target/loadtest-result.json"));
+    private final Random random = new Random(Long.getLong("loadtest.seed", 42L));
+
+    private final List<PlayerMock> players = new ArrayList<>();
+    private final Map<String, Samples> actions = new LinkedHashMap<>();
+    private final List<PhaseResult> phases = new ArrayList<>();
+    private ServerMock server;
+    private HardCore plugin;
+    private MHCPlaceholderHook placeholders;
+    private int actionCount;
+
+    public static void main(String[] args) throws IOException {
+        new LoadTest().run();
+    }
+
+    private void run() throws IOException {
+        server = MockBukkit.mock();
+        try {
+            setUp();
+
+            int joinsPerTick = Math.ceilDiv(playerCount, JOIN_TICKS);
+            phase("join-storm", JOIN_TICKS, tick -> {
+                for (int i = 0; i < joinsPerTick && players.size() < playerCount; i++) {
+                    join(players.size());
+                }
+            });
+            phase("steady", steadyTicks, this::steadyTick);
+            phase("mass-death", 1, tick -> List.copyOf(players).forEach(this::kill));
+            phase("mass-revive", 1, tick -> List.copyOf(players).forEach(this::revive));
+            phase("drain", DRAIN_TICKS, this::pollPlaceholders);
+            awaitWrites();
+
+            Report report = buildReport();
+            print(report);
+            if (reportFile.getParent() != null) {
+                Files.createDirectories(reportFile.getParent());
+            }
+            Files.writeString(reportFile, GSON.toJson(report), StandardCharsets.UTF_8);
+            System.out.println("结果已保存到 " + reportFile.toAbsolutePath());
+        } finally {
+            MockBukkit.unmock();
+            HardCore.storageOverride = null;
+        }
+    }
+
+    /**
+     * 换成带延迟的 SQLite 存储后端后启动插件，并把复活冷却设为0，使玩家可以在测试中反复死亡和复活
+     */
+    private void setUp() {
+        HardCore.storageOverride = hardCore -> new LatencySQLite(hardCore, latencyMillis, jitterMillis);
+        plugin = MockBukkit.loadWith(HardCore.class,
+                new PluginDescriptionFile("Hardcore", "loadtest", HardCore.class.getName()));
+        plugin.getConfig().set("settings.reviveCooldown", 0);
+        plugin.saveConfig();
+        plugin.reloadSettings();
+        placeholders = new MHCPlaceholderHook(plugin);
+    }
+
+    private void phase(String name, int ticks, IntConsumer workload) {
+        WriteQueue queue = plugin.getStorage().getWriteQueue();
+        long[] tickNanos = new long[ticks];
+        long writtenBefore = queue.getWrittenCount();
+        int actionsBefore = actionCount;
+        long startedAt = System.nanoTime();
+
+        for (int tick = 0; tick < ticks; tick++) {
+            long tickStart = System.nanoTime();
+            workload.accept(tick);
+            server.getScheduler().performOneTick();
+            tickNanos[tick] = System.nanoTime() - tickStart;
+            if (realtime && tickNanos[tick] < TICK_NANOS) {
+                LockSupport.parkNanos(TICK_NANOS - tickNanos[tick]);
+            }
+        }
+
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        Arrays.sort(tickNanos);
+        int overBudget = (int) Arrays.stream(tickNanos).filter(nanos -> nanos > TICK_NANOS).count();
+        long written = queue.getWrittenCount() - writtenBefore;
+        phases.add(new PhaseResult(name, ticks, millis(percentile(tickNanos, 0.5)), millis(percentile(tickNanos, 0.99)),
+                millis(tickNanos[ticks - 1]), overBudget, actionCount - actionsBefore,
+                (actionCount - actionsBefore) / seconds, written, written / seconds));
+    }
+
+    private void steadyTick(int tick) {
+        for (int i = 0; i < deathsPerTick; i++) {
+            PlayerMock player = players.get(random.nextInt(players.size()));
+            if (player.getGameMode() == GameMode.SPECTATOR) {
+                revive(player);
+            } else {
+                kill(player);
+            }
+        }
+        pollPlaceholders(tick);
+    }
+
+    private void join(int index) {
+        PlayerMock player = new PlayerMock(server, "LoadTest" + index, new UUID(random.nextLong(), random.nextLong()));
+        long start = System.nanoTime();
+        // MockBukkit 依次触发 AsyncPlayerPreLoginEvent、PlayerLoginEvent 和 PlayerJoinEvent
+        server.addPlayer(player);
+        record("join", start);
+        player.addAttachment(plugin, "miaomc.hardcore.revive", true);
+        players.add(player);
+    }
+
+    private void kill(PlayerMock player) {
+        if (player.getGameMode() == GameMode.SPECTATOR) {
+            return;
+        }
+        if (player.isDead()) {
+            player.respawn();
+        }
+        long start = System.nanoTime();
+        player.setHealth(0);
+        record("death", start);
+    }
+
+    private void revive(PlayerMock player) {
+        if (player.getGameMode() != GameMode.SPECTATOR) {
+            return;
+        }
+        long start = System.nanoTime();
+        // 查询在异步线程完成，复活在之后的 tick 中回到主线程执行
+        player.performCommand("mhc revive");
+        record("revive", start);
+    }
+
+    private void pollPlaceholders(int tick) {
+        for (int i = tick % PLACEHOLDER_INTERVAL; i < players.size(); i += PLACEHOLDER_INTERVAL) {
+            PlayerMock player = players.get(i);
+            for (String placeholder : PLACEHOLDERS) {
+                long start = System.nanoTime();
+                placeholders.onPlaceholderRequest(player, placeholder);
+                record("placeholder", start);
+            }
+        }
+    }
+
+    private void record(String action, long startNanos) {
+        actions.computeIfAbsent(action, key -> new Samples()).add(System.nanoTime() - startNanos);
+        actionCount++;
+    }
+
+    /**
+     * 继续推进 tick 直到写入队列清空，异步查询的主线程回调也在这期间执行完
+     */
+    private void awaitWrites() {
+        WriteQueue queue = plugin.getStorage().getWriteQueue();
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (queue.getDepth() > 0 && System.currentTimeMillis() < deadline) {
+            server.getScheduler().performOneTick();
+            LockSupport.parkNanos(TICK_NANOS);
+        }
+        server.getScheduler().waitAsyncTasksFinished();
+        server.getScheduler().performOneTick();
+        if (queue.getDepth() > 0) {
+            System.out.println("等待写入队列清空超时，剩余 " + queue.getDepth() + " 条");
+        }
+    }
+
+    private Report buildReport() {
+        List<ActionResult> actionResults = new ArrayList<>();
+        actions.forEach((name, samples) -> actionResults.add(samples.summarize(name)));
+
+        StorageMetrics metrics = plugin.getStorage().getMetrics();
+        List<StorageResult> storageResults = new ArrayList<>();
+        for (StorageMetrics.Operation operation : StorageMetrics.Operation.values()) {
+            StorageMetrics.OperationStats stats = metrics.get(operation);
+            if (stats.total().getCount() == 0) {
+                continue;
+            }
+            storageResults.add(new StorageResult(operation.name(), stats.total().getCount(),
+                    stats.total().getPercentileMillis(0.5), stats.total().getPercentileMillis(0.99),
+                    stats.poolWait().getPercentileMillis(0.99)));
+        }
+
+        WriteQueue queue = plugin.getStorage().getWriteQueue();
+        QueueResult queueResult = new QueueResult(queue.getEnqueuedCount(), queue.getWrittenCount(),
+                queue.getCoalescedCount(), queue.getBatchCount(), queue.getFailedCount(), queue.getPeakDepth(),
+                queue.getOverflowCount());
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("players", playerCount);
+        parameters.put("steadyTicks", steadyTicks);
+        parameters.put("deathsPerTick", deathsPerTick);
+        parameters.put("latencyMillis", latencyMillis);
+        parameters.put("jitterMillis", jitterMillis);
+        parameters.put("realtime", realtime);
+        return new Report(parameters, phases, actionResults, storageResults, queueResult);
+    }
+
+    private static void print(Report report) {
+        System.out.println("==== 负载测试参数 " + report.parameters());
+        System.out.println("---- 每 tick 主线程耗时 (毫秒)");
+        System.out.printf("%-12s %6s %8s %8s %8s %6s %10s %10s%n",
+                "阶段", "tick", "p50", "p99", "max", "超时", "操作/秒", "写入/秒");
+        for (PhaseResult phase : report.phases()) {
+            System.out.printf("%-12s %6d %8.2f %8.2f %8.2f %6d %10.1f %10.1f%n", phase.name(), phase.ticks(),
+                    phase.tickP50Millis(), phase.tickP99Millis(), phase.tickMaxMillis(), phase.overBudgetTicks(),
+                    phase.actionsPerSecond(), phase.writesPerSecond());
+        }
+        System.out.println("---- 主线程操作耗时 (毫秒)");
+        for (ActionResult action : report.actions()) {
+            System.out.printf("%-12s 次数 %8d  p50 %8.3f  p99 %8.3f  max %8.3f%n", action.name(), action.count(),
+                    action.p50Millis(), action.p99Millis(), action.maxMillis());
+        }
+        System.out.println("---- 存储操作耗时 (毫秒)");
+        for (StorageResult storage : report.storage()) {
+            System.out.printf("%-18s 次数 %8d  p50 %8.2f  p99 %8.2f  等待连接p99 %8.2f%n", storage.operation(),
+                    storage.count(), storage.p50Millis(), storage.p99Millis(), storage.poolWaitP99Millis());
+        }
+        QueueResult queue = report.writeQueue();
+        System.out.println("---- 写入队列: 入队 " + queue.enqueued() + "，写入 " + queue.written() + "，合并 " + queue.coalesced()
+                + "，批次 " + queue.batches() + "，失败 " + queue.failed() + "，峰值深度 " + queue.peakDepth()
+                + "，溢出 " + queue.overflow() + " 条");
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        int index = (int) Math.ceil(sorted.length * percentile) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * 逐次记录的耗时样本
+     */
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        ActionResult summarize(String name) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return new ActionResult(name, size, millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.99)),
+                    millis(size == 0 ? 0L : sorted[size - 1]));
+        }
+    }
+
+    /**
+     * 为每次数据库往返注入延迟的 SQLite 存储后端
+     */
+    private static final class LatencySQLite extends SQLite {
+        private final long latencyMillis;
+        private final long jitterMillis;
+
+        private LatencySQLite(HardCore plugin, long latencyMillis, long jitterMillis) {
+            super(plugin);
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+        }
+
+        @Override
+        protected HikariConfig createHikariConfig() {
+            HikariConfig config = super.createHikariConfig();
+            DriverDataSource driver = new DriverDataSource(config.getJdbcUrl(), config.getDriverClassName(),
+                    config.getDataSourceProperties(), null, null);
+            config.setDataSource(LatencyDataSource.wrap(driver, latencyMillis, jitterMillis));
+            return config;
+        }
+    }
+
+    private record PhaseResult(String name, int ticks, double tickP50Millis, double tickP99Millis, double tickMaxMillis,
+                               int overBudgetTicks, int actions, double actionsPerSecond, long writes,
+                               double writesPerSecond) {
+    }
+
+    private record ActionResult(String name, long count, double p50Millis, double p99Millis, double maxMillis) {
+    }
+
+    private record StorageResult(String operation, long count, double p50Millis, double p99Millis,
+                                 double poolWaitP99Millis) {
+    }
+
+    private record QueueResult(long enqueued, long written, long coalesced, long batches, long failed, long peakDepth,
+                               long overflow) {
+    }
+
+    private record Report(Map<String, Object> parameters, List<PhaseResult> phases, List<ActionResult> actions,
+                          List<StorageResult> storage, QueueResult writeQueue) {
+    }
+}
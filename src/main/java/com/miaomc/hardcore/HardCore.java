@@ -1,28 +1,73 @@
 package com.miaomc.hardcore;
 
+import com.miaomc.hardcore.api.HardcoreService;
 import com.miaomc.hardcore.commands.MainCommand;
 import com.miaomc.hardcore.listeners.OnPlayerDeath;
 import com.miaomc.hardcore.listeners.OnPlayerJoin;
+import com.miaomc.hardcore.listeners.OnPlayerPreLogin;
+import com.miaomc.hardcore.listeners.OnPlayerQuit;
+import com.miaomc.hardcore.utils.CooldownSync;
+import com.miaomc.hardcore.utils.DeathChests;
+import com.miaomc.hardcore.utils.ExpiryScheduler;
+import com.miaomc.hardcore.utils.HardcoreServiceProvider;
 import com.miaomc.hardcore.utils.MHCPlaceholderHook;
 import com.miaomc.hardcore.utils.Messager;
 import com.miaomc.hardcore.utils.MySQL;
+import com.miaomc.hardcore.utils.RetentionJob;
+import com.miaomc.hardcore.utils.SQLite;
+import com.miaomc.hardcore.utils.Settings;
+import com.miaomc.hardcore.utils.SpectatorLeash;
+import com.miaomc.hardcore.utils.Storage;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Level;
 
 public final class HardCore extends JavaPlugin {
+    // 负载测试在插件启用之前设置，用于注入带延迟的存储后端，正常运行时为null
+    static Function<HardCore, Storage> storageOverride;
 
-    private MySQL mySql;
+    private Storage storage;
+    private ExpiryScheduler expiryScheduler;
+    private CooldownSync cooldownSync;
+    private RetentionJob retentionJob;
+    private BukkitTask leaderboardTask;
+    private DeathChests deathChests;
+    private SpectatorLeash spectatorLeash;
+    private HardcoreServiceProvider service;
+    // 配置快照，重载时整体替换，读取方无需加锁
+    private final AtomicReference<Settings> settings = new AtomicReference<>();
+    // 在 Bukkit 异步线程池中执行任务
+    private final Executor asyncExecutor = task -> getServer().getScheduler().runTaskAsynchronously(this, task);
+    // 在主线程执行任务，已在主线程时直接执行
+    private final Executor mainThreadExecutor = task -> {
+        if (getServer().isPrimaryThread()) {
+            task.run();
+        } else {
+            getServer().getScheduler().runTask(this, task);
+        }
+    };
 
     @Override
     public void onEnable() {
         // 保存默认配置
         saveDefaultConfig();
+        settings.set(Settings.load(getConfig(), getLogger()));
 
-        // 初始化MySQL
-        mySql = new MySQL(this);
+        // 初始化存储后端
+        storage = createStorage();
         try {
-            mySql.connect();
-            if (!mySql.validateDatabase()) {
+            storage.connect();
+            if (!storage.validateDatabase()) {
                 getLogger().severe("数据库验证失败，插件将以有限功能运行或禁用");
             }
         } catch (Exception e) {
@@ -31,13 +76,20 @@ public final class HardCore extends JavaPlugin {
         }
 
         Messager.init(this);
+        registerService();
+        preloadOnlinePlayers();
+        startCooldownSync();
+        startRetentionJob();
 
         if (getConfig().getBoolean("settings.placeholderOnly", false)) {
+            // 占位符只读取内存中的死亡状态，仍需在登录时加载、离线时清理
+            registerStateListeners();
             registerPlaceholders();
             getLogger().info("当前配置为仅注册占位符，插件将不会启用其他功能。");
             return;
         }
         
+        registerStateListeners();
         registerListeners();
         registerCommands();
 
@@ -48,13 +100,40 @@ public final class HardCore extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        getServer().getServicesManager().unregisterAll(this);
+        if (cooldownSync != null) {
+            cooldownSync.stop();
+        }
+        if (retentionJob != null) {
+            retentionJob.stop();
+        }
+        if (leaderboardTask != null) {
+            leaderboardTask.cancel();
+        }
+        if (expiryScheduler != null) {
+            expiryScheduler.stop();
+        }
+        if (spectatorLeash != null) {
+            spectatorLeash.stop();
+        }
+        if (deathChests != null) {
+            deathChests.saveAll();
+        }
         // 关闭数据库连接池
-        if (mySql != null) {
-            mySql.disconnect();
+        if (storage != null) {
+            storage.disconnect();
         }
         getLogger().info("Plugin disabled.");
     }
 
+    /**
+     * 注册供其他插件使用的 {@link HardcoreService}
+     */
+    private void registerService() {
+        service = new HardcoreServiceProvider(this);
+        getServer().getServicesManager().register(HardcoreService.class, service, this, ServicePriority.Normal);
+    }
+
     private void registerPlaceholders() {
         // 首先检查 PlaceholderAPI 插件是否存在
         if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") == null) {
@@ -65,14 +144,85 @@ public final class HardCore extends JavaPlugin {
 
         try {
             // 确认 PlaceholderAPI 已加载后再尝试注册占位符
-            new MHCPlaceholderHook(this).register();
+            MHCPlaceholderHook placeholderHook = new MHCPlaceholderHook(this);
+            placeholderHook.register();
+            getServer().getPluginManager().registerEvents(placeholderHook, this);
+            startLeaderboardRefresh();
             getLogger().info("成功注册 PlaceholderAPI 扩展");
         } catch (Exception e) {
             getLogger().warning("注册 PlaceholderAPI 扩展失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 定期从统计表读取排行榜，排行榜占位符只读取内存中的结果
+     */
+    private void startLeaderboardRefresh() {
+        int size = Math.max(1, getConfig().getInt("settings.leaderboard.size", 10));
+        long intervalTicks = Math.max(1L, getConfig().getLong("settings.leaderboard.refresh", 60L)) * 20L;
+        leaderboardTask = getServer().getScheduler().runTaskTimerAsynchronously(this,
+                () -> storage.refreshLeaderboards(size), 0L, intervalTicks);
+    }
+
+    /**
+     * 异步加载玩家名称索引，插件重载时还为已在线的玩家加载死亡状态缓存和死亡统计
+     */
+    private void preloadOnlinePlayers() {
+        getServer().getScheduler().runTaskAsynchronously(this, storage::loadPlayerNames);
+        getServer().getOnlinePlayers().forEach(player -> {
+            storage.recordPlayerName(player.getUniqueId(), player.getName());
+            getServer().getScheduler().runTaskAsynchronously(this, () -> {
+                storage.cacheDeathState(player.getUniqueId());
+                storage.cachePlayerStats(player.getUniqueId());
+            });
+        });
+    }
+
+    /**
+     * 多个子服共用数据表时，定期从数据库同步其他子服对本服玩家的修改
+     */
+    private void startCooldownSync() {
+        if (!getConfig().getBoolean("settings.sync.enabled", false)) {
+            return;
+        }
+        if (storage instanceof SQLite) {
+            getLogger().info("SQLite 存储只供单服务器使用，跳过跨服同步");
+            return;
+        }
+        cooldownSync = new CooldownSync(this);
+        cooldownSync.start();
+    }
+
+    /**
+     * 定期将过期的历史死亡记录移出主表
+     */
+    private void startRetentionJob() {
+        if (getConfig().getBoolean("database.retention.enabled", false)) {
+            retentionJob = new RetentionJob(this);
+            retentionJob.start();
+        }
+    }
+
+    private void registerStateListeners() {
+        getServer().getPluginManager().registerEvents(new OnPlayerPreLogin(this), this);
+        getServer().getPluginManager().registerEvents(new OnPlayerQuit(this), this);
+    }
+
     private void registerListeners() {
+        expiryScheduler = new ExpiryScheduler(this);
+        expiryScheduler.start();
+        getServer().getPluginManager().registerEvents(expiryScheduler, this);
+
+        if (getConfig().getBoolean("settings.deathChest.enabled", false)) {
+            deathChests = new DeathChests(this);
+            getServer().getPluginManager().registerEvents(deathChests, this);
+        }
+
+        // 始终注册，是否启用由配置快照决定，重载后立即生效
+        spectatorLeash = new SpectatorLeash(this);
+        spectatorLeash.start();
+        getServer().getPluginManager().registerEvents(spectatorLeash, this);
+
         getServer().getPluginManager().registerEvents(new OnPlayerJoin(this), this);
         getServer().getPluginManager().registerEvents(new OnPlayerDeath(this), this);
     }
@@ -88,7 +238,109 @@ public final class HardCore extends JavaPlugin {
         }
     }
 
+    /**
+     * 根据配置创建存储后端
+     *
+     * @return database.type 为 sqlite 时返回嵌入式 SQLite 后端，否则返回 MySQL 后端
+     */
+    private Storage createStorage() {
+        if (storageOverride != null) {
+            return storageOverride.apply(this);
+        }
+        if ("sqlite".equalsIgnoreCase(getConfig().getString("database.type", "mysql"))) {
+            getLogger().info("使用嵌入式 SQLite 存储");
+            return new SQLite(this);
+        }
+        return new MySQL(this);
+    }
+
+    /**
+     * 重新读取 config.yml 和消息文件，解析校验后整体替换配置快照
+     * 存储后端、子服名称和各项功能的开关在启动时确定，修改后需要重启服务器
+     *
+     * @return 是否重载成功，配置文件格式错误时保留当前配置
+     */
+    public boolean reloadSettings() {
+        try {
+            // 先单独解析一次，格式错误时 reloadConfig() 只会记录日志并得到空配置
+            new YamlConfiguration().load(new File(getDataFolder(), "config.yml"));
+        } catch (IOException | InvalidConfigurationException e) {
+            getLogger().log(Level.SEVERE, "重载配置文件失败: " + e.getMessage());
+            return false;
+        }
+
+        reloadConfig();
+        Settings previous = settings.get();
+        Settings next = Settings.load(getConfig(), getLogger());
+        if (!previous.serverName().equals(next.serverName())) {
+            getLogger().warning("settings.serverName 需要重启服务器才能生效");
+            next = next.withServerName(previous.serverName());
+        }
+        settings.set(next);
+        Messager.init(this);
+        return true;
+    }
+
+    /**
+     * 获取当前的配置快照
+     *
+     * @return 配置快照
+     */
+    public Settings getSettings() {
+        return settings.get();
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * 获取旁观者活动范围限制
+     *
+     * @return 活动范围限制，仅注册占位符时返回null
+     */
+    public SpectatorLeash getSpectatorLeash() {
+        return spectatorLeash;
+    }
+
+    /**
+     * 获取硬核模式服务，插件内部通过它执行复活流程
+     *
+     * @return 服务实现
+     */
+    public HardcoreServiceProvider getService() {
+        return service;
+    }
+
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    public Executor getMainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    public ExpiryScheduler getExpiryScheduler() {
+        return expiryScheduler;
+    }
+
+    /**
+     * 获取死亡箱
+     *
+     * @return 死亡箱，未启用时返回null
+     */
+    public DeathChests getDeathChests() {
+        return deathChests;
+    }
+
+    /**
+     * 获取 MySQL 存储后端（保持向后兼容）
+     *
+     * @return MySQL 后端，使用其他存储后端时返回null
+     * @deprecated 插件内部请使用 {@link #getStorage()}，其他插件请使用 {@link HardcoreService}
+     */
+    @Deprecated
     public MySQL getMySQL() {
-        return mySql;
+        return storage instanceof MySQL mySql ? mySql : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.miaomc.hardcore.api;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 玩家死亡并记录复活冷却后在主线程触发
+ * 玩家在冷却中再次死亡时不会重复记录，也不会触发该事件
+ */
+public class HardcorePlayerDeathEvent extends PlayerEvent {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final HardcorePlayerState state;
+    private final String deathCause;
+
+    public HardcorePlayerDeathEvent(@NotNull Player player, @NotNull HardcorePlayerState state, @NotNull String deathCause) {
+        super(player);
+        this.state = state;
+        this.deathCause = deathCause;
+    }
+
+    /**
+     * 获取死亡后的状态
+     *
+     * @return 包含死亡时间和复活时间的状态
+     */
+    public @NotNull HardcorePlayerState getState() {
+        return state;
+    }
+
+    /**
+     * 获取死亡原因的分类，与死亡原因排行榜使用的分类相同
+     *
+     * @return 最后一次受到伤害的类型，如 FALL、ENTITY_ATTACK
+     */
+    public @NotNull String getDeathCause() {
+        return deathCause;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,49 @@
+package com.miaomc.hardcore.api;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 玩家完成复活流程后在主线程触发，包括复活命令、点数复活、批量复活和 {@link HardcoreService#revive} 调用
+ */
+public class HardcorePlayerReviveEvent extends PlayerEvent {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final HardcorePlayerState state;
+    private final String revivalMethod;
+
+    public HardcorePlayerReviveEvent(@NotNull Player player, @NotNull HardcorePlayerState state, @NotNull String revivalMethod) {
+        super(player);
+        this.state = state;
+        this.revivalMethod = revivalMethod;
+    }
+
+    /**
+     * 获取复活后的状态
+     *
+     * @return 玩家的状态
+     */
+    public @NotNull HardcorePlayerState getState() {
+        return state;
+    }
+
+    /**
+     * 获取复活方式
+     *
+     * @return 复活方式，如 command.revive、command.revive.pay、admin.bulk.revive
+     */
+    public @NotNull String getRevivalMethod() {
+        return revivalMethod;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,56 @@
+package com.miaomc.hardcore.api;
+
+import java.util.UUID;
+
+/**
+ * 玩家在本子服的硬核状态的不可变快照
+ *
+ * @param playerId      玩家的UUID
+ * @param recorded      是否有死亡记录
+ * @param deathAt       最近一次死亡的UNIX时间戳（秒），没有死亡记录时为0
+ * @param reviveAt      允许复活的UNIX时间戳（秒），没有死亡记录时为0
+ * @param revivalMethod 复活方式，如 command.revive、admin.reset，尚未复活或重置时为null
+ * @param handled       是否已完成复活流程
+ */
+public record HardcorePlayerState(UUID playerId, boolean recorded, long deathAt, long reviveAt, String revivalMethod,
+                                  boolean handled) {
+
+    /**
+     * 玩家是否处于死亡状态，即有死亡记录且尚未完成复活流程
+     *
+     * @return 处于死亡状态时返回true
+     */
+    public boolean isDead() {
+        return recorded && !handled;
+    }
+
+    /**
+     * 玩家当前是否处于复活冷却中
+     *
+     * @return 冷却中返回true，冷却被重置或已复活时返回false
+     */
+    public boolean isInCooldown() {
+        return getTimeRemaining() > 0L;
+    }
+
+    /**
+     * 获取剩余的复活冷却时间
+     *
+     * @return 剩余秒数，不在冷却中时返回0
+     */
+    public long getTimeRemaining() {
+        if (!recorded || revivalMethod != null && !revivalMethod.isEmpty()) {
+            return 0L;
+        }
+        return Math.max(0L, reviveAt - System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * 玩家现在是否可以复活，即处于死亡状态且冷却已结束或被重置
+     *
+     * @return 可以复活时返回true
+     */
+    public boolean canRevive() {
+        return isDead() && !isInCooldown();
+    }
+}
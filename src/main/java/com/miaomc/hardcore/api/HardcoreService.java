@@ -0,0 +1,67 @@
+package com.miaomc.hardcore.api;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 供其他插件使用的硬核模式服务，插件启用后注册到 Bukkit 的 ServicesManager:
+ * <pre>{@code
+ * HardcoreService service = Bukkit.getServicesManager().load(HardcoreService.class);
+ * }</pre>
+ * 同步方法只读取内存中的缓存，可以在主线程频繁调用；返回 {@link CompletableFuture} 的方法可能查询数据库，
+ * 结果在异步线程或主线程完成，调用方不应在主线程上阻塞等待。
+ * 状态变化通过 {@link HardcorePlayerDeathEvent} 和 {@link HardcorePlayerReviveEvent} 通知，无需轮询
+ */
+public interface HardcoreService {
+
+    /**
+     * 从缓存获取玩家的状态，在线玩家登录时已加载到缓存中
+     *
+     * @param playerId 玩家的UUID
+     * @return 玩家的状态，玩家不在缓存中（通常是离线玩家）时为空
+     */
+    Optional<HardcorePlayerState> getCachedState(UUID playerId);
+
+    /**
+     * 从缓存判断玩家是否处于复活冷却中
+     *
+     * @param playerId 玩家的UUID
+     * @return 冷却中返回true，不在缓存中时返回false
+     */
+    boolean isInCooldown(UUID playerId);
+
+    /**
+     * 从缓存获取玩家剩余的复活冷却时间
+     *
+     * @param playerId 玩家的UUID
+     * @return 剩余秒数，不在冷却中或不在缓存中时返回0
+     */
+    long getTimeRemaining(UUID playerId);
+
+    /**
+     * 获取玩家的状态，缓存未命中时在异步线程查询数据库
+     *
+     * @param playerId 玩家的UUID
+     * @return 玩家的状态，没有记录时 {@link HardcorePlayerState#recorded()} 为false
+     */
+    CompletableFuture<HardcorePlayerState> getState(UUID playerId);
+
+    /**
+     * 立即复活处于死亡状态的在线玩家，无论冷却是否结束，复活流程在主线程执行并触发 {@link HardcorePlayerReviveEvent}
+     *
+     * @param playerId      玩家的UUID
+     * @param revivalMethod 记录到数据库的复活方式，建议使用插件名作为前缀，如 myplugin.reward
+     * @return 是否已复活，玩家不在线或不处于死亡状态时为false
+     */
+    CompletableFuture<Boolean> revive(UUID playerId, String revivalMethod);
+
+    /**
+     * 清除处于死亡状态的玩家的复活冷却，玩家之后可以使用 /mhc revive 自行复活，离线玩家也可使用
+     *
+     * @param playerId      玩家的UUID
+     * @param revivalMethod 记录到数据库的复活方式
+     * @return 是否已重置，玩家不处于死亡状态时为false
+     */
+    CompletableFuture<Boolean> resetCooldown(UUID playerId, String revivalMethod);
+}
@@ -1,22 +1,45 @@
 package com.miaomc.hardcore.commands;
 
 import com.miaomc.hardcore.HardCore;
+import com.miaomc.hardcore.utils.BulkFilter;
+import com.miaomc.hardcore.utils.BulkUpdateResult;
+import com.miaomc.hardcore.utils.DeathState;
 import com.miaomc.hardcore.utils.Messager;
+import com.miaomc.hardcore.utils.Storage;
+import com.miaomc.hardcore.utils.StorageMetrics;
+import com.miaomc.hardcore.utils.TransientStore;
+import com.miaomc.hardcore.utils.WriteQueue;
 import org.black_ixx.playerpoints.PlayerPoints;
 import org.bukkit.Bukkit;
-import org.bukkit.GameMode;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityDamageEvent;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 public class MainCommand extends Command {
     private final HardCore plugin;
-    private final Map<UUID, Long> revivePayConfirmation = new HashMap<>();
     private static final int CONFIRMATION_TIMEOUT = 30000; // 30秒确认超时
+    private static final int MAX_PENDING_CONFIRMATIONS = 1000;
+    // 等待确认的点数复活，值为显示给玩家的点数
+    private final TransientStore<UUID, Integer> revivePayConfirmation =
+            new TransientStore<>(CONFIRMATION_TIMEOUT, MAX_PENDING_CONFIRMATIONS);
+    private static final int MAX_NAME_COMPLETIONS = 50;
+    private static final List<String> BULK_FILTERS = List.of("all", "from:", "to:", "cause:", "server:");
+    // cause: 按伤害类型筛选，与死亡原因排行使用相同的分类
+    private static final List<String> CAUSE_FILTERS = Arrays.stream(EntityDamageEvent.DamageCause.values())
+            .map(cause -> "cause:" + cause.name().toLowerCase(Locale.ROOT))
+            .toList();
+    // 正在处理存储请求的玩家
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
 
     public MainCommand(HardCore plugin) {
         super("mhc");
@@ -47,6 +70,15 @@ public class MainCommand extends Command {
             case "reset":
                 handleResetCommand(sender, args);
                 break;
+            case "stats":
+                handleStatsCommand(sender);
+                break;
+            case "bulk":
+                handleBulkCommand(sender, args);
+                break;
+            case "reload":
+                handleReloadCommand(sender);
+                break;
             default:
                 sendHelpMessage(sender);
                 break;
@@ -64,6 +96,9 @@ public class MainCommand extends Command {
 
             if (sender.hasPermission("miaomc.hardcore.admin")) {
                 completions.add("reset");
+                completions.add("bulk");
+                completions.add("stats");
+                completions.add("reload");
             }
 
             return filterCompletions(completions, args[0]);
@@ -72,50 +107,66 @@ public class MainCommand extends Command {
                 completions.add("pay");
                 return filterCompletions(completions, args[1]);
             } else if ("reset".equalsIgnoreCase(args[0]) && sender.hasPermission("miaomc.hardcore.admin")) {
-                Bukkit.getOnlinePlayers().forEach(player -> completions.add(player.getName()));
+                // 包含离线玩家，直接从内存索引按前缀查找
+                return plugin.getStorage().getPlayerNameIndex().complete(args[1], MAX_NAME_COMPLETIONS);
+            } else if ("bulk".equalsIgnoreCase(args[0]) && sender.hasPermission("miaomc.hardcore.admin")) {
+                completions.add("reset");
+                completions.add("revive");
                 return filterCompletions(completions, args[1]);
             }
+        } else if (args.length > 2 && "bulk".equalsIgnoreCase(args[0]) && sender.hasPermission("miaomc.hardcore.admin")) {
+            String input = args[args.length - 1];
+            if (input.toLowerCase(Locale.ROOT).startsWith("cause:")) {
+                return filterCompletions(CAUSE_FILTERS, input);
+            }
+            return filterCompletions(new ArrayList<>(BULK_FILTERS), input);
         }
 
         return completions;
     }
 
     private void sendHelpMessage(CommandSender sender) {
-        Messager.sendMessage(sender, "&e===== 难狗模式插件帮助 =====");
-        Messager.sendMessage(sender, "&a/mhc help &7- 显示此帮助");
-        Messager.sendMessage(sender, "&a/mhc revive &7- 复活（如果你已经经过了冷却时间）");
-        Messager.sendMessage(sender, "&a/mhc revive pay &7- 使用资源立即复活");
+        Messager.send(sender, "help.header");
+        Messager.send(sender, "help.help");
+        Messager.send(sender, "help.revive");
+        Messager.send(sender, "help.revive-pay");
 
         if (sender.hasPermission("miaomc.hardcore.admin")) {
-            Messager.sendMessage(sender, "&e===== 管理员命令 =====");
-            Messager.sendMessage(sender, "&a/mhc reset <玩家> &7- 重置玩家的死亡冷却时间");
+            Messager.send(sender, "help.admin-header");
+            Messager.send(sender, "help.reset");
+            Messager.send(sender, "help.bulk");
+            Messager.send(sender, "help.stats");
+            Messager.send(sender, "help.reload");
         }
     }
 
     private void handleReviveCommand(CommandSender sender) {
         if (!(sender instanceof Player player)) {
-            Messager.sendMessage(sender, "&c只有玩家可以使用此命令");
+            Messager.send(sender, "command.player-only");
             return;
         }
 
         UUID playerUUID = player.getUniqueId();
-        Map<String, Object> cooldownStatus = plugin.getMySQL().isPlayerInCooldown(playerUUID);
-        boolean inCooldown = (Boolean) cooldownStatus.get("status");
+        withStorage(player, () -> plugin.getStorage().getDeathStateAsync(playerUUID), deathState -> {
+            if (!player.isOnline()) {
+                return;
+            }
 
-        if (inCooldown) {
-            // 使用Messager发送剩余时间消息
-            long timeRemain = getTimeRemain(cooldownStatus.get("timeRemain"));
-            Messager.sendTimeRemainMessage(playerUUID, timeRemain);
-            return;
-        }
+            long now = DeathState.now();
+            if (deathState.isInCooldown(now)) {
+                // 使用Messager发送剩余时间消息
+                Messager.sendTimeRemainMessage(playerUUID, deathState.getTimeRemain(now));
+                return;
+            }
 
-        // 执行复活逻辑
-        performRevivalProcess(player, playerUUID, "command.revive", null, true);
+            // 执行复活逻辑
+            plugin.getService().revive(player, "command.revive", null, true);
+        });
     }
 
     private void handleRevivePayCommand(CommandSender sender) {
         if (!(sender instanceof Player player)) {
-            Messager.sendMessage(sender, "&c只有玩家可以使用此命令");
+            Messager.send(sender, "command.player-only");
             return;
         }
 
@@ -123,35 +174,34 @@ public class MainCommand extends Command {
 
         // 检查PlayerPoints插件是否存在
         if (Bukkit.getServer().getPluginManager().getPlugin("PlayerPoints") == null) {
-            Messager.sendMessage(player, "&c服务器未安装PlayerPoints插件，无法进行付费复活");
-            return;
-        }
-
-        // 检查玩家是否在冷却中
-        Map<String, Object> cooldownStatus = plugin.getMySQL().isPlayerInCooldown(playerUUID);
-        boolean inCooldown = (Boolean) cooldownStatus.get("status");
-
-        if (!inCooldown) {
-            Messager.sendMessage(player, "&c你不在复活冷却中，无需支付复活费用");
+            Messager.send(player, "revive.pay-unavailable");
             return;
         }
 
-        // 获取PlayerPoints实例
-        PlayerPoints playerPoints = (PlayerPoints) Bukkit.getServer().getPluginManager().getPlugin("PlayerPoints");
-        int requiredPoints = plugin.getConfig().getInt("settings.reviveNeed.playerpoints", 100);
+        withStorage(player, () -> plugin.getStorage().getDeathStateAsync(playerUUID), deathState -> {
+            if (!player.isOnline()) {
+                return;
+            }
 
-        // 检查是否是确认操作
-        if (isConfirmationValid(playerUUID)) {
-            handleRevivePayConfirmation(player, playerUUID, playerPoints, requiredPoints);
-        } else {
-            // 首次输入，显示确认信息
-            showPayConfirmation(player, playerUUID, requiredPoints);
-        }
-    }
+            // 检查玩家是否在冷却中
+            if (!deathState.isInCooldown(DeathState.now())) {
+                Messager.send(player, "revive.pay-not-needed");
+                return;
+            }
 
-    private boolean isConfirmationValid(UUID playerUUID) {
-        return revivePayConfirmation.containsKey(playerUUID) &&
-                System.currentTimeMillis() - revivePayConfirmation.get(playerUUID) < CONFIRMATION_TIMEOUT;
+            // 获取PlayerPoints实例
+            PlayerPoints playerPoints = (PlayerPoints) Bukkit.getServer().getPluginManager().getPlugin("PlayerPoints");
+            int requiredPoints = plugin.getSettings().reviveNeedPoints();
+
+            // 检查是否是确认操作，按确认时显示的点数扣除
+            Integer confirmedPoints = revivePayConfirmation.remove(playerUUID);
+            if (confirmedPoints != null) {
+                handleRevivePayConfirmation(player, playerUUID, playerPoints, confirmedPoints);
+            } else {
+                // 首次输入，显示确认信息
+                showPayConfirmation(player, playerUUID, requiredPoints);
+            }
+        });
     }
 
     private void handleRevivePayConfirmation(Player player, UUID playerUUID, PlayerPoints playerPoints, int requiredPoints) {
@@ -161,96 +211,219 @@ public class MainCommand extends Command {
             playerPoints.getAPI().take(playerUUID, requiredPoints);
 
             // 执行复活逻辑，使用不同的复活方法标识
-            performRevivalProcess(player, playerUUID, "command.revive.pay", null, true);
+            plugin.getService().revive(player, "command.revive.pay", null, true);
         } else {
-            Messager.sendMessage(player, "&c你没有足够的代币进行付费复活");
+            Messager.send(player, "revive.pay-insufficient");
         }
-
-        // 移除确认状态
-        revivePayConfirmation.remove(playerUUID);
     }
 
     private void showPayConfirmation(Player player, UUID playerUUID, int requiredPoints) {
-        Messager.sendMessage(player, "&e重生需要消耗: " + requiredPoints + " 代币");
-        Messager.sendMessage(player, "&e请在30秒内再次输入该命令确认支付");
+        Messager.send(player, "revive.pay-cost", "points", String.valueOf(requiredPoints));
+        Messager.send(player, "revive.pay-confirm");
 
-        // 记录确认时间
-        revivePayConfirmation.put(playerUUID, System.currentTimeMillis());
-
-        // 30秒后自动移除确认状态
-        plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin,
-                () -> revivePayConfirmation.remove(playerUUID), 30 * 20L);
+        // 记录确认状态，30秒后自动过期
+        revivePayConfirmation.put(playerUUID, requiredPoints);
     }
 
-    /**
-     * 执行玩家复活流程
-     */
-    @SuppressWarnings("SameParameterValue")
-    private void performRevivalProcess(Player player, UUID playerUUID, String revivalMethod, String customMessage, boolean isHandled) {
-        // 执行重生流程
-        List<String> reviveCommands = plugin.getConfig().getStringList("settings.reviveProcess");
-        for (String cmd : reviveCommands) {
-            String processedCmd = cmd.replace("{player}", player.getName());
-            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), processedCmd);
+    private void handleResetCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("miaomc.hardcore.admin")) {
+            Messager.send(sender, "command.no-permission");
+            return;
+        }
+
+        if (args.length < 2) {
+            Messager.send(sender, "reset.usage");
+            return;
         }
 
-        // 设置生存模式
-        player.setGameMode(GameMode.SURVIVAL);
+        String targetName = args[1];
+        withStorage(sender, () -> findPlayerUUID(targetName), targetUUID -> {
+            if (targetUUID == null) {
+                Messager.send(sender, "reset.not-found", "player", targetName);
+                return;
+            }
 
-        // 安全地恢复玩家血量和饱食度到满值
-        player.setHealth(20.0); // 默认最大生命值
-        player.setFoodLevel(20);
-        player.setSaturation(20f); // 设置饱和度满值
+            // 统一处理：仅重置玩家冷却时间，不执行重生流程
+            plugin.getStorage().updateRevivalMethod(targetUUID, "admin.reset", false);
+            Messager.send(sender, "reset.success", "player", targetName);
 
-        // 更新数据库
-        plugin.getMySQL().updateRevivalMethod(playerUUID, revivalMethod, isHandled);
+            // 如果玩家在线，提示他可以使用revive命令
+            Player targetPlayer = Bukkit.getPlayer(targetUUID);
+            if (targetPlayer != null) {
+                Messager.send(targetPlayer, "reset.notify");
+            }
+        });
+    }
 
-        // 发送复活消息
-        Messager.sendRevivalMessage(playerUUID);
+    private void handleReloadCommand(CommandSender sender) {
+        if (!sender.hasPermission("miaomc.hardcore.admin")) {
+            Messager.send(sender, "command.no-permission");
+            return;
+        }
 
-        // 如果有自定义消息，发送复活方式消息
-        if (customMessage != null) {
-            Messager.sendRevivalMethodMessage(playerUUID, customMessage);
+        long startedAt = System.currentTimeMillis();
+        if (plugin.reloadSettings()) {
+            Messager.send(sender, "reload.success", "millis", String.valueOf(System.currentTimeMillis() - startedAt));
+        } else {
+            Messager.send(sender, "reload.failed");
         }
     }
 
-    private void handleResetCommand(CommandSender sender, String[] args) {
+    private void handleBulkCommand(CommandSender sender, String[] args) {
         if (!sender.hasPermission("miaomc.hardcore.admin")) {
-            Messager.sendMessage(sender, "&c你没有权限执行此命令！");
+            Messager.send(sender, "command.no-permission");
             return;
         }
 
-        if (args.length < 2) {
-            Messager.sendMessage(sender, "&c用法: /mhc reset <玩家名>");
+        if (args.length < 3 || !"reset".equalsIgnoreCase(args[1]) && !"revive".equalsIgnoreCase(args[1])) {
+            Messager.send(sender, "bulk.usage");
             return;
         }
 
-        String targetName = args[1];
-        Player targetPlayer = Bukkit.getPlayerExact(targetName);
-        UUID targetUUID = getPlayerUUID(targetName, targetPlayer);
-
-        if (targetUUID == null) {
-            Messager.sendMessage(sender, "&c找不到玩家 " + targetName + " 的数据");
+        String serverName = plugin.getSettings().serverName();
+        BulkFilter filter;
+        try {
+            filter = BulkFilter.parse(Arrays.asList(args).subList(2, args.length), serverName);
+        } catch (IllegalArgumentException e) {
+            Messager.send(sender, "bulk.invalid-filter", "filter", e.getMessage());
             return;
         }
 
-        // 统一处理：仅重置玩家冷却时间，不执行重生流程
-        plugin.getMySQL().updateRevivalMethod(targetUUID, "admin.reset", false);
-        Messager.sendMessage(sender, "&a已重置玩家 " + targetName + " 的死亡冷却时间");
+        // 批量复活只清除冷却，在线玩家随后在主线程执行复活流程，离线玩家下次进入时可直接使用复活命令
+        boolean revive = "revive".equalsIgnoreCase(args[1]);
+        String action = revive ? "revive" : "reset";
+        String revivalMethod = revive ? "admin.bulk.revive" : "admin.bulk.reset";
+        Messager.send(sender, "bulk." + action + "-started", "filter", filter.describe());
 
-        // 如果玩家在线，提示他可以使用revive命令
-        if (targetPlayer != null) {
-            Messager.sendMessage(targetPlayer, "&a管理员已重置你的死亡冷却时间，你现在可以使用 /mhc revive 命令重生");
+        withStorage(sender, () -> plugin.getStorage().bulkUpdateRevivalAsync(filter, revivalMethod, false), result -> {
+            if (result.isFailed()) {
+                Messager.send(sender, "bulk.failed");
+                return;
+            }
+
+            // 其他子服的玩家不在本服处理
+            int online = serverName.equals(filter.serverName()) ? applyBulkResult(result, revive, revivalMethod) : 0;
+            Messager.send(sender, "bulk." + action + "-done",
+                    "affected", String.valueOf(result.affected()),
+                    "online", String.valueOf(online),
+                    "millis", String.valueOf(result.elapsedMillis()));
+            plugin.getLogger().info(sender.getName() + " 批量" + (revive ? "复活" : "重置") + "了 " + result.affected()
+                    + " 名玩家 (" + filter.describe() + ")");
+        });
+    }
+
+    /**
+     * 通知或复活受批量操作影响的在线玩家，缓存已在存储层一次性更新
+     *
+     * @return 受影响的在线玩家数量
+     */
+    private int applyBulkResult(BulkUpdateResult result, boolean revive, String revivalMethod) {
+        int online = 0;
+        for (UUID playerId : result.rows().keySet()) {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player == null) {
+                continue;
+            }
+            online++;
+            if (revive) {
+                plugin.getService().revive(player, revivalMethod, null, true);
+            } else {
+                Messager.send(player, "reset.notify");
+            }
+        }
+        return online;
+    }
+
+    private void handleStatsCommand(CommandSender sender) {
+        if (!sender.hasPermission("miaomc.hardcore.admin")) {
+            Messager.send(sender, "command.no-permission");
+            return;
+        }
+
+        Storage storage = plugin.getStorage();
+        StorageMetrics metrics = storage.getMetrics();
+        Messager.send(sender, "stats.header");
+        for (StorageMetrics.Operation operation : StorageMetrics.Operation.values()) {
+            StorageMetrics.OperationStats stats = metrics.get(operation);
+            if (stats.total().getCount() == 0) {
+                continue;
+            }
+            Messager.send(sender, "stats.operation",
+                    "operation", operation.getDisplayName(),
+                    "count", String.valueOf(stats.total().getCount()),
+                    "p50", String.format(Locale.ROOT, "%.2f", stats.total().getPercentileMillis(0.5D)),
+                    "p99", String.format(Locale.ROOT, "%.2f", stats.total().getPercentileMillis(0.99D)),
+                    "wait", String.format(Locale.ROOT, "%.2f", stats.poolWait().getPercentileMillis(0.99D)));
+        }
+        Messager.send(sender, "stats.main-thread", "millis", String.valueOf(metrics.getMainThreadBlockedMillis()));
+
+        WriteQueue queue = storage.getWriteQueue();
+        Messager.send(sender, "stats.queue",
+                "depth", String.valueOf(queue.getDepth()),
+                "capacity", String.valueOf(queue.getCapacity()),
+                "peak", String.valueOf(queue.getPeakDepth()),
+                "overflow", String.valueOf(queue.getOverflowCount()),
+                "failed", String.valueOf(queue.getFailedCount()));
+
+        Messager.send(sender, "stats.circuit",
+                "state", storage.getCircuitState().getDisplayName(),
+                "journal", String.valueOf(storage.getJournalPendingBatches()));
+
+        StorageMetrics.PoolStats pool = storage.getPoolStats();
+        if (pool != null) {
+            Messager.send(sender, "stats.pool",
+                    "active", String.valueOf(pool.active()),
+                    "idle", String.valueOf(pool.idle()),
+                    "pending", String.valueOf(pool.pending()),
+                    "total", String.valueOf(pool.total()));
         }
     }
 
-    private UUID getPlayerUUID(String playerName, Player targetPlayer) {
+    private CompletableFuture<UUID> findPlayerUUID(String playerName) {
+        Player targetPlayer = Bukkit.getPlayerExact(playerName);
         if (targetPlayer != null) {
             // 在线玩家直接获取UUID
-            return targetPlayer.getUniqueId();
-        } else {
-            // 离线玩家只能通过数据库获取UUID
-            return plugin.getMySQL().getPlayerUUIDByName(playerName);
+            return CompletableFuture.completedFuture(targetPlayer.getUniqueId());
+        }
+        // 离线玩家只能通过数据库获取UUID
+        return plugin.getStorage().getPlayerUUIDByNameAsync(playerName);
+    }
+
+    /**
+     * 在异步线程执行存储操作，完成后回到主线程继续处理
+     * 同一玩家的上一个请求尚未完成时直接拒绝，不会排队；控制台、RCON 和命令方块等非玩家发送者不受限制，
+     * 脚本连续执行的命令不会因为前一条尚未完成而失败
+     *
+     * @param sender       命令发送者
+     * @param request      发起存储操作
+     * @param continuation 在主线程处理结果
+     */
+    private <T> void withStorage(CommandSender sender, Supplier<CompletableFuture<T>> request, Consumer<T> continuation) {
+        UUID key = sender instanceof Player player ? player.getUniqueId() : null;
+        if (key != null && !inFlight.add(key)) {
+            Messager.send(sender, "command.busy");
+            return;
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException e) {
+            // 发起请求时就失败（例如异步线程池拒绝任务）也要释放发送者，否则之后的命令会一直提示请求处理中
+            finishRequest(sender, key, e);
+            return;
+        }
+        future.thenAcceptAsync(continuation, plugin.getMainThreadExecutor())
+                .whenComplete((ignored, e) -> finishRequest(sender, key, e));
+    }
+
+    private void finishRequest(CommandSender sender, UUID key, Throwable error) {
+        if (key != null) {
+            inFlight.remove(key);
+        }
+        if (error != null) {
+            plugin.getLogger().log(Level.SEVERE, "处理命令时发生错误: " + error.getMessage());
+            Messager.send(sender, "command.error");
         }
     }
 
@@ -264,16 +437,4 @@ public class MainCommand extends Command {
                 .filter(completion -> completion.toLowerCase().startsWith(lowerInput))
                 .collect(Collectors.toList());
     }
-
-    /**
-     * 安全地获取剩余时间
-     */
-    private long getTimeRemain(Object timeRemainObj) {
-        return switch (timeRemainObj) {
-            case Long l -> l;
-            case Integer i -> i.longValue();
-            case null, default -> 0L;
-        };
-
-    }
 }
\ No newline at end of file
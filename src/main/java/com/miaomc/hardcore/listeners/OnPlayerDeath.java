@@ -1,36 +1,36 @@
 package com.miaomc.hardcore.listeners;
 
 import com.miaomc.hardcore.HardCore;
+import com.miaomc.hardcore.api.HardcorePlayerDeathEvent;
+import com.miaomc.hardcore.api.HardcorePlayerState;
+import com.miaomc.hardcore.utils.DeathChests;
+import com.miaomc.hardcore.utils.DeathRecord;
+import com.miaomc.hardcore.utils.DeathState;
+import com.miaomc.hardcore.utils.HardcoreServiceProvider;
 import com.miaomc.hardcore.utils.Messager;
+import com.miaomc.hardcore.utils.SpectatorLeash;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.Statistic;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class OnPlayerDeath implements Listener {
     private final HardCore plugin;
-    private final FileConfiguration config;
-    // 用于保存玩家死亡位置
-    private final Map<UUID, Location> deathLocations = new ConcurrentHashMap<>();
 
     public OnPlayerDeath(HardCore plugin) {
         this.plugin = plugin;
-        this.config = plugin.getConfig();
     }
 
     @EventHandler
@@ -39,29 +39,33 @@ public class OnPlayerDeath implements Listener {
         UUID playerUUID = player.getUniqueId();
         Location deathLoc = player.getLocation().clone();
 
-        // 保存死亡位置
-        deathLocations.put(playerUUID, deathLoc);
-
-        // 检查玩家是否已有死亡记录
-        Map<String, Object> cooldownInfo = plugin.getMySQL().isPlayerInCooldown(playerUUID);
-        if ((boolean) cooldownInfo.get("status")) {
+        // 检查玩家是否已有死亡记录，状态未能在登录时加载的玩家按没有记录处理
+        DeathState deathState = plugin.getStorage().getDeathState(playerUUID);
+        if (deathState != null && deathState.isInCooldown(DeathState.now())) {
             // 玩家已有死亡记录，不再重复记录
-            Messager.sendMessage(playerUUID, "&c你已经处于死亡状态，无需重复记录。");
+            Messager.send(playerUUID, "death.already-dead");
         } else {
             // 获取当前时间戳和复活冷却时间（秒）
-            long currentTime = System.currentTimeMillis() / 1000;
-            int cooldownTime = config.getInt("settings.reviveCooldown", 3600); // 默认1小时
+            long currentTime = DeathState.now();
+            int cooldownTime = plugin.getSettings().reviveCooldown();
             long reviveTime = currentTime + cooldownTime;
 
             // 获取死亡消息
             String deathCause = getDeathMessage(event);
 
             // 创建并保存死亡数据
-            Map<String, Object> deathDataMap = createDeathDataMap(currentTime, reviveTime, deathCause, deathLoc);
-            plugin.getMySQL().insertPlayerDeathData(playerUUID, convertMapToJsonString(deathDataMap), null);
+            DeathRecord deathRecord = new DeathRecord(currentTime, reviveTime, deathCause,
+                    deathLoc.getWorld().getName(), deathLoc.getX(), deathLoc.getY(), deathLoc.getZ());
+            String causeKey = getDeathCauseKey(player);
+            plugin.getStorage().insertPlayerDeathData(playerUUID, deathRecord, null, causeKey);
+            plugin.getExpiryScheduler().register(playerUUID, reviveTime);
 
             // 告知玩家复活冷却时间
             Messager.sendDeathMessage(playerUUID, cooldownTime);
+
+            // 通知其他插件
+            HardcorePlayerState state = HardcoreServiceProvider.toState(playerUUID, plugin.getStorage().getDeathState(playerUUID));
+            plugin.getServer().getPluginManager().callEvent(new HardcorePlayerDeathEvent(player, state, causeKey));
         }
 
         // 广播死亡消息
@@ -77,7 +81,7 @@ public class OnPlayerDeath implements Listener {
         handleItemDrop(player, deathLoc);
 
         // 立即重生玩家并设置为旁观者模式
-        respawnPlayerAsSpectator(player, playerUUID);
+        respawnPlayerAsSpectator(player, deathLoc);
     }
 
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -85,10 +89,13 @@ public class OnPlayerDeath implements Listener {
         Player player = event.getPlayer();
         UUID playerUUID = player.getUniqueId();
 
-        Map<String, Object> cooldownInfo = plugin.getMySQL().isPlayerInCooldown(playerUUID);
-        if ((boolean) cooldownInfo.get("status") && deathLocations.containsKey(playerUUID)) {
-            // 有死亡记录，将重生点设置为死亡位置
-            event.setRespawnLocation(deathLocations.get(playerUUID));
+        // 死亡位置随死亡记录保存在数据库中，重启后重新进入的玩家也会回到死亡位置
+        DeathState deathState = plugin.getStorage().getDeathState(playerUUID);
+        if (deathState != null && deathState.isInCooldown(DeathState.now()) && deathState.location() != null) {
+            Location deathLoc = deathState.location().toLocation();
+            if (deathLoc != null) {
+                event.setRespawnLocation(deathLoc);
+            }
         }
     }
 
@@ -103,35 +110,25 @@ public class OnPlayerDeath implements Listener {
     }
 
     /**
-     * 创建死亡数据Map
+     * 获取用于死亡原因排行的分类，使用最后一次受到伤害的类型
      */
-    private Map<String, Object> createDeathDataMap(long currentTime, long reviveTime, String deathCause, Location deathLoc) {
-        Map<String, Object> deathDataMap = new HashMap<>();
-        deathDataMap.put("deathAt", currentTime);
-        deathDataMap.put("reviveAt", reviveTime);
-        deathDataMap.put("deathCaused", deathCause);
-        deathDataMap.put("deathWorld", deathLoc.getWorld().getName());
-
-        // 创建嵌套的位置对象
-        Map<String, String> locationMap = new HashMap<>();
-
-        // 使用String.format保留2位小数，然后转回Double
-        locationMap.put("x", String.format("%.2f", deathLoc.getX()));
-        locationMap.put("y", String.format("%.2f", deathLoc.getY()));
-        locationMap.put("z", String.format("%.2f", deathLoc.getZ()));
-
-        deathDataMap.put("deathLoc", locationMap);
-
-        return deathDataMap;
+    private String getDeathCauseKey(Player player) {
+        EntityDamageEvent lastDamage = player.getLastDamageCause();
+        return lastDamage != null ? lastDamage.getCause().name() : EntityDamageEvent.DamageCause.CUSTOM.name();
     }
 
     /**
      * 处理物品掉落
      */
     private void handleItemDrop(Player player, Location deathLoc) {
-        if (!config.getBoolean("settings.keepInventory", false)) {
+        if (!plugin.getSettings().keepInventory()) {
             ItemStack[] items = player.getInventory().getContents();
             player.getInventory().clear();
+            // 启用死亡箱时整个背包存入一个方块，找不到放置位置时才逐个掉落
+            DeathChests deathChests = plugin.getDeathChests();
+            if (deathChests != null && deathChests.store(player, deathLoc, items)) {
+                return;
+            }
             for (ItemStack item : items) {
                 if (item != null && !item.getType().isAir()) {
                     player.getWorld().dropItemNaturally(deathLoc, item);
@@ -143,50 +140,21 @@ public class OnPlayerDeath implements Listener {
     /**
      * 将玩家设置为旁观者模式并传送到死亡位置
      */
-    private void respawnPlayerAsSpectator(Player player, UUID playerUUID) {
+    private void respawnPlayerAsSpectator(Player player, Location deathLoc) {
         plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, () -> {
             if (player.isOnline()) {
                 // 传送到死亡位置
-                Location respawnLoc = deathLocations.get(playerUUID);
-                player.teleport(Objects.requireNonNullElseGet(respawnLoc,
-                        () -> player.getWorld().getSpawnLocation()));
+                player.teleport(deathLoc);
 
                 // 设置为旁观者模式
                 player.setGameMode(GameMode.SPECTATOR);
-            }
-        }, 1L);
-    }
 
-    /**
-     * 将 Map 转换为 JSON 字符串
-     */
-    private String convertMapToJsonString(Map<String, Object> map) {
-        StringBuilder json = new StringBuilder("{");
-        boolean first = true;
-
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (!first) {
-                json.append(",");
-            }
-
-            json.append("\"").append(entry.getKey()).append("\":");
-
-            Object value = entry.getValue();
-            if (value instanceof String) {
-                json.append("\"").append(value).append("\"");
-            } else if (value instanceof Map) {
-                // 递归处理嵌套Map
-                @SuppressWarnings("unchecked")
-                Map<String, Object> nestedMap = (Map<String, Object>) value;
-                json.append(convertMapToJsonString(nestedMap));
-            } else {
-                json.append(value);
+                // 限制旁观者的活动范围
+                SpectatorLeash leash = plugin.getSpectatorLeash();
+                if (leash != null) {
+                    leash.register(player, deathLoc);
+                }
             }
-
-            first = false;
-        }
-
-        json.append("}");
-        return json.toString();
+        }, 1L);
     }
-}
\ No newline at end of file
+}
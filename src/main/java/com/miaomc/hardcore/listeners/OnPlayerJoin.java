@@ -1,15 +1,17 @@
 package com.miaomc.hardcore.listeners;
 
 import com.miaomc.hardcore.HardCore;
+import com.miaomc.hardcore.utils.DeathState;
 import com.miaomc.hardcore.utils.HardcoreDisplayManager;
 import com.miaomc.hardcore.utils.Messager;
+import com.miaomc.hardcore.utils.SpectatorLeash;
 import org.bukkit.GameMode;
+import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 
-import java.util.Map;
 import java.util.UUID;
 
 public class OnPlayerJoin implements Listener {
@@ -24,79 +26,68 @@ public class OnPlayerJoin implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         UUID playerUUID = player.getUniqueId();
+        plugin.getStorage().recordPlayerName(playerUUID, player.getName());
 
-        // 检查玩家是否在冷却中
-        Map<String, Object> result = plugin.getMySQL().isPlayerInCooldown(playerUUID);
-        boolean inCooldown = (boolean) result.get("status");
+        DeathState deathState = plugin.getStorage().getCooldownCache().get(playerUUID);
+        if (deathState != null) {
+            applyDeathState(player, deathState);
+            return;
+        }
+
+        // 预加载超时且配置为异步回退时，在异步线程加载后回到主线程处理
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            DeathState loaded = plugin.getStorage().loadDeathState(playerUUID);
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (player.isOnline()) {
+                    plugin.getStorage().getCooldownCache().put(playerUUID, loaded);
+                    applyDeathState(player, loaded);
+                }
+            });
+        });
+    }
+
+    /**
+     * 根据死亡状态设置玩家的游戏模式并发送提示
+     *
+     * @param player     玩家
+     * @param deathState 玩家的死亡状态
+     */
+    private void applyDeathState(Player player, DeathState deathState) {
+        UUID playerUUID = player.getUniqueId();
+        long now = DeathState.now();
 
-        if (inCooldown) {
-            // 处理冷却中的逻辑（无需修改）
+        if (deathState.isInCooldown(now)) {
+            // 处理冷却中的逻辑，提醒和冷却结束通知交给到期调度器
             player.setGameMode(GameMode.SPECTATOR);
-            long timeRemain = (long) result.get("timeRemain");
-            Messager.sendTimeRemainMessage(playerUUID, timeRemain);
-            scheduleRevivalTask(playerUUID, timeRemain);
-        } else if (plugin.getMySQL().hasUnhandledDeathRecord(playerUUID)) {
+            leash(player, deathState);
+            Messager.sendTimeRemainMessage(playerUUID, deathState.getTimeRemain(now));
+            plugin.getExpiryScheduler().register(playerUUID, deathState.reviveAt());
+        } else if (deathState.isUnhandled()) {
             // 有未处理的死亡记录，设置为观察者模式
             player.setGameMode(GameMode.SPECTATOR);
+            leash(player, deathState);
 
             // 直接让玩家可以使用重生命令
             // 不依赖deathData和isDeathCooldownEnded
-            Messager.sendMessage(playerUUID, "&a你可以重生了！");
-            Messager.sendMessage(playerUUID, "&e使用 /mhc revive 命令重生。");
-        } else if (plugin.getConfig().getBoolean("settings.useHardcoreHearts", true)) {
+            Messager.send(playerUUID, "cooldown.can-revive");
+            Messager.send(playerUUID, "cooldown.revive-hint");
+        } else if (plugin.getSettings().useHardcoreHearts()) {
             // 正常进入游戏
             HardcoreDisplayManager.setHardcoreHearts(player);
         }
     }
 
     /**
-     * 为玩家设置复活定时任务
-     *
-     * @param playerUUID 玩家UUID
-     * @param timeRemain 剩余时间（秒）
+     * 启用活动范围限制时，把旁观者限制在死亡位置附近；死亡位置所在的世界未加载时不限制
      */
-    private void scheduleRevivalTask(UUID playerUUID, long timeRemain) {
-        // 将秒转换为tick (1秒 = 20tick)
-        long ticksRemain = timeRemain * 20;
-
-        // 调度任务，在冷却结束时执行
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            Player player = plugin.getServer().getPlayer(playerUUID);
-            if (player != null && player.isOnline()) {
-                // 检查玩家是否仍在冷却中（双重检查，防止数据被手动修改）
-                Map<String, Object> currentStatus = plugin.getMySQL().isPlayerInCooldown(playerUUID);
-                if (!(boolean) currentStatus.get("status")) {
-                    // 冷却已结束，通知玩家可以复活
-                    Messager.sendMessage(playerUUID, "&a冷却已结束，使用 &e/mhc revive &a立即重生！");
-                }
-            }
-        }, ticksRemain);
-
-        // 如果冷却时间较长，每隔一段时间提醒玩家
-        if (timeRemain > 300) { // 超过5分钟才设置提醒
-            long reminderInterval = 300 * 20; // 每5分钟提醒一次
-
-            // 设置周期性提醒任务
-            plugin.getServer().getScheduler().runTaskTimer(plugin, task -> {
-                Player player = plugin.getServer().getPlayer(playerUUID);
-                if (player == null || !player.isOnline()) {
-                    // 玩家已下线，取消任务
-                    task.cancel();
-                    return;
-                }
-
-                // 再次检查冷却状态
-                Map<String, Object> currentStatus = plugin.getMySQL().isPlayerInCooldown(playerUUID);
-                if (!(boolean) currentStatus.get("status")) {
-                    // 冷却已结束，取消任务
-                    task.cancel();
-                    return;
-                }
-
-                // 发送剩余时间提醒
-                long remainingTime = (long) currentStatus.get("timeRemain");
-                Messager.sendMessage(playerUUID, "&7距离重生还剩 &e" + Messager.formatTime(remainingTime) + "&7。");
-            }, reminderInterval, reminderInterval);
+    private void leash(Player player, DeathState deathState) {
+        SpectatorLeash leash = plugin.getSpectatorLeash();
+        if (leash == null || deathState.location() == null) {
+            return;
+        }
+        Location location = deathState.location().toLocation();
+        if (location != null) {
+            leash.register(player, location);
         }
     }
-}
\ No newline at end of file
+}
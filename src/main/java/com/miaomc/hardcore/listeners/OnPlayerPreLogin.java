@@ -0,0 +1,72 @@
+package com.miaomc.hardcore.listeners;
+
+import com.miaomc.hardcore.HardCore;
+import com.miaomc.hardcore.utils.DeathState;
+import com.miaomc.hardcore.utils.Messager;
+import com.miaomc.hardcore.utils.Settings;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class OnPlayerPreLogin implements Listener {
+
+    private final HardCore plugin;
+
+    public OnPlayerPreLogin(HardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        // 在异步登录阶段预加载死亡状态，进入服务器时无需再访问数据库
+        UUID playerUUID = event.getUniqueId();
+        CompletableFuture<DeathState> future = new CompletableFuture<>();
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin,
+                () -> future.complete(plugin.getStorage().loadDeathState(playerUUID)));
+        // 死亡统计只用于占位符显示，不等待加载完成
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin,
+                () -> plugin.getStorage().cachePlayerStats(playerUUID));
+
+        Settings settings = plugin.getSettings();
+        try {
+            DeathState state = future.get(settings.prefetchTimeout(), TimeUnit.MILLISECONDS);
+            if (settings.denyOnOutage() && !plugin.getStorage().isAvailable()
+                    && !plugin.getStorage().hasLocalDeathState(playerUUID)) {
+                // 数据库熔断且本地没有该玩家的状态，无法确认玩家是否处于死亡状态
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                        Messager.template("prefetch.unavailable").renderBody());
+                return;
+            }
+            plugin.getStorage().getCooldownCache().put(playerUUID, state);
+        } catch (TimeoutException | ExecutionException e) {
+            plugin.getLogger().warning("预加载玩家 " + event.getName() + " 的死亡数据超时或失败");
+            if (settings.denyOnPrefetchTimeout()) {
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                        Messager.template("prefetch.timeout").renderBody());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        // 登录被其他插件拒绝时，丢弃预加载的数据
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            plugin.getStorage().getCooldownCache().invalidate(event.getPlayer().getUniqueId());
+            plugin.getStorage().getLeaderboards().removePlayer(event.getPlayer().getUniqueId());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.miaomc.hardcore.listeners;
+
+import com.miaomc.hardcore.HardCore;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+public class OnPlayerQuit implements Listener {
+
+    private final HardCore plugin;
+
+    public OnPlayerQuit(HardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        // 玩家离线后移除死亡状态缓存和死亡统计
+        plugin.getStorage().getCooldownCache().invalidate(event.getPlayer().getUniqueId());
+        plugin.getStorage().getLeaderboards().removePlayer(event.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,101 @@
+package com.miaomc.hardcore.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 批量操作的筛选条件，只作用于每个玩家在指定子服的最新一条、且尚未复活的死亡记录
+ *
+ * @param serverName 子服名称
+ * @param deathFrom  死亡时间下限的UNIX时间戳（秒），0表示不限
+ * @param deathTo    死亡时间上限的UNIX时间戳（秒），0表示不限
+ * @param cause      死亡原因分类（伤害类型名称，如 FALL），null表示不限
+ */
+public record BulkFilter(String serverName, long deathFrom, long deathTo, String cause) {
+
+    /**
+     * 解析命令参数中的筛选条件
+     * 支持 all、from:&lt;时间&gt;、to:&lt;时间&gt;、cause:&lt;伤害类型&gt;、server:&lt;子服&gt;，伤害类型不区分大小写，
+     * 时间可以是 30m、2h、1d 这样的相对时间（表示多久以前），也可以是 2024-01-01T12:00 这样的本地时间
+     *
+     * @param tokens        筛选条件参数
+     * @param defaultServer 未指定子服时使用的子服名称
+     * @return 筛选条件
+     * @throws IllegalArgumentException 参数无法识别时抛出，异常消息为出错的参数
+     */
+    public static BulkFilter parse(List<String> tokens, String defaultServer) {
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("");
+        }
+
+        String server = defaultServer;
+        long from = 0L;
+        long to = 0L;
+        String cause = null;
+        for (String token : tokens) {
+            int separator = token.indexOf(':');
+            String key = separator < 0 ? token.toLowerCase(Locale.ROOT) : token.substring(0, separator).toLowerCase(Locale.ROOT);
+            String value = separator < 0 ? "" : token.substring(separator + 1);
+            if ("all".equals(key) && separator < 0) {
+                continue;
+            }
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException(token);
+            }
+            switch (key) {
+                case "from" -> from = parseTime(token, value);
+                case "to" -> to = parseTime(token, value);
+                case "cause" -> cause = value.toUpperCase(Locale.ROOT);
+                case "server" -> server = value;
+                default -> throw new IllegalArgumentException(token);
+            }
+        }
+        return new BulkFilter(server, from, to, cause);
+    }
+
+    private static long parseTime(String token, String value) {
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        long multiplier = switch (unit) {
+            case 's' -> 1L;
+            case 'm' -> 60L;
+            case 'h' -> 3600L;
+            case 'd' -> 86400L;
+            default -> 0L;
+        };
+        try {
+            if (multiplier > 0L) {
+                return DeathState.now() - Long.parseLong(value.substring(0, value.length() - 1)) * multiplier;
+            }
+            return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toEpochSecond();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException(token);
+        }
+    }
+
+    /**
+     * 生成便于阅读的条件描述，用于命令反馈
+     *
+     * @return 条件描述
+     */
+    public String describe() {
+        StringBuilder builder = new StringBuilder("server=").append(serverName);
+        if (deathFrom > 0L) {
+            builder.append(", from=").append(toLocalTime(deathFrom));
+        }
+        if (deathTo > 0L) {
+            builder.append(", to=").append(toLocalTime(deathTo));
+        }
+        if (cause != null) {
+            builder.append(", cause=").append(cause);
+        }
+        return builder.toString();
+    }
+
+    private static LocalDateTime toLocalTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+}
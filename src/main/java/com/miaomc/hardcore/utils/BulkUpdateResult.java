@@ -0,0 +1,21 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 批量操作的执行结果
+ *
+ * @param affected      实际更新的记录数量，出错时为-1
+ * @param rows          被更新的玩家及其记录ID
+ * @param elapsedMillis 执行耗时，单位毫秒
+ */
+public record BulkUpdateResult(int affected, Map<UUID, Long> rows, long elapsedMillis) {
+
+    /**
+     * 是否执行失败
+     */
+    public boolean isFailed() {
+        return affected < 0;
+    }
+}
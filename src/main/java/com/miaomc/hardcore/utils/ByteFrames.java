@@ -0,0 +1,66 @@
+package com.miaomc.hardcore.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把多段字节数组拼成一个字节数组的工具，格式为段数加上每段的长度和内容，用于在方块的持久化数据中保存死亡箱物品
+ */
+public final class ByteFrames {
+
+    private ByteFrames() {
+    }
+
+    /**
+     * 拼接多段字节数组
+     *
+     * @param frames 按顺序排列的字节数组
+     * @return 拼接后的字节数组
+     */
+    public static byte[] pack(List<byte[]> frames) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(frames.size());
+            for (byte[] frame : frames) {
+                out.writeInt(frame.length);
+                out.write(frame);
+            }
+        } catch (IOException e) {
+            // 写入内存不会失败
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 拆分由 {@link #pack(List)} 拼接的字节数组
+     *
+     * @param data 拼接后的字节数组，为null或空时视为没有内容
+     * @return 按顺序排列的字节数组
+     * @throws IOException 如果数据不完整或长度无效
+     */
+    public static List<byte[]> unpack(byte[] data) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        if (data == null || data.length == 0) {
+            return frames;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                if (length < 0 || length > in.available()) {
+                    throw new IOException("第 " + (i + 1) + " 段的长度 " + length + " 无效");
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                frames.add(frame);
+            }
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,112 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.logging.Logger;
+
+/**
+ * 数据库连接的熔断器
+ * 连续获取连接失败达到阈值后熔断，熔断期间直接拒绝请求而不是等待连接超时；
+ * 熔断一段时间后放行一次试探请求，试探成功则恢复，失败则继续熔断
+ */
+public class CircuitBreaker {
+    private final Logger logger;
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    /**
+     * 熔断器构造函数
+     *
+     * @param logger           用于输出状态变化的日志
+     * @param failureThreshold 连续失败多少次后熔断
+     * @param openMillis       熔断后多久放行试探请求，单位毫秒
+     */
+    public CircuitBreaker(Logger logger, int failureThreshold, long openMillis) {
+        this.logger = logger;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0L, openMillis);
+    }
+
+    /**
+     * 判断是否允许本次请求，熔断时间结束后只放行一次试探请求
+     * 允许后必须调用 {@link #recordSuccess()} 或 {@link #recordFailure()} 报告结果
+     *
+     * @return 是否允许
+     */
+    public synchronized boolean allowRequest() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> {
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    yield false;
+                }
+                state = State.HALF_OPEN;
+                yield true;
+            }
+            case HALF_OPEN -> false;
+        };
+    }
+
+    /**
+     * 判断是否处于熔断期间，不会改变熔断器状态
+     *
+     * @return 熔断中且尚未到试探时间时返回true
+     */
+    public synchronized boolean isOpen() {
+        return state == State.HALF_OPEN || state == State.OPEN && System.currentTimeMillis() - openedAt < openMillis;
+    }
+
+    /**
+     * 报告请求成功
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("数据库连接已恢复");
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * 报告请求失败
+     */
+    public synchronized void recordFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            if (state == State.CLOSED) {
+                logger.warning("数据库连续 " + failures + " 次连接失败，暂停访问数据库 " + openMillis / 1000L + " 秒");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 获取当前状态
+     *
+     * @return 熔断器状态
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED("正常"),
+        OPEN("熔断"),
+        HALF_OPEN("试探中");
+
+        private final String displayName;
+
+        State(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 在线玩家死亡状态的内存缓存
+ * 玩家进入服务器时加载，写入数据库时同步更新（write-through），玩家离线时移除
+ */
+public class CooldownCache {
+    private final Map<UUID, DeathState> states = new ConcurrentHashMap<>();
+
+    /**
+     * 获取缓存的死亡状态
+     *
+     * @param playerId 玩家UUID
+     * @return 缓存的状态，未缓存时返回null
+     */
+    public DeathState get(UUID playerId) {
+        return states.get(playerId);
+    }
+
+    /**
+     * 写入玩家的死亡状态
+     *
+     * @param playerId 玩家UUID
+     * @param state    死亡状态
+     */
+    public void put(UUID playerId, DeathState state) {
+        states.put(playerId, state);
+    }
+
+    /**
+     * 仅在缓存的状态仍为预期值时替换，避免覆盖期间发生的本地修改
+     *
+     * @param playerId 玩家UUID
+     * @param expected 预期的当前状态
+     * @param state    新的死亡状态
+     * @return 是否替换成功
+     */
+    public boolean replace(UUID playerId, DeathState expected, DeathState state) {
+        return states.replace(playerId, expected, state);
+    }
+
+    /**
+     * 应用跨服同步读取到的其他子服的修改，同一玩家只取最后一条变更，即其最新记录
+     * 只更新已被缓存的玩家；本服有未写入或在查询期间写入的数据时以本地为准
+     *
+     * @param changes 按更新时间升序排列的变更
+     * @param settled 判断玩家的数据库数据是否可以覆盖缓存
+     * @return 被更新的玩家数量
+     */
+    public int applyRemoteChanges(List<DeathStateChange> changes, Predicate<UUID> settled) {
+        Map<UUID, DeathState> latest = new HashMap<>();
+        for (DeathStateChange change : changes) {
+            latest.put(change.playerId(), change.state());
+        }
+
+        int applied = 0;
+        for (Map.Entry<UUID, DeathState> entry : latest.entrySet()) {
+            UUID playerId = entry.getKey();
+            DeathState cached = states.get(playerId);
+            if (cached == null || cached.equals(entry.getValue()) || !settled.test(playerId)) {
+                continue;
+            }
+            if (states.replace(playerId, cached, entry.getValue())) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * 仅在玩家已被缓存时更新其复活方式
+     *
+     * @param playerId      玩家UUID
+     * @param revivalMethod 复活方式
+     * @param handled       是否已处理
+     */
+    public void updateRevival(UUID playerId, String revivalMethod, boolean handled) {
+        states.computeIfPresent(playerId, (id, state) -> state.withRevival(revivalMethod, handled));
+    }
+
+    /**
+     * 将批量操作的结果一次性应用到缓存
+     * 只更新缓存中仍是被更新的那条记录且尚未复活的玩家，期间产生新记录或已自行复活的玩家保持不变
+     *
+     * @param rows          被更新的玩家及其记录ID
+     * @param revivalMethod 复活方式
+     * @param handled       是否已处理
+     * @return 缓存被更新的玩家数量
+     */
+    public int applyBulkRevival(Map<UUID, Long> rows, String revivalMethod, boolean handled) {
+        int applied = 0;
+        for (Map.Entry<UUID, Long> row : rows.entrySet()) {
+            long rowId = row.getValue();
+            DeathState before = states.get(row.getKey());
+            DeathState after = states.computeIfPresent(row.getKey(), (id, state) ->
+                    state.id() == rowId && !state.isRevived() ? state.withRevival(revivalMethod, handled) : state);
+            if (after != null && after != before) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * 仅在玩家已被缓存时更新其死亡时间和复活时间，复活方式保持不变
+     *
+     * @param playerId 玩家UUID
+     * @param deathAt  死亡时间的UNIX时间戳（秒）
+     * @param reviveAt 复活时间的UNIX时间戳（秒）
+     */
+    public void updateDeathTime(UUID playerId, long deathAt, long reviveAt) {
+        states.computeIfPresent(playerId, (id, state) ->
+                new DeathState(state.id(), true, deathAt, reviveAt, state.revivalMethod(), state.handled(),
+                        state.location()));
+    }
+
+    /**
+     * 插入完成后为同一条死亡记录补充数据库行ID
+     * 只有缓存中仍是该次死亡（死亡时间一致）且尚无ID时才会更新
+     *
+     * @param playerId 玩家UUID
+     * @param deathAt  插入记录的死亡时间
+     * @param rowId    数据库生成的行ID
+     */
+    public void assignId(UUID playerId, long deathAt, long rowId) {
+        states.computeIfPresent(playerId, (id, state) ->
+                state.recorded() && state.id() == 0L && state.deathAt() == deathAt ? state.withId(rowId) : state);
+    }
+
+    /**
+     * 获取缓存中玩家最新死亡记录的行ID
+     *
+     * @param playerId 玩家UUID
+     * @return 行ID，未缓存或尚未写入数据库时返回0
+     */
+    public long getRowId(UUID playerId) {
+        DeathState state = states.get(playerId);
+        return state == null ? 0L : state.id();
+    }
+
+    /**
+     * 移除玩家的缓存
+     *
+     * @param playerId 玩家UUID
+     */
+    public void invalidate(UUID playerId) {
+        states.remove(playerId);
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public void clear() {
+        states.clear();
+    }
+
+    /**
+     * 获取缓存条目数量
+     *
+     * @return 已缓存的玩家数量
+     */
+    public int size() {
+        return states.size();
+    }
+}
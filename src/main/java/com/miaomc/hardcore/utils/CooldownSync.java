@@ -0,0 +1,82 @@
+package com.miaomc.hardcore.utils;
+
+import com.miaomc.hardcore.HardCore;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 跨服死亡状态同步
+ * 共用同一数据表的子服按 update_date 水位线增量轮询本服范围内的变更，每次轮询只做一次索引范围扫描，
+ * 把其他子服的复活、重置等修改应用到本地缓存，数据库开销与玩家数量无关
+ */
+public class CooldownSync {
+    private final HardCore plugin;
+    private final long intervalTicks;
+    private final long lookbackMillis;
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private volatile long watermark;
+    private BukkitTask task;
+
+    /**
+     * 跨服同步构造函数
+     *
+     * @param plugin HardCore 主插件实例
+     */
+    public CooldownSync(HardCore plugin) {
+        this.plugin = plugin;
+        this.intervalTicks = Math.max(1L, plugin.getConfig().getLong("settings.sync.interval", 5L)) * 20L;
+        // update_date 只精确到秒，且事务提交可能晚于记录的时间，因此每次都回看一小段时间
+        this.lookbackMillis = Math.max(1L, plugin.getConfig().getLong("settings.sync.lookback", 5L)) * 1000L;
+    }
+
+    /**
+     * 以数据库当前时间为起点启动异步轮询
+     */
+    public void start() {
+        if (task != null) {
+            return;
+        }
+        task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            if (watermark == 0L) {
+                watermark = plugin.getStorage().currentDatabaseTime();
+                return;
+            }
+            poll();
+        }, 0L, intervalTicks);
+    }
+
+    /**
+     * 停止轮询
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * 执行一次增量轮询，上一次轮询未结束时直接跳过
+     */
+    private void poll() {
+        if (!polling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Storage storage = plugin.getStorage();
+            WriteQueue writeQueue = storage.getWriteQueue();
+            long sequence = writeQueue.getFlushSequence();
+            List<DeathStateChange> changes = storage.loadChangesSince(watermark - lookbackMillis);
+
+            // 只同步本服在线的玩家；本服有未写入或在查询期间写入的数据时以本地为准
+            storage.getCooldownCache().applyRemoteChanges(changes, playerId -> writeQueue.isSettled(playerId, sequence));
+
+            writeQueue.pruneFlushed(sequence);
+            watermark = DeathStateChange.watermark(changes, watermark);
+        } finally {
+            polling.set(false);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.miaomc.hardcore.utils;
+
+import com.destroystokyo.paper.event.block.BlockDestroyEvent;
+import com.miaomc.hardcore.HardCore;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Skull;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * 死亡箱
+ * 玩家死亡时把背包物品存入死亡位置的一个玩家头颅方块，而不是逐个生成掉落物实体。
+ * 物品序列化后保存在方块的持久化数据中，随区块一起保存，服务器重启后仍然存在；
+ * 头颅没有物品栏，不会被漏斗抽取，也不需要每 tick 更新。查看时每次取放物品都会在下一 tick 写回方块，
+ * 服务器在物品栏关闭前崩溃也不会让已取走的物品留在方块中。所有方法都只应在主线程调用
+ */
+public class DeathChests implements Listener {
+    private static final int SEARCH_HEIGHT = 8;
+    private static final int INVENTORY_SIZE = 45;
+
+    private final HardCore plugin;
+    private final NamespacedKey ownerKey;
+    private final NamespacedKey createdKey;
+    private final NamespacedKey itemsKey;
+    // 正在被查看的死亡箱，多名玩家同时打开时共用同一个物品栏
+    private final Map<Location, Inventory> openChests = new HashMap<>();
+    // 已修改、等待下一 tick 写回方块的死亡箱
+    private final Set<Location> dirtyChests = new HashSet<>();
+
+    /**
+     * 死亡箱构造函数
+     *
+     * @param plugin HardCore 主插件实例
+     */
+    public DeathChests(HardCore plugin) {
+        this.plugin = plugin;
+        this.ownerKey = new NamespacedKey(plugin, "death_chest_owner");
+        this.createdKey = new NamespacedKey(plugin, "death_chest_created");
+        this.itemsKey = new NamespacedKey(plugin, "death_chest_items");
+    }
+
+    /**
+     * 把所有正在查看的死亡箱写回方块并关闭，插件停用时调用
+     */
+    public void saveAll() {
+        for (Map.Entry<Location, Inventory> entry : new ArrayList<>(openChests.entrySet())) {
+            save(entry.getKey(), entry.getValue());
+            new ArrayList<>(entry.getValue().getViewers()).forEach(viewer -> viewer.closeInventory());
+        }
+        openChests.clear();
+        dirtyChests.clear();
+    }
+
+    /**
+     * 把玩家的物品存入死亡位置的死亡箱
+     *
+     * @param player   死亡的玩家
+     * @param location 死亡位置
+     * @param items    背包中的物品，可以包含null和空气
+     * @return 是否已存入，找不到可放置的位置时返回false，由调用方按原方式掉落
+     */
+    public boolean store(Player player, Location location, ItemStack[] items) {
+        List<ItemStack> contents = new ArrayList<>(items.length);
+        for (ItemStack item : items) {
+            if (item != null && !item.getType().isAir()) {
+                contents.add(item);
+            }
+        }
+        if (contents.isEmpty()) {
+            return true;
+        }
+
+        Block block = findPlace(location);
+        if (block == null) {
+            return false;
+        }
+
+        block.setType(Material.PLAYER_HEAD, false);
+        if (!(block.getState() instanceof Skull skull)) {
+            return false;
+        }
+        skull.setOwningPlayer(player);
+        PersistentDataContainer data = skull.getPersistentDataContainer();
+        data.set(ownerKey, PersistentDataType.STRING, player.getUniqueId().toString());
+        data.set(createdKey, PersistentDataType.LONG, DeathState.now());
+        data.set(itemsKey, PersistentDataType.BYTE_ARRAY, serialize(contents));
+        skull.update(true, false);
+
+        Messager.send(player, "death-chest.created", "x", String.valueOf(block.getX()),
+                "y", String.valueOf(block.getY()), "z", String.valueOf(block.getZ()));
+        return true;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onInteract(PlayerInteractEvent event) {
+        if (event.getAction() != Action.RIGHT_CLICK_BLOCK || event.getHand() != EquipmentSlot.HAND) {
+            return;
+        }
+        Skull skull = getDeathChest(event.getClickedBlock());
+        if (skull == null) {
+            return;
+        }
+
+        event.setCancelled(true);
+        open(event.getPlayer(), skull);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBreak(BlockBreakEvent event) {
+        Skull skull = getDeathChest(event.getBlock());
+        if (skull == null) {
+            return;
+        }
+
+        // 死亡箱不能被破坏，有权限的玩家改为打开，避免物品散落成实体
+        event.setCancelled(true);
+        open(event.getPlayer(), skull);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        event.blockList().removeIf(block -> getDeathChest(block) != null);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        event.blockList().removeIf(block -> getDeathChest(block) != null);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        if (event.getBlocks().stream().anyMatch(block -> getDeathChest(block) != null)) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        if (event.getBlocks().stream().anyMatch(block -> getDeathChest(block) != null)) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onFlow(BlockFromToEvent event) {
+        // 水和岩浆流入会冲掉头颅
+        if (getDeathChest(event.getToBlock()) != null) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPhysics(BlockPhysicsEvent event) {
+        if (getDeathChest(event.getBlock()) != null) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onDestroy(BlockDestroyEvent event) {
+        if (getDeathChest(event.getBlock()) != null) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClick(InventoryClickEvent event) {
+        if (event.getInventory().getHolder(false) instanceof Holder holder) {
+            markDirty(holder.location);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDrag(InventoryDragEvent event) {
+        if (event.getInventory().getHolder(false) instanceof Holder holder) {
+            markDirty(holder.location);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onClose(InventoryCloseEvent event) {
+        if (!(event.getInventory().getHolder(false) instanceof Holder holder)) {
+            return;
+        }
+        // 最后一名查看者关闭时才写回方块
+        if (event.getInventory().getViewers().size() > 1) {
+            return;
+        }
+        openChests.remove(holder.location);
+        dirtyChests.remove(holder.location);
+        save(holder.location, event.getInventory());
+    }
+
+    /**
+     * 安排在下一 tick 写回死亡箱，点击事件触发时物品栏还没有变化，同一 tick 内的多次修改只写回一次
+     */
+    private void markDirty(Location location) {
+        if (dirtyChests.add(location)) {
+            plugin.getServer().getScheduler().runTask(plugin, () -> flush(location));
+        }
+    }
+
+    /**
+     * 把正在查看的死亡箱写回方块，物品已被全部取走时关闭其他查看者的物品栏
+     */
+    private void flush(Location location) {
+        if (!dirtyChests.remove(location)) {
+            return;
+        }
+        Inventory inventory = openChests.get(location);
+        if (inventory == null || !save(location, inventory)) {
+            return;
+        }
+        // 方块已移除，继续放入的物品无法再写回
+        openChests.remove(location);
+        new ArrayList<>(inventory.getViewers()).forEach(viewer -> viewer.closeInventory());
+    }
+
+    /**
+     * 检查访问权限并打开死亡箱
+     */
+    private void open(Player player, Skull skull) {
+        PersistentDataContainer data = skull.getPersistentDataContainer();
+        String owner = data.get(ownerKey, PersistentDataType.STRING);
+        if (!player.getUniqueId().toString().equals(owner) && !player.hasPermission("miaomc.hardcore.admin")) {
+            long protectionSeconds = plugin.getSettings().deathChestProtection();
+            long unlockAt = data.getOrDefault(createdKey, PersistentDataType.LONG, 0L) + protectionSeconds;
+            long now = DeathState.now();
+            if (protectionSeconds == 0L || now < unlockAt) {
+                if (protectionSeconds == 0L) {
+                    Messager.send(player, "death-chest.owner-only");
+                } else {
+                    Messager.send(player, "death-chest.locked", "time", Messager.formatTime(player, unlockAt - now));
+                }
+                return;
+            }
+        }
+
+        Location location = skull.getLocation();
+        Inventory inventory = openChests.get(location);
+        if (inventory == null) {
+            Holder holder = new Holder(location);
+            String ownerName = owner == null ? "" : String.valueOf(Bukkit.getOfflinePlayer(UUID.fromString(owner)).getName());
+            inventory = Bukkit.createInventory(holder, INVENTORY_SIZE,
+                    Messager.template(player, "death-chest.title").renderBody("player", ownerName));
+            holder.inventory = inventory;
+            List<ItemStack> items = deserialize(data.get(itemsKey, PersistentDataType.BYTE_ARRAY));
+            if (items == null) {
+                // 数据损坏时不打开，避免关闭时用空的物品栏覆盖原有数据
+                return;
+            }
+            for (ItemStack item : items) {
+                inventory.addItem(item);
+            }
+            openChests.put(location, inventory);
+        }
+        player.openInventory(inventory);
+    }
+
+    /**
+     * 把物品栏中剩余的物品写回方块，全部取走时移除死亡箱
+     *
+     * @return 是否已移除死亡箱
+     */
+    private boolean save(Location location, Inventory inventory) {
+        Block block = location.getBlock();
+        if (!(block.getState() instanceof Skull skull) || !skull.getPersistentDataContainer().has(ownerKey)) {
+            return false;
+        }
+
+        List<ItemStack> remaining = new ArrayList<>();
+        for (ItemStack item : inventory.getContents()) {
+            if (item != null && !item.getType().isAir()) {
+                remaining.add(item);
+            }
+        }
+        if (remaining.isEmpty()) {
+            block.setType(Material.AIR);
+            return true;
+        }
+        skull.getPersistentDataContainer().set(itemsKey, PersistentDataType.BYTE_ARRAY, serialize(remaining));
+        skull.update(true, false);
+        return false;
+    }
+
+    /**
+     * 获取方块对应的死亡箱，先比较方块类型，只有玩家头颅才读取持久化数据
+     *
+     * @param block 方块
+     * @return 死亡箱的头颅状态，不是死亡箱时返回null
+     */
+    private Skull getDeathChest(Block block) {
+        if (block == null || block.getType() != Material.PLAYER_HEAD) {
+            return null;
+        }
+        BlockState state = block.getState();
+        return state instanceof Skull skull && skull.getPersistentDataContainer().has(ownerKey) ? skull : null;
+    }
+
+    /**
+     * 从死亡位置向上寻找可以放置死亡箱的方块，死亡位置在世界范围之外时放在边界上
+     * 跳过水和岩浆，死在水中时放在水面以上的第一个空位
+     */
+    private static Block findPlace(Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight() - 1;
+        int startY = Math.max(minY, Math.min(maxY, location.getBlockY()));
+        for (int y = startY; y <= Math.min(maxY, startY + SEARCH_HEIGHT); y++) {
+            Block block = world.getBlockAt(location.getBlockX(), y, location.getBlockZ());
+            if (block.isEmpty() || (block.isReplaceable() && !block.isLiquid())) {
+                return block;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] serialize(List<ItemStack> items) {
+        return ByteFrames.pack(items.stream().map(ItemStack::serializeAsBytes).toList());
+    }
+
+    /**
+     * 读取死亡箱中的物品
+     *
+     * @return 物品列表，数据损坏时返回null
+     */
+    private List<ItemStack> deserialize(byte[] data) {
+        try {
+            List<ItemStack> items = new ArrayList<>();
+            for (byte[] frame : ByteFrames.unpack(data)) {
+                items.add(ItemStack.deserializeBytes(frame));
+            }
+            return items;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "读取死亡箱物品时发生错误: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 死亡箱物品栏的持有者，用于在关闭时找回对应的方块
+     */
+    private static final class Holder implements InventoryHolder {
+        private final Location location;
+        private Inventory inventory;
+
+        private Holder(Location location) {
+            this.location = location;
+        }
+
+        @Override
+        public @NotNull Inventory getInventory() {
+            return inventory;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.miaomc.hardcore.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * 死亡位置，只保存世界名称而不引用 World 对象，世界卸载后不会被缓存持有
+ *
+ * @param world 世界名称
+ * @param x     X坐标
+ * @param y     Y坐标
+ * @param z     Z坐标
+ */
+public record DeathLocation(String world, double x, double y, double z) {
+
+    /**
+     * 从 Bukkit 位置创建
+     *
+     * @param location 位置
+     * @return 死亡位置，位置没有所在世界时返回null
+     */
+    public static DeathLocation of(Location location) {
+        World world = location.getWorld();
+        return world == null ? null : new DeathLocation(world.getName(), location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * 从死亡数据创建
+     *
+     * @param record 死亡数据
+     * @return 死亡位置，死亡数据不包含位置时返回null
+     */
+    public static DeathLocation of(DeathRecord record) {
+        return record.world() == null ? null : new DeathLocation(record.world(), record.x(), record.y(), record.z());
+    }
+
+    /**
+     * 转换为 Bukkit 位置
+     *
+     * @return 位置，世界不存在或未加载时返回null
+     */
+    public Location toLocation() {
+        World bukkitWorld = Bukkit.getWorld(world);
+        return bukkitWorld == null ? null : new Location(bukkitWorld, x, y, z);
+    }
+}
@@ -0,0 +1,86 @@
+package com.miaomc.hardcore.utils;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 一次死亡的详细数据，对应数据表中的类型化列
+ *
+ * @param deathAt    死亡时间的UNIX时间戳（秒）
+ * @param reviveAt   允许复活时间的UNIX时间戳（秒）
+ * @param deathCause 死亡消息
+ * @param world      死亡所在世界名称，未知时为null
+ * @param x          死亡位置X坐标
+ * @param y          死亡位置Y坐标
+ * @param z          死亡位置Z坐标
+ */
+public record DeathRecord(long deathAt, long reviveAt, String deathCause, String world, double x, double y, double z) {
+    private static final Pattern DEATH_AT = Pattern.compile("\"deathAt\"\\s*:\\s*(\\d+)");
+    private static final Pattern REVIVE_AT = Pattern.compile("\"reviveAt\"\\s*:\\s*(\\d+)");
+
+    /**
+     * 创建不包含位置信息的死亡数据
+     *
+     * @param deathAt    死亡时间
+     * @param reviveAt   复活时间
+     * @param deathCause 死亡消息
+     * @return 死亡数据
+     */
+    public static DeathRecord withoutLocation(long deathAt, long reviveAt, String deathCause) {
+        return new DeathRecord(deathAt, reviveAt, deathCause, null, 0D, 0D, 0D);
+    }
+
+    /**
+     * 解析旧版本写入的 death_data JSON
+     * 旧版本没有转义死亡消息中的引号，JSON 无法解析时仍会尝试读出时间字段
+     *
+     * @param json 死亡数据JSON字符串
+     * @return 解析得到的死亡数据，无法读出时间时对应字段为0
+     */
+    public static DeathRecord fromJson(String json) {
+        if (json == null || json.isEmpty()) {
+            return withoutLocation(0L, 0L, null);
+        }
+        try {
+            JsonObject deathData = JsonParser.parseString(json).getAsJsonObject();
+            String world = getString(deathData, "deathWorld");
+            double x = 0D;
+            double y = 0D;
+            double z = 0D;
+            if (deathData.has("deathLoc") && deathData.get("deathLoc").isJsonObject()) {
+                JsonObject location = deathData.getAsJsonObject("deathLoc");
+                x = getDouble(location, "x");
+                y = getDouble(location, "y");
+                z = getDouble(location, "z");
+            }
+            return new DeathRecord(getLong(deathData, "deathAt"), getLong(deathData, "reviveAt"),
+                    getString(deathData, "deathCaused"), world, x, y, z);
+        } catch (RuntimeException e) {
+            return withoutLocation(findLong(DEATH_AT, json), findLong(REVIVE_AT, json), null);
+        }
+    }
+
+    private static long getLong(JsonObject object, String key) {
+        JsonElement element = object.get(key);
+        return element != null && element.isJsonPrimitive() ? element.getAsLong() : 0L;
+    }
+
+    private static double getDouble(JsonObject object, String key) {
+        JsonElement element = object.get(key);
+        return element != null && element.isJsonPrimitive() ? element.getAsDouble() : 0D;
+    }
+
+    private static String getString(JsonObject object, String key) {
+        JsonElement element = object.get(key);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    private static long findLong(Pattern pattern, String json) {
+        Matcher matcher = pattern.matcher(json);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0L;
+    }
+}
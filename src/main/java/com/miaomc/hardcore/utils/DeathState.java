@@ -0,0 +1,93 @@
+package com.miaomc.hardcore.utils;
+
+/**
+ * 玩家最新一条死亡记录的不可变快照
+ * 热路径只读取该对象的字段，不再解析 JSON 或查询数据库
+ *
+ * @param id            数据库中该死亡记录的行ID，尚未写入数据库时为0
+ * @param recorded      是否存在有效的死亡数据（death_data 非空）
+ * @param deathAt       死亡时间的UNIX时间戳（秒）
+ * @param reviveAt      允许复活时间的UNIX时间戳（秒）
+ * @param revivalMethod 复活方式，为空表示尚未复活或重置
+ * @param handled       死亡记录是否已被处理（玩家已完成复活流程）
+ * @param location      死亡位置，未知时为null
+ */
+public record DeathState(long id, boolean recorded, long deathAt, long reviveAt, String revivalMethod, boolean handled,
+                         DeathLocation location) {
+
+    /**
+     * 没有任何死亡记录的玩家共享的状态实例
+     */
+    public static final DeathState NONE = new DeathState(0L, false, 0L, 0L, null, false, null);
+
+    /**
+     * 玩家是否已经通过某种方式复活或被重置
+     *
+     * @return 存在复活方式时返回true
+     */
+    public boolean isRevived() {
+        return revivalMethod != null && !revivalMethod.isEmpty();
+    }
+
+    /**
+     * 玩家在指定时间点是否处于死亡冷却阶段
+     *
+     * @param now 当前UNIX时间戳（秒）
+     * @return 处于冷却中返回true
+     */
+    public boolean isInCooldown(long now) {
+        return recorded && !isRevived() && now < reviveAt;
+    }
+
+    /**
+     * 获取指定时间点的剩余冷却时间
+     *
+     * @param now 当前UNIX时间戳（秒）
+     * @return 剩余秒数，不在冷却中时返回0
+     */
+    public long getTimeRemain(long now) {
+        return isInCooldown(now) ? reviveAt - now : 0L;
+    }
+
+    /**
+     * 是否存在未处理的死亡记录（有死亡数据但尚未完成复活流程）
+     *
+     * @return 存在未处理记录时返回true
+     */
+    public boolean isUnhandled() {
+        return recorded && !handled;
+    }
+
+    /**
+     * 生成更新了复活方式后的新状态
+     *
+     * @param method    复活方式
+     * @param isHandled 是否已处理
+     * @return 新的状态实例，没有死亡记录时返回自身
+     */
+    public DeathState withRevival(String method, boolean isHandled) {
+        if (!recorded) {
+            return this;
+        }
+        return new DeathState(id, true, deathAt, reviveAt, method, isHandled, location);
+    }
+
+    /**
+     * 生成带有数据库行ID的新状态
+     *
+     * @param rowId 数据库行ID
+     * @return 新的状态实例
+     */
+    public DeathState withId(long rowId) {
+        return new DeathState(rowId, recorded, deathAt, reviveAt, revivalMethod, handled, location);
+    }
+
+    /**
+     * 获取当前UNIX时间戳（秒）
+     *
+     * @return 当前秒级时间戳
+     */
+    public static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
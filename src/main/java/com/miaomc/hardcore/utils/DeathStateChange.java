@@ -0,0 +1,28 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 跨服同步时读取到的一条死亡记录变更
+ *
+ * @param playerId  玩家UUID
+ * @param state     变更后的死亡状态
+ * @param updatedAt 记录的更新时间（毫秒），由数据库时钟决定
+ */
+public record DeathStateChange(UUID playerId, DeathState state, long updatedAt) {
+
+    /**
+     * 计算读取这批变更之后的水位线，即最晚的更新时间；水位线不会后退
+     *
+     * @param changes   读取到的变更
+     * @param watermark 读取之前的水位线（毫秒）
+     * @return 新的水位线（毫秒）
+     */
+    public static long watermark(List<DeathStateChange> changes, long watermark) {
+        for (DeathStateChange change : changes) {
+            watermark = Math.max(watermark, change.updatedAt());
+        }
+        return watermark;
+    }
+}
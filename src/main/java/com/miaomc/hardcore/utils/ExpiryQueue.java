@@ -0,0 +1,133 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * 按触发时间排列的冷却到期条目，由 {@link ExpiryScheduler} 在主线程使用
+ * 同一玩家只保留最后一次登记的条目，被覆盖或取消的条目留在队列中，出队时直接跳过
+ */
+final class ExpiryQueue {
+    private static final long REMINDER_INTERVAL_SECONDS = 300L;
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<UUID, Entry> registered = new HashMap<>();
+    private long nextSequence;
+
+    /**
+     * 登记玩家的冷却到期时间，复活时间未变化时保留原有条目
+     *
+     * @param playerId 玩家UUID
+     * @param reviveAt 复活时间的UNIX时间戳（秒）
+     * @param now      当前UNIX时间戳（秒）
+     */
+    void register(UUID playerId, long reviveAt, long now) {
+        Entry current = registered.get(playerId);
+        if (current != null && current.reviveAt() == reviveAt) {
+            return;
+        }
+        schedule(playerId, reviveAt, now);
+    }
+
+    /**
+     * 登记玩家的下一次触发，覆盖之前的条目
+     *
+     * @param playerId 玩家UUID
+     * @param reviveAt 复活时间的UNIX时间戳（秒）
+     * @param now      当前UNIX时间戳（秒）
+     */
+    void schedule(UUID playerId, long reviveAt, long now) {
+        Entry entry = new Entry(playerId, reviveAt, nextFireAt(now, reviveAt), nextSequence++);
+        registered.put(playerId, entry);
+        queue.add(entry);
+        compactIfNeeded();
+    }
+
+    /**
+     * 取消玩家的条目
+     *
+     * @param playerId 玩家UUID
+     */
+    void unregister(UUID playerId) {
+        registered.remove(playerId);
+        compactIfNeeded();
+    }
+
+    /**
+     * 取出触发时间最早的已到期条目，取出后该玩家不再登记
+     *
+     * @param now 当前UNIX时间戳（秒）
+     * @return 已到期的条目，没有时返回null
+     */
+    Entry pollDue(long now) {
+        Entry entry;
+        while ((entry = queue.peek()) != null && entry.fireAt() <= now) {
+            queue.poll();
+            // 被重新登记或取消的条目直接跳过
+            if (registered.get(entry.playerId()) == entry) {
+                registered.remove(entry.playerId());
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 清空所有条目
+     */
+    void clear() {
+        queue.clear();
+        registered.clear();
+    }
+
+    /**
+     * 获取已登记的玩家数量
+     */
+    int size() {
+        return registered.size();
+    }
+
+    /**
+     * 获取队列中的条目数量，包括尚未清理的已失效条目
+     */
+    int queuedSize() {
+        return queue.size();
+    }
+
+    /**
+     * 冷却超过5分钟时每5分钟提醒一次，否则直接在冷却结束时触发
+     */
+    private static long nextFireAt(long now, long reviveAt) {
+        long reminderAt = now + REMINDER_INTERVAL_SECONDS;
+        return reminderAt < reviveAt ? reminderAt : reviveAt;
+    }
+
+    /**
+     * 被覆盖的条目过多时重建队列，避免频繁重新登记的玩家让队列无限增长
+     */
+    private void compactIfNeeded() {
+        if (queue.size() > registered.size() * 2 + 64) {
+            queue.clear();
+            queue.addAll(registered.values());
+        }
+    }
+
+    /**
+     * 一次到期触发
+     *
+     * @param playerId 玩家UUID
+     * @param reviveAt 登记时的复活时间
+     * @param fireAt   触发时间
+     * @param sequence 登记顺序，触发时间相同时先登记的先触发
+     */
+    record Entry(UUID playerId, long reviveAt, long fireAt, long sequence) implements Comparable<Entry> {
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Long.compare(fireAt, other.fireAt);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
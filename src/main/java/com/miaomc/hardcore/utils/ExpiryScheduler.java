@@ -0,0 +1,116 @@
+package com.miaomc.hardcore.utils;
+
+import com.miaomc.hardcore.HardCore;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.UUID;
+
+/**
+ * 全插件共用的死亡冷却到期调度器
+ * 所有在线冷却玩家的提醒和冷却结束通知按触发时间放入同一个优先队列，由一个每秒执行的任务推进，
+ * 每次推进只处理已到期的条目。所有方法都只应在主线程调用
+ */
+public class ExpiryScheduler implements Listener {
+    private static final long TICK_INTERVAL = 20L;
+
+    private final HardCore plugin;
+    private final ExpiryQueue queue = new ExpiryQueue();
+    private BukkitTask task;
+
+    /**
+     * 到期调度器构造函数
+     *
+     * @param plugin HardCore 主插件实例
+     */
+    public ExpiryScheduler(HardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 启动推进任务，重复调用不会创建多个任务
+     */
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::advance, TICK_INTERVAL, TICK_INTERVAL);
+        }
+    }
+
+    /**
+     * 停止推进任务并清空所有条目
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+    }
+
+    /**
+     * 登记玩家的冷却到期时间
+     * 同一玩家重复登记时只保留最后一次，之前的条目不会再触发
+     *
+     * @param playerId 玩家UUID
+     * @param reviveAt 复活时间的UNIX时间戳（秒）
+     */
+    public void register(UUID playerId, long reviveAt) {
+        queue.register(playerId, reviveAt, DeathState.now());
+    }
+
+    /**
+     * 取消玩家的所有提醒
+     *
+     * @param playerId 玩家UUID
+     */
+    public void unregister(UUID playerId) {
+        queue.unregister(playerId);
+    }
+
+    /**
+     * 获取已登记的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        unregister(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * 处理所有已到期的条目
+     */
+    private void advance() {
+        long now = DeathState.now();
+        ExpiryQueue.Entry entry;
+        while ((entry = queue.pollDue(now)) != null) {
+            fire(entry.playerId(), now);
+        }
+    }
+
+    private void fire(UUID playerId, long now) {
+        DeathState state = plugin.getStorage().getCooldownCache().get(playerId);
+        // 玩家已离线或已通过其他方式复活时不再提醒
+        if (state == null || !state.recorded() || state.isRevived()) {
+            return;
+        }
+
+        // 冷却时间可能已被修改，以缓存中的最新状态为准
+        long reviveAt = state.reviveAt();
+        if (now >= reviveAt) {
+            Messager.send(playerId, "cooldown.ended");
+            return;
+        }
+
+        // 发送剩余时间提醒，并登记下一次提醒
+        Messager.sendTime(playerId, "cooldown.reminder", state.getTimeRemain(now));
+        queue.schedule(playerId, reviveAt, now);
+    }
+}
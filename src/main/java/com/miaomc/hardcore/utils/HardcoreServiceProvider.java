@@ -0,0 +1,128 @@
+package com.miaomc.hardcore.utils;
+
+import com.miaomc.hardcore.HardCore;
+import com.miaomc.hardcore.api.HardcorePlayerReviveEvent;
+import com.miaomc.hardcore.api.HardcorePlayerState;
+import com.miaomc.hardcore.api.HardcoreService;
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.entity.Player;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link HardcoreService} 的实现，同时负责插件内部共用的复活流程
+ * 读取走存储层的冷却缓存，修改在主线程执行后交给写入队列，与命令的处理方式相同
+ */
+public class HardcoreServiceProvider implements HardcoreService {
+    private final HardCore plugin;
+
+    public HardcoreServiceProvider(HardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public Optional<HardcorePlayerState> getCachedState(UUID playerId) {
+        DeathState state = plugin.getStorage().getCooldownCache().get(playerId);
+        return state == null ? Optional.empty() : Optional.of(toState(playerId, state));
+    }
+
+    @Override
+    public boolean isInCooldown(UUID playerId) {
+        DeathState state = plugin.getStorage().getCooldownCache().get(playerId);
+        return state != null && state.isInCooldown(DeathState.now());
+    }
+
+    @Override
+    public long getTimeRemaining(UUID playerId) {
+        DeathState state = plugin.getStorage().getCooldownCache().get(playerId);
+        return state == null ? 0L : state.getTimeRemain(DeathState.now());
+    }
+
+    @Override
+    public CompletableFuture<HardcorePlayerState> getState(UUID playerId) {
+        return plugin.getStorage().getDeathStateAsync(playerId).thenApply(state -> toState(playerId, state));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> revive(UUID playerId, String revivalMethod) {
+        return plugin.getStorage().getDeathStateAsync(playerId).thenApplyAsync(state -> {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player == null || !state.isUnhandled()) {
+                return false;
+            }
+            revive(player, revivalMethod, null, true);
+            return true;
+        }, plugin.getMainThreadExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> resetCooldown(UUID playerId, String revivalMethod) {
+        return plugin.getStorage().getDeathStateAsync(playerId).thenApplyAsync(state -> {
+            if (!state.isUnhandled()) {
+                return false;
+            }
+            plugin.getStorage().updateRevivalMethod(playerId, revivalMethod, false);
+            Player player = Bukkit.getPlayer(playerId);
+            if (player != null) {
+                Messager.send(player, "reset.notify");
+            }
+            return true;
+        }, plugin.getMainThreadExecutor());
+    }
+
+    /**
+     * 执行玩家复活流程并触发 {@link HardcorePlayerReviveEvent}，只能在主线程调用
+     *
+     * @param player        玩家
+     * @param revivalMethod 记录到数据库的复活方式
+     * @param customMessage 额外发送给玩家的复活方式消息，为null时不发送
+     * @param isHandled     是否标记为已处理
+     */
+    public void revive(Player player, String revivalMethod, String customMessage, boolean isHandled) {
+        UUID playerUUID = player.getUniqueId();
+
+        // 执行重生流程
+        for (String cmd : plugin.getSettings().reviveProcess()) {
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), cmd.replace("{player}", player.getName()));
+        }
+
+        // 设置生存模式
+        player.setGameMode(GameMode.SURVIVAL);
+
+        // 安全地恢复玩家血量和饱食度到满值
+        player.setHealth(20.0); // 默认最大生命值
+        player.setFoodLevel(20);
+        player.setSaturation(20f); // 设置饱和度满值
+
+        // 更新数据库
+        plugin.getStorage().updateRevivalMethod(playerUUID, revivalMethod, isHandled);
+
+        // 发送复活消息
+        Messager.sendRevivalMessage(playerUUID);
+
+        // 如果有自定义消息，发送复活方式消息
+        if (customMessage != null) {
+            Messager.sendRevivalMethodMessage(playerUUID, customMessage);
+        }
+
+        // 复活流程在主线程执行，只读取缓存；状态未加载时按没有记录通知
+        DeathState state = plugin.getStorage().getDeathState(playerUUID);
+        plugin.getServer().getPluginManager().callEvent(new HardcorePlayerReviveEvent(player,
+                toState(playerUUID, state != null ? state : DeathState.NONE), revivalMethod));
+    }
+
+    /**
+     * 把内部的死亡状态转换为对外的状态快照
+     *
+     * @param playerId 玩家的UUID
+     * @param state    死亡状态
+     * @return 状态快照
+     */
+    public static HardcorePlayerState toState(UUID playerId, DeathState state) {
+        return new HardcorePlayerState(playerId, state.recorded(), state.deathAt(), state.reviveAt(),
+                state.revivalMethod(), state.handled());
+    }
+}
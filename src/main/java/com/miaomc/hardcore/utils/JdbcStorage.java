@@ -0,0 +1,1677 @@
+package com.miaomc.hardcore.utils;
+
+import com.miaomc.hardcore.HardCore;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * 基于 JDBC 和 HikariCP 的存储后端基类
+ * 子类只需提供连接池配置和 SQL 方言，查询、缓存和批量写入逻辑由基类统一实现
+ */
+public abstract class JdbcStorage implements Storage {
+    protected final HardCore plugin;
+    protected final String tablename;
+    protected final String serverName;
+    private final SqlDialect dialect;
+    private HikariDataSource dataSource;
+    private HikariDataSource replicaSource;
+    // 最近写入过的玩家及其写入时间（毫秒），在一致性窗口内这些玩家的读取走主库，避免读到副本上尚未同步的旧数据
+    private final Map<UUID, Long> recentWrites = new ConcurrentHashMap<>();
+    private final long replicaConsistencyWindow;
+    private final CooldownCache cooldownCache = new CooldownCache();
+    private final StorageMetrics metrics = new StorageMetrics();
+    private final PlayerNameIndex playerNames = new PlayerNameIndex();
+    private final Leaderboards leaderboards = new Leaderboards();
+    private final String playerTable;
+    private final String statsTable;
+    private final String causeStatsTable;
+    private final String upsertDeathStatsSql;
+    private final String upsertRevivalStatsSql;
+    private final String upsertCauseStatsSql;
+    private final String upsertPlayerSql;
+    private final WriteQueue writeQueue;
+    private final long writeShutdownTimeout;
+    private final CircuitBreaker circuitBreaker;
+    private final WriteJournal journal;
+    private final String journalTable;
+    private final String upsertJournalSql;
+    private final long journalReplayTicks;
+    private BukkitTask journalReplayTask;
+    private final SchemaMigrator migrator;
+    // 本次运行的子服ID，向子服版本表上报表结构版本时使用
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicBoolean migrating = new AtomicBoolean();
+    private BukkitTask migrationTask;
+    // 后台回填尚未完成，读写玩家的最新记录之前先回填该玩家的旧记录
+    private volatile boolean legacyRowsPending;
+    // 字符串UUID列尚未删除且没有默认值，插入记录时需要同时写入
+    private volatile boolean writeLegacyUuid;
+    // 写入本地日志但尚未重放到数据库的玩家状态，数据库不可用时读取这些玩家的状态以此为准
+    private final Map<UUID, DeathState> journaledStates = new ConcurrentHashMap<>();
+
+    // 常用SQL语句作为常量，减少字符串拼接和重复
+    static final String SQL_SELECT_LATEST_DEATH =
+            "SELECT id, death_at, revive_at, revival_method, handled, death_world, death_x, death_y, death_z FROM `%s` " +
+                    "WHERE uuid_bin = ? AND server_name = ? ORDER BY update_date DESC, id DESC LIMIT 1";
+    static final String SQL_INSERT_DEATH_DATA =
+            "INSERT INTO `%s` (uuid_bin, server_name, death_at, revive_at, death_cause, death_world, death_x, death_y, death_z, revival_method, handled, cause_key) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // 删除字符串UUID列之前，无法为该列设置默认值的数据库在插入时同时写入字符串UUID
+    private static final String SQL_INSERT_DEATH_DATA_LEGACY =
+            "INSERT INTO `%s` (uuid_bin, server_name, death_at, revive_at, death_cause, death_world, death_x, death_y, death_z, revival_method, handled, cause_key, uuid) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_SELECT_CHANGES =
+            "SELECT id, uuid_bin, death_at, revive_at, revival_method, handled, death_world, death_x, death_y, death_z, update_date FROM `%s` " +
+                    "WHERE server_name = ? AND update_date > ? ORDER BY update_date, id";
+    // 显式更新 update_date，不依赖 MySQL 的 ON UPDATE 行为
+    private static final String SQL_UPDATE_REVIVAL_METHOD =
+            "UPDATE `%s` SET revival_method = ?, handled = ?, update_date = CURRENT_TIMESTAMP";
+    private static final String SQL_UPDATE_DEATH_DATA =
+            "UPDATE `%s` SET death_at = ?, revive_at = ?, death_cause = ?, update_date = CURRENT_TIMESTAMP";
+    // 已知行ID时直接按主键更新，只锁定一行
+    private static final String SQL_WHERE_ID = " WHERE id = ?";
+    // 行ID未知时（例如离线玩家）通过索引查出最新记录的ID再更新
+    private static final String SQL_WHERE_LATEST =
+            " WHERE id = (SELECT id FROM (SELECT id FROM `%1$s` WHERE uuid_bin = ? AND server_name = ? ORDER BY update_date DESC, id DESC LIMIT 1) latest)";
+    private static final String SQL_SELECT_PLAYER_NAMES = "SELECT uuid, name, last_seen FROM `%s`";
+    private static final String SQL_SELECT_PLAYER_BY_NAME =
+            "SELECT uuid, name, last_seen FROM `%s` WHERE name_lower = ? ORDER BY last_seen DESC LIMIT 1";
+    // 已被同一玩家更新的记录取代、且超过保留期限的历史记录
+    private static final String SQL_SELECT_SUPERSEDED =
+            "SELECT h.id FROM `%1$s` h WHERE h.server_name = ? AND h.id > ? AND h.update_date < ? AND h.uuid_bin IS NOT NULL " +
+                    "AND EXISTS (SELECT 1 FROM `%1$s` n WHERE n.uuid_bin = h.uuid_bin AND n.server_name = h.server_name " +
+                    "AND (n.update_date > h.update_date OR (n.update_date = h.update_date AND n.id > h.id))) " +
+                    "ORDER BY h.id LIMIT ?";
+    // 每个玩家在子服的最新一条、且尚未复活的死亡记录，批量操作在此基础上追加筛选条件
+    private static final String SQL_BULK_TARGETS =
+            "SELECT DISTINCT h.id, h.uuid_bin FROM `%1$s` h WHERE h.server_name = ? AND h.death_at IS NOT NULL " +
+                    "AND h.uuid_bin IS NOT NULL AND (h.revival_method IS NULL OR h.revival_method = '') " +
+                    "AND NOT EXISTS (SELECT 1 FROM `%1$s` n WHERE n.uuid_bin = h.uuid_bin AND n.server_name = h.server_name " +
+                    "AND (n.update_date > h.update_date OR (n.update_date = h.update_date AND n.id > h.id)))";
+    // MySQL 不允许在 UPDATE 的子查询中直接读取目标表，需要再包一层派生表，DISTINCT 防止优化器把派生表合并回外层查询
+    private static final String SQL_WHERE_BULK_TARGETS = " WHERE id IN (SELECT id FROM (%s) targets)";
+    // 死亡时累加次数并用本次存活时间更新最长存活时间，复活时记录存活起点；冲突时的更新子句按顺序求值，alive_since 需最后清零
+    private static final String SQL_INSERT_DEATH_STATS =
+            "INSERT INTO `%s` (uuid, server_name, deaths, longest_survival, alive_since) VALUES (?, ?, 1, 0, 0)";
+    private static final String SQL_UPDATE_DEATH_STATS =
+            "longest_survival = CASE WHEN alive_since > 0 AND ? - alive_since > longest_survival THEN ? - alive_since " +
+                    "ELSE longest_survival END, deaths = deaths + 1, alive_since = 0";
+    private static final String SQL_INSERT_REVIVAL_STATS =
+            "INSERT INTO `%s` (uuid, server_name, deaths, longest_survival, alive_since) VALUES (?, ?, 0, 0, ?)";
+    private static final String SQL_UPDATE_REVIVAL_STATS = "alive_since = ?";
+    private static final String SQL_INSERT_CAUSE_STATS = "INSERT INTO `%s` (server_name, cause, deaths) VALUES (?, ?, 1)";
+    private static final String SQL_UPDATE_CAUSE_STATS = "deaths = deaths + 1";
+    private static final String SQL_SELECT_PLAYER_STATS =
+            "SELECT deaths, longest_survival, alive_since FROM `%s` WHERE uuid = ? AND server_name = ?";
+    private static final String SQL_SELECT_TOP_PLAYERS =
+            "SELECT s.uuid, s.%2$s AS value, p.name FROM `%1$s` s LEFT JOIN `%3$s` p ON p.uuid = s.uuid " +
+                    "WHERE s.server_name = ? AND s.%2$s > 0 ORDER BY s.%2$s DESC LIMIT ?";
+    private static final String SQL_SELECT_JOURNAL_PROGRESS = "SELECT last_seq FROM `%s` WHERE journal_id = ?";
+    private static final String SQL_DELETE_JOURNAL_PROGRESS = "DELETE FROM `%s` WHERE journal_id = ?";
+    private static final String SQL_SELECT_TOP_CAUSES =
+            "SELECT cause, deaths FROM `%s` WHERE server_name = ? AND deaths > 0 ORDER BY deaths DESC LIMIT ?";
+    private static final int CAUSE_KEY_MAX_LENGTH = 64;
+    private static final String ARCHIVE_COLUMNS = "id, uuid, server_name, death_at, revive_at, death_cause, death_world, " +
+            "death_x, death_y, death_z, death_data, revival_method, handled, update_date, create_date, cause_key";
+    // 主表中与 ARCHIVE_COLUMNS 对应的列
+    private static final String ARCHIVE_SOURCE_COLUMNS = "id, uuid_bin, server_name, death_at, revive_at, death_cause, death_world, " +
+            "death_x, death_y, death_z, death_data, revival_method, handled, update_date, create_date, cause_key";
+    // 后台迁移的检查间隔，单位tick
+    private static final long MIGRATION_INTERVAL_TICKS = 1200L;
+    private static final int DEATH_CAUSE_MAX_LENGTH = 512;
+
+    /**
+     * JDBC 存储后端构造函数
+     *
+     * @param plugin  HardCore 主插件实例，用于访问配置和日志系统
+     * @param dialect 数据库使用的 SQL 方言
+     */
+    protected JdbcStorage(HardCore plugin, SqlDialect dialect) {
+        this.plugin = plugin;
+        this.dialect = dialect;
+        FileConfiguration config = plugin.getConfig();
+        this.tablename = config.getString("database.tablename");
+        this.serverName = config.getString("settings.serverName");
+        this.playerTable = SchemaMigrator.playerTableName(tablename);
+        this.upsertPlayerSql = dialect.upsert(playerTable, "uuid", List.of("uuid", "name", "name_lower", "last_seen"));
+        this.statsTable = SchemaMigrator.statsTableName(tablename);
+        this.causeStatsTable = SchemaMigrator.causeStatsTableName(tablename);
+        this.upsertDeathStatsSql = String.format(SQL_INSERT_DEATH_STATS, statsTable)
+                + dialect.onConflictUpdate("uuid, server_name") + SQL_UPDATE_DEATH_STATS;
+        this.upsertRevivalStatsSql = String.format(SQL_INSERT_REVIVAL_STATS, statsTable)
+                + dialect.onConflictUpdate("uuid, server_name") + SQL_UPDATE_REVIVAL_STATS;
+        this.upsertCauseStatsSql = String.format(SQL_INSERT_CAUSE_STATS, causeStatsTable)
+                + dialect.onConflictUpdate("server_name, cause") + SQL_UPDATE_CAUSE_STATS;
+        this.writeQueue = new WriteQueue(plugin.getLogger(),
+                config.getInt("database.writeQueue.capacity", 1024),
+                config.getInt("database.writeQueue.batchSize", 100),
+                this::executeWriteBatch);
+        this.writeShutdownTimeout = config.getLong("database.writeQueue.shutdownTimeout", 10000L);
+        this.replicaConsistencyWindow = Math.max(0L, config.getLong("database.replica.consistencyWindow", 5000L));
+        this.circuitBreaker = new CircuitBreaker(plugin.getLogger(),
+                config.getInt("database.circuitBreaker.failureThreshold", 3),
+                Math.max(1L, config.getLong("database.circuitBreaker.openDuration", 30L)) * 1000L);
+        this.journal = new WriteJournal(plugin.getLogger(), new File(plugin.getDataFolder(), "journal"));
+        this.journalTable = SchemaMigrator.journalTableName(tablename);
+        this.upsertJournalSql = dialect.upsert(journalTable, "journal_id", List.of("journal_id", "last_seq"));
+        this.journalReplayTicks = Math.max(1L, config.getLong("database.circuitBreaker.replayInterval", 10L)) * 20L;
+        this.migrator = new SchemaMigrator(plugin.getLogger(), tablename, dialect);
+    }
+
+    /**
+     * 初始化并连接到数据库连接池
+     */
+    @Override
+    public synchronized void connect() {
+        // 数据库暂时无法连接时写入队列也要启动，写入会先进入本地日志
+        writeQueue.start();
+        if (journalReplayTask == null) {
+            journalReplayTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+                    this::replayPendingJournal, journalReplayTicks, journalReplayTicks);
+        }
+        try {
+            if (dataSource != null && !dataSource.isClosed()) {
+                return;
+            }
+
+            HikariConfig config = createHikariConfig();
+            dataSource = new HikariDataSource(config);
+            plugin.getLogger().info("成功连接到数据库");
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "无法连接到数据库: " + e.getMessage());
+        }
+        connectReplica();
+    }
+
+    /**
+     * 连接只读副本，连接失败时所有读取都使用主库
+     */
+    private void connectReplica() {
+        if (replicaSource != null && !replicaSource.isClosed()) {
+            return;
+        }
+        try {
+            HikariConfig config = createReplicaConfig();
+            if (config != null) {
+                replicaSource = new HikariDataSource(config);
+                plugin.getLogger().info("成功连接到只读副本");
+            }
+        } catch (Exception e) {
+            replicaSource = null;
+            plugin.getLogger().log(Level.WARNING, "无法连接到只读副本，读取将使用主库: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 创建HikariCP配置
+     *
+     * @return 配置好的HikariConfig对象
+     */
+    protected abstract HikariConfig createHikariConfig();
+
+    /**
+     * 创建只读副本的HikariCP配置
+     *
+     * @return 配置好的HikariConfig对象，不支持或未启用只读副本时返回null
+     */
+    protected HikariConfig createReplicaConfig() {
+        return null;
+    }
+
+    /**
+     * 获取数据库连接
+     * 熔断期间直接抛出异常，不等待连接超时；获取连接的结果会报告给熔断器
+     *
+     * @return 数据库连接对象
+     * @throws SQLException 如果获取连接失败或处于熔断期间
+     */
+    private Connection getConnection() throws SQLException {
+        if (!circuitBreaker.allowRequest()) {
+            throw new CircuitOpenException();
+        }
+        try {
+            if (dataSource == null || dataSource.isClosed()) {
+                connect();
+            }
+            HikariDataSource source = dataSource;
+            if (source == null) {
+                throw new SQLTransientConnectionException("数据库连接池未初始化");
+            }
+            Connection connection = source.getConnection();
+            circuitBreaker.recordSuccess();
+            return connection;
+        } catch (SQLException e) {
+            circuitBreaker.recordFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * 获取用于只读查询的数据库连接
+     * 启用只读副本时优先使用副本；玩家在一致性窗口内刚写入过数据时使用主库，保证读到自己的写入
+     *
+     * @param playerId 查询涉及的玩家，为null表示与单个玩家无关的查询
+     * @return 数据库连接对象
+     * @throws SQLException 如果获取连接失败
+     */
+    private Connection getReadConnection(UUID playerId) throws SQLException {
+        HikariDataSource replica = replicaSource;
+        if (replica == null || replica.isClosed() || (playerId != null && isRecentlyWritten(playerId))) {
+            return getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "无法从只读副本获取连接，改用主库: " + e.getMessage());
+            return getConnection();
+        }
+    }
+
+    private boolean isRecentlyWritten(UUID playerId) {
+        Long writtenAt = recentWrites.get(playerId);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writtenAt < replicaConsistencyWindow) {
+            return true;
+        }
+        recentWrites.remove(playerId, writtenAt);
+        return false;
+    }
+
+    /**
+     * 记录玩家刚写入过数据，只在启用只读副本时记录
+     * 加入写入队列和事务提交时各记录一次，一致性窗口从提交时开始计算
+     */
+    private void markWritten(UUID playerId) {
+        if (replicaSource != null) {
+            recentWrites.put(playerId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 等待写入队列完成后关闭数据库连接池
+     */
+    @Override
+    public void disconnect() {
+        if (journalReplayTask != null) {
+            journalReplayTask.cancel();
+            journalReplayTask = null;
+        }
+        if (migrationTask != null) {
+            migrationTask.cancel();
+            migrationTask = null;
+        }
+        writeQueue.shutdown(writeShutdownTimeout);
+        saveRemainingWrites();
+        journal.close();
+        if (replicaSource != null && !replicaSource.isClosed()) {
+            replicaSource.close();
+        }
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * 等待写入队列超时后，把仍未写入的操作追加到本地日志，下次启动时重放
+     * 日志的锁会等待写入线程正在执行的批次结束，因此追加的批次排在它之后
+     */
+    private void saveRemainingWrites() {
+        List<PendingWrite> remaining = writeQueue.drainRemaining();
+        if (remaining.isEmpty()) {
+            return;
+        }
+        try {
+            journal.append(WriteQueue.coalesce(remaining));
+            plugin.getLogger().warning("已将 " + remaining.size() + " 条未写入数据库的数据保存到本地写入日志，下次启动时重放");
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "保存未写入的数据到本地写入日志时发生错误，" + remaining.size() + " 条写入丢失: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 执行数据表迁移并验证表结构是否符合要求
+     *
+     * @return 表结构是否有效，如果无效且无法修复则返回false
+     */
+    @Override
+    public boolean validateDatabase() {
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.VALIDATE);
+        try (Connection connection = timer.acquired(getConnection())) {
+            // 创建数据表或将已有数据表迁移到最新版本，需要逐行处理已有记录的迁移交给后台任务
+            if (!migrator.migrate(connection)) {
+                return false;
+            }
+            if (!refreshMigrationState(connection)) {
+                startMigrationTask();
+            }
+
+            // 检查列是否存在和类型是否正确
+            DatabaseMetaData metaData = connection.getMetaData();
+            String[] requiredColumns = {"id", "uuid_bin", "server_name", "death_at", "revive_at", "death_cause", "cause_key",
+                    "death_world", "death_x", "death_y", "death_z", "revival_method", "handled", "update_date", "create_date"};
+            for (String columnName : requiredColumns) {
+                try (ResultSet columns = metaData.getColumns(null, null, tablename, columnName)) {
+                    if (!columns.next()) {
+                        plugin.getLogger().warning("数据表 " + tablename + " 中缺少列: " + columnName);
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "验证数据表时发生错误: " + e.getMessage());
+            return false;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * 读取已执行的迁移，更新读写方式并上报本子服看到的表结构版本
+     *
+     * @param connection 数据库连接
+     * @return 是否所有迁移都已执行
+     * @throws SQLException 如果查询失败
+     */
+    private boolean refreshMigrationState(Connection connection) throws SQLException {
+        Set<Integer> applied = migrator.getAppliedVersions(connection);
+        legacyRowsPending = !applied.contains(SchemaMigrator.BACKFILL_VERSION);
+        writeLegacyUuid = migrator.requiresLegacyUuid(connection);
+        migrator.reportNode(connection, nodeId, serverName, SchemaMigrator.observedVersion(applied));
+        return applied.contains(SchemaMigrator.CONTRACT_VERSION);
+    }
+
+    /**
+     * 定期在后台执行需要逐行处理已有记录的迁移，全部完成后停止
+     */
+    private synchronized void startMigrationTask() {
+        if (migrationTask != null) {
+            return;
+        }
+        plugin.getLogger().info("数据表仍有迁移需要在后台执行，期间插件正常运行");
+        migrationTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin,
+                this::runOnlineMigrations, 20L, MIGRATION_INTERVAL_TICKS);
+    }
+
+    private void runOnlineMigrations() {
+        if (!migrating.compareAndSet(false, true)) {
+            return;
+        }
+        try (Connection connection = getConnection()) {
+            migrator.migrateOnline(connection);
+            if (refreshMigrationState(connection)) {
+                plugin.getLogger().info("数据表后台迁移已全部完成");
+                synchronized (this) {
+                    if (migrationTask != null) {
+                        migrationTask.cancel();
+                        migrationTask = null;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            if (!(e instanceof CircuitOpenException)) {
+                plugin.getLogger().log(Level.SEVERE, "执行数据表后台迁移时发生错误: " + e.getMessage());
+            }
+        } finally {
+            migrating.set(false);
+        }
+    }
+
+    /**
+     * 后台回填完成前，先回填玩家尚未回填的旧记录，之后按二进制UUID即可读到
+     */
+    private void backfillLegacyRows(Connection connection, UUID playerId) throws SQLException {
+        if (legacyRowsPending) {
+            migrator.backfillPlayer(connection, playerId);
+        }
+    }
+
+    /**
+     * 获取缓存中玩家最新的死亡状态
+     * 只读取内存缓存，不产生任何数据库访问，可以在主线程调用
+     *
+     * @param playerId 玩家的UUID
+     * @return 玩家的死亡状态，尚未加载到缓存时返回null
+     */
+    @Override
+    public DeathState getDeathState(UUID playerId) {
+        return cooldownCache.get(playerId);
+    }
+
+    /**
+     * 异步获取玩家最新的死亡状态
+     * 缓存命中时直接返回已完成的结果，否则在异步线程中查询
+     *
+     * @param playerId 玩家的UUID
+     * @return 玩家的死亡状态
+     */
+    @Override
+    public CompletableFuture<DeathState> getDeathStateAsync(UUID playerId) {
+        DeathState cached = cooldownCache.get(playerId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            DeathState state = loadDeathState(playerId);
+            // 只缓存在线玩家，避免离线玩家的状态残留在缓存中
+            if (plugin.getServer().getPlayer(playerId) != null) {
+                cooldownCache.put(playerId, state);
+            }
+            return state;
+        }, plugin.getAsyncExecutor());
+    }
+
+    /**
+     * 从数据库加载玩家最新的死亡状态（同步执行，不经过缓存）
+     *
+     * @param playerId 玩家的UUID
+     * @return 玩家的死亡状态，没有记录或查询失败时返回 {@link DeathState#NONE}
+     */
+    @Override
+    public DeathState loadDeathState(UUID playerId) {
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.LOAD_DEATH_STATE);
+        // 回填旧记录需要写入，后台回填完成前读取主库
+        try (Connection connection = timer.acquired(legacyRowsPending ? getConnection() : getReadConnection(playerId));
+             PreparedStatement statement = connection.prepareStatement(
+                     String.format(SQL_SELECT_LATEST_DEATH, tablename))) {
+
+            backfillLegacyRows(connection, playerId);
+            statement.setBytes(1, UuidUtil.toBytes(playerId));
+            statement.setString(2, serverName);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return readDeathState(resultSet);
+                }
+            }
+        } catch (SQLException e) {
+            if (!(e instanceof CircuitOpenException)) {
+                plugin.getLogger().log(Level.SEVERE, "检查玩家冷却时间时发生错误: " + e.getMessage());
+            }
+            // 数据库不可用时，写入过本地日志的玩家以本地状态为准
+            return journaledStates.getOrDefault(playerId, DeathState.NONE);
+        } finally {
+            timer.stop();
+        }
+
+        return DeathState.NONE;
+    }
+
+    /**
+     * 查询本服在某个时间之后变更的所有死亡记录
+     * 使用 (server_name, update_date) 索引做一次范围扫描，结果按更新时间升序排列
+     *
+     * @param sinceMillis 起始时间（不包含），毫秒
+     * @return 变更列表，查询失败时返回空列表
+     */
+    @Override
+    public List<DeathStateChange> loadChangesSince(long sinceMillis) {
+        List<DeathStateChange> changes = new ArrayList<>();
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.SYNC_CHANGES);
+        try (Connection connection = timer.acquired(getConnection());
+             PreparedStatement statement = connection.prepareStatement(String.format(SQL_SELECT_CHANGES, tablename))) {
+
+            statement.setString(1, serverName);
+            dialect.setTimestamp(statement, 2, sinceMillis);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    // 没有触发器时旧版本插件写入的记录在回填前没有二进制UUID
+                    byte[] uuid = resultSet.getBytes("uuid_bin");
+                    if (uuid != null) {
+                        changes.add(new DeathStateChange(UuidUtil.fromBytes(uuid),
+                                readDeathState(resultSet), resultSet.getTimestamp("update_date").getTime()));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            if (!(e instanceof CircuitOpenException)) {
+                plugin.getLogger().log(Level.SEVERE, "同步其他子服的死亡数据时发生错误: " + e.getMessage());
+            }
+        } finally {
+            timer.stop();
+        }
+        return changes;
+    }
+
+    /**
+     * 获取数据库的当前时间，跨服同步以数据库时钟为准，不受各子服时钟偏差影响
+     *
+     * @return 数据库当前时间（毫秒），查询失败时返回本地时间
+     */
+    @Override
+    public long currentDatabaseTime() {
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+            if (resultSet.next()) {
+                return resultSet.getTimestamp(1).getTime();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "获取数据库时间时发生错误: " + e.getMessage());
+        }
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * 将玩家的死亡状态加载到缓存中，通常在玩家进入服务器时调用
+     *
+     * @param playerId 玩家的UUID
+     * @return 加载到的死亡状态
+     */
+    @Override
+    public DeathState cacheDeathState(UUID playerId) {
+        DeathState state = loadDeathState(playerId);
+        cooldownCache.put(playerId, state);
+        return state;
+    }
+
+    /**
+     * 检查玩家是否处于死亡冷却阶段（保持向后兼容）
+     *
+     * @param playerId 玩家的UUID
+     * @return 包含状态和剩余时间的Map，格式为 {status: Boolean, timeRemain: Long}
+     * @deprecated 请使用 {@link com.miaomc.hardcore.api.HardcoreService#isInCooldown(UUID)}，只读取缓存，不会阻塞主线程
+     */
+    @Deprecated
+    @SuppressWarnings("unused")
+    public Map<String, Object> isPlayerInCooldown(UUID playerId) {
+        Map<String, Object> result = new HashMap<>();
+        long now = DeathState.now();
+        DeathState state = getDeathState(playerId);
+        boolean inCooldown = state != null && state.isInCooldown(now);
+        result.put("status", inCooldown);
+        if (inCooldown) {
+            result.put("timeRemain", state.getTimeRemain(now));
+        }
+        return result;
+    }
+
+    /**
+     * 从查询结果的当前行读取死亡状态
+     * death_at 为空表示该记录没有死亡数据
+     *
+     * @param resultSet 查询结果，需包含 id, death_at, revive_at, revival_method, handled 和死亡位置列
+     * @return 死亡状态
+     * @throws SQLException 如果读取失败
+     */
+    protected DeathState readDeathState(ResultSet resultSet) throws SQLException {
+        long deathAt = resultSet.getLong("death_at");
+        boolean recorded = !resultSet.wasNull();
+        String world = resultSet.getString("death_world");
+        DeathLocation location = world == null ? null : new DeathLocation(world, resultSet.getDouble("death_x"),
+                resultSet.getDouble("death_y"), resultSet.getDouble("death_z"));
+        return new DeathState(resultSet.getLong("id"), recorded, deathAt, resultSet.getLong("revive_at"),
+                resultSet.getString("revival_method"), resultSet.getBoolean("handled"), location);
+    }
+
+    /**
+     * 异步插入玩家死亡数据
+     *
+     * @param playerId      玩家的UUID
+     * @param record        死亡的详细数据
+     * @param revivalMethod 复活方法，如果为null则表示玩家处于死亡冷却状态
+     * @param causeKey      用于死亡原因排行的分类，为null时不计入死亡原因统计
+     */
+    @Override
+    public void insertPlayerDeathData(final UUID playerId, final DeathRecord record, final String revivalMethod,
+                                      final String causeKey) {
+        // 先更新缓存，保证后续读取立即看到最新状态
+        DeathState state = new DeathState(0L, true, record.deathAt(), record.reviveAt(), revivalMethod, false,
+                DeathLocation.of(record));
+        cooldownCache.put(playerId, state);
+        leaderboards.recordDeath(playerId, record.deathAt());
+        markWritten(playerId);
+
+        writeQueue.enqueue(new PendingWrite.InsertDeath(playerId, state, record, causeKey));
+    }
+
+    /**
+     * 异步插入玩家死亡数据（保持向后兼容）
+     *
+     * @param playerId      玩家的UUID
+     * @param deathData     死亡数据的JSON字符串，包含deathAt, reviveAt, deathCaused
+     * @param revivalMethod 复活方法，如果为null则表示玩家处于死亡冷却状态
+     * @deprecated 请使用 {@link #insertPlayerDeathData(UUID, DeathRecord, String)}
+     */
+    @Deprecated
+    public void insertPlayerDeathData(final UUID playerId, final String deathData, final String revivalMethod) {
+        insertPlayerDeathData(playerId, DeathRecord.fromJson(deathData), revivalMethod);
+    }
+
+    /**
+     * 异步更新玩家冷却时间
+     *
+     * @param playerId    玩家的UUID
+     * @param deathAt     玩家死亡时间的UNIX时间戳（秒）
+     * @param reviveAt    玩家复活时间的UNIX时间戳（秒）
+     * @param deathCaused 导致玩家死亡的原因
+     */
+    @Override
+    public void updatePlayerCooldown(final UUID playerId, final long deathAt, final long reviveAt, final String deathCaused) {
+        long rowId = cooldownCache.getRowId(playerId);
+        cooldownCache.updateDeathTime(playerId, deathAt, reviveAt);
+        markWritten(playerId);
+
+        writeQueue.enqueue(new PendingWrite.UpdateDeathData(playerId, rowId, deathAt, reviveAt, deathCaused));
+    }
+
+    /**
+     * 在写入线程中执行一个合并后的写入批次
+     * 数据库不可用时写入本地日志；本地日志中还有未重放的批次时先重放，重放未完成则继续追加到日志，
+     * 保证写入数据库的顺序与入队顺序一致
+     *
+     * @param batch 合并后的写入批次
+     * @throws SQLException 如果写入失败且无法写入本地日志
+     */
+    private void executeWriteBatch(WriteQueue.WriteBatch batch) throws SQLException {
+        synchronized (journal) {
+            if (journal.hasPending() && !replayJournal()) {
+                appendToJournal(batch);
+                return;
+            }
+            try {
+                writeBatch(batch, null, 0L);
+            } catch (SQLException e) {
+                if (!isConnectionFailure(e)) {
+                    throw e;
+                }
+                appendToJournal(batch);
+            }
+        }
+    }
+
+    /**
+     * 执行一个合并后的写入批次
+     * 先执行更新再执行插入，所有语句在同一事务中提交
+     *
+     * @param batch     合并后的写入批次
+     * @param journalId 重放本地日志时为日志ID，重放进度与写入在同一事务中提交；直接写入时为null
+     * @param seq       重放的批次序号
+     * @throws SQLException 如果写入失败，整个批次回滚
+     */
+    private void writeBatch(WriteQueue.WriteBatch batch, String journalId, long seq) throws SQLException {
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.WRITE_BATCH);
+        // 连接归还连接池时 HikariCP 会恢复自动提交
+        try (Connection connection = timer.acquired(getConnection())) {
+            connection.setAutoCommit(false);
+            List<PendingWrite.InsertDeath> inserts = new ArrayList<>(batch.inserts());
+            long[] rowIds;
+            try {
+                executeRevivalUpdates(connection, batch.revivals());
+                executeDeathDataUpdates(connection, batch.deathData(), inserts);
+                rowIds = executeInserts(connection, inserts);
+                executeStatsUpdates(connection, batch.revivals(), inserts);
+                executeNameUpserts(connection, batch.names());
+                if (journalId != null) {
+                    try (PreparedStatement statement = connection.prepareStatement(upsertJournalSql)) {
+                        statement.setString(1, journalId);
+                        statement.setLong(2, seq);
+                        statement.executeUpdate();
+                    }
+                }
+            } catch (SQLException e) {
+                rollbackQuietly(connection);
+                throw e;
+            }
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                throw new CommitUncertainException(e);
+            }
+            markCommitted(batch);
+
+            // 提交后记录新行的ID，后续更新可直接按主键定位
+            for (int i = 0; i < rowIds.length; i++) {
+                if (rowIds[i] > 0) {
+                    PendingWrite.InsertDeath insert = inserts.get(i);
+                    cooldownCache.assignId(insert.playerId(), insert.state().deathAt(), rowIds[i]);
+                }
+            }
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "回滚写入事务失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 把写入批次追加到本地日志，并记录涉及玩家的当前状态供数据库不可用时读取
+     */
+    private void appendToJournal(WriteQueue.WriteBatch batch) throws SQLException {
+        try {
+            journal.append(batch);
+        } catch (IOException e) {
+            throw new SQLException("数据库不可用且无法写入本地日志: " + e.getMessage(), e);
+        }
+        batch.inserts().forEach(write -> rememberJournaledState(write.playerId()));
+        batch.revivals().forEach(write -> rememberJournaledState(write.playerId()));
+        batch.deathData().forEach(write -> rememberJournaledState(write.playerId()));
+    }
+
+    private void rememberJournaledState(UUID playerId) {
+        DeathState state = cooldownCache.get(playerId);
+        if (state != null) {
+            journaledStates.put(playerId, state);
+        }
+    }
+
+    /**
+     * 定时任务：熔断结束后重放本地日志，没有新的写入时也能及时把日志写回数据库
+     */
+    private void replayPendingJournal() {
+        if (!journal.hasPending() || circuitBreaker.isOpen()) {
+            return;
+        }
+        synchronized (journal) {
+            replayJournal();
+        }
+    }
+
+    /**
+     * 按顺序重放本地日志中的所有批次，调用方需持有日志的锁
+     * 数据库记录的重放进度之前的批次已经提交过，直接跳过；无法执行的批次记录日志后跳过
+     *
+     * @return 是否已全部重放，数据库仍不可用时返回false
+     */
+    private boolean replayJournal() {
+        if (!journal.hasPending()) {
+            return true;
+        }
+        if (circuitBreaker.isOpen()) {
+            return false;
+        }
+
+        WriteJournal.Contents contents;
+        long progress;
+        try {
+            contents = journal.read();
+            progress = loadJournalProgress(contents.journalId());
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "读取本地写入日志失败: " + e.getMessage());
+            journal.quarantine();
+            journaledStates.clear();
+            return true;
+        } catch (SQLException e) {
+            if (!isConnectionFailure(e)) {
+                plugin.getLogger().log(Level.SEVERE, "读取本地日志重放进度时发生错误: " + e.getMessage());
+            }
+            return false;
+        }
+
+        int replayed = 0;
+        for (WriteJournal.Entry entry : contents.after(progress)) {
+            try {
+                writeBatch(entry.batch(), contents.journalId(), entry.seq());
+                replayed++;
+            } catch (SQLException e) {
+                if (e instanceof CommitUncertainException || isConnectionFailure(e)) {
+                    return false;
+                }
+                plugin.getLogger().log(Level.SEVERE, "重放本地写入日志第 " + entry.seq() + " 批时发生错误，已跳过: " + e.getMessage());
+            }
+        }
+
+        try {
+            journal.complete();
+        } catch (IOException e) {
+            // 文件删除失败时保留重放进度，下次重放会跳过已提交的批次
+            plugin.getLogger().log(Level.SEVERE, "删除本地写入日志失败: " + e.getMessage());
+            journal.quarantine();
+            journaledStates.clear();
+            return true;
+        }
+        journaledStates.clear();
+        deleteJournalProgress(contents.journalId());
+        plugin.getLogger().info("已将本地写入日志中的 " + replayed + " 批写入重放到数据库");
+        return true;
+    }
+
+    private long loadJournalProgress(String journalId) throws SQLException {
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(String.format(SQL_SELECT_JOURNAL_PROGRESS, journalTable))) {
+            statement.setString(1, journalId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("last_seq") : 0L;
+            }
+        }
+    }
+
+    private void deleteJournalProgress(String journalId) {
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(String.format(SQL_DELETE_JOURNAL_PROGRESS, journalTable))) {
+            statement.setString(1, journalId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "清理本地日志重放进度时发生错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 判断异常是否由数据库连接不可用引起，这类失败的写入可以写入本地日志稍后重放
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof CommitUncertainException) {
+            // 提交时连接中断，事务可能已经提交，不能再次执行
+            return false;
+        }
+        String sqlState = e.getSQLState();
+        return e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException || sqlState != null && sqlState.startsWith("08");
+    }
+
+    /**
+     * 提交后重新记录本批次涉及的玩家，并清理已超出一致性窗口的记录
+     */
+    private void markCommitted(WriteQueue.WriteBatch batch) {
+        if (replicaSource == null) {
+            return;
+        }
+        batch.inserts().forEach(write -> markWritten(write.playerId()));
+        batch.revivals().forEach(write -> markWritten(write.playerId()));
+        batch.deathData().forEach(write -> markWritten(write.playerId()));
+        long expiredBefore = System.currentTimeMillis() - replicaConsistencyWindow;
+        recentWrites.values().removeIf(writtenAt -> writtenAt < expiredBefore);
+    }
+
+    private void executeNameUpserts(Connection connection, List<PendingWrite.UpsertPlayerName> names) throws SQLException {
+        if (names.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(upsertPlayerSql)) {
+            for (PendingWrite.UpsertPlayerName name : names) {
+                statement.setBytes(1, UuidUtil.toBytes(name.playerId()));
+                statement.setString(2, name.name());
+                statement.setString(3, name.name().toLowerCase(Locale.ROOT));
+                statement.setLong(4, name.lastSeen());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * 在写入死亡和复活记录的同一事务中增量更新统计表
+     * 批次中的复活都针对插入之前的记录，因此先记复活再记死亡，最后是与死亡合并在同一条插入中的复活
+     */
+    private void executeStatsUpdates(Connection connection, List<PendingWrite.UpdateRevival> revivals,
+                                     List<PendingWrite.InsertDeath> inserts) throws SQLException {
+        if (inserts.isEmpty() && revivals.stream().noneMatch(PendingWrite.UpdateRevival::handled)) {
+            return;
+        }
+
+        long now = DeathState.now();
+        try (PreparedStatement revival = connection.prepareStatement(upsertRevivalStatsSql);
+             PreparedStatement death = connection.prepareStatement(upsertDeathStatsSql);
+             PreparedStatement cause = connection.prepareStatement(upsertCauseStatsSql)) {
+
+            if (addRevivalStats(revival, revivals.stream()
+                    .filter(PendingWrite.UpdateRevival::handled).map(PendingWrite::playerId).toList(), now)) {
+                revival.executeBatch();
+            }
+
+            boolean hasCause = false;
+            for (PendingWrite.InsertDeath insert : inserts) {
+                long deathAt = insert.record().deathAt();
+                death.setBytes(1, UuidUtil.toBytes(insert.playerId()));
+                death.setString(2, serverName);
+                death.setLong(3, deathAt);
+                death.setLong(4, deathAt);
+                death.addBatch();
+                if (insert.causeKey() != null) {
+                    cause.setString(1, serverName);
+                    cause.setString(2, truncateCauseKey(insert.causeKey()));
+                    cause.addBatch();
+                    hasCause = true;
+                }
+            }
+            if (!inserts.isEmpty()) {
+                death.executeBatch();
+            }
+            if (hasCause) {
+                cause.executeBatch();
+            }
+
+            if (addRevivalStats(revival, inserts.stream()
+                    .filter(insert -> insert.state().handled()).map(PendingWrite::playerId).toList(), now)) {
+                revival.executeBatch();
+            }
+        }
+    }
+
+    private boolean addRevivalStats(PreparedStatement statement, List<UUID> playerIds, long revivedAt) throws SQLException {
+        for (UUID playerId : playerIds) {
+            statement.setBytes(1, UuidUtil.toBytes(playerId));
+            statement.setString(2, serverName);
+            statement.setLong(3, revivedAt);
+            statement.setLong(4, revivedAt);
+            statement.addBatch();
+        }
+        return !playerIds.isEmpty();
+    }
+
+    private void executeRevivalUpdates(Connection connection, List<PendingWrite.UpdateRevival> updates) throws SQLException {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement byId = connection.prepareStatement(
+                String.format(SQL_UPDATE_REVIVAL_METHOD + SQL_WHERE_ID, tablename));
+             PreparedStatement byLatest = connection.prepareStatement(
+                     String.format(SQL_UPDATE_REVIVAL_METHOD + SQL_WHERE_LATEST, tablename))) {
+
+            boolean hasById = false;
+            boolean hasByLatest = false;
+            for (PendingWrite.UpdateRevival update : updates) {
+                long rowId = resolveRowId(update.playerId(), update.rowId());
+                PreparedStatement statement = rowId > 0 ? byId : byLatest;
+                statement.setString(1, update.revivalMethod());
+                statement.setBoolean(2, update.handled());
+                if (rowId > 0) {
+                    statement.setLong(3, rowId);
+                    hasById = true;
+                } else {
+                    backfillLegacyRows(connection, update.playerId());
+                    statement.setBytes(3, UuidUtil.toBytes(update.playerId()));
+                    statement.setString(4, serverName);
+                    hasByLatest = true;
+                }
+                statement.addBatch();
+            }
+
+            if (hasById) {
+                byId.executeBatch();
+            }
+            if (hasByLatest) {
+                byLatest.executeBatch();
+            }
+        }
+    }
+
+    private void executeDeathDataUpdates(Connection connection, List<PendingWrite.UpdateDeathData> updates,
+                                         List<PendingWrite.InsertDeath> inserts) throws SQLException {
+        // 死亡数据更新很少发生，逐条执行以便根据影响行数决定是否改为插入
+        for (PendingWrite.UpdateDeathData update : updates) {
+            try (PreparedStatement statement = prepareLatestRowUpdate(connection, SQL_UPDATE_DEATH_DATA, 3,
+                    resolveRowId(update.playerId(), update.rowId()), update.playerId())) {
+
+                statement.setLong(1, update.deathAt());
+                statement.setLong(2, update.reviveAt());
+                statement.setString(3, truncate(update.deathCause()));
+                if (statement.executeUpdate() == 0) {
+                    // 如果没有现有记录被更新，则插入新记录
+                    inserts.add(new PendingWrite.InsertDeath(update.playerId(),
+                            new DeathState(0L, true, update.deathAt(), update.reviveAt(), null, false, null),
+                            DeathRecord.withoutLocation(update.deathAt(), update.reviveAt(), update.deathCause()), null));
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建更新玩家最新记录的语句
+     * 已知行ID时按主键更新，否则通过索引定位该玩家在本服的最新记录
+     *
+     * @param connection 数据库连接
+     * @param setSql     包含 SET 子句的SQL模板
+     * @param setParams  SET 子句中的参数数量，由调用方负责设置
+     * @param rowId      缓存中的行ID，未知时为0
+     * @param playerId   玩家的UUID
+     * @return 已设置定位参数的语句
+     * @throws SQLException 如果创建语句失败
+     */
+    private PreparedStatement prepareLatestRowUpdate(Connection connection, String setSql, int setParams,
+                                                     long rowId, UUID playerId) throws SQLException {
+        if (rowId > 0) {
+            PreparedStatement statement = connection.prepareStatement(String.format(setSql + SQL_WHERE_ID, tablename));
+            statement.setLong(setParams + 1, rowId);
+            return statement;
+        }
+
+        backfillLegacyRows(connection, playerId);
+        PreparedStatement statement = connection.prepareStatement(String.format(setSql + SQL_WHERE_LATEST, tablename));
+        statement.setBytes(setParams + 1, UuidUtil.toBytes(playerId));
+        statement.setString(setParams + 2, serverName);
+        return statement;
+    }
+
+    private long[] executeInserts(Connection connection, List<PendingWrite.InsertDeath> inserts) throws SQLException {
+        long[] rowIds = new long[inserts.size()];
+        if (inserts.isEmpty()) {
+            return rowIds;
+        }
+
+        boolean legacyUuid = writeLegacyUuid;
+        try (PreparedStatement statement = connection.prepareStatement(
+                String.format(legacyUuid ? SQL_INSERT_DEATH_DATA_LEGACY : SQL_INSERT_DEATH_DATA, tablename),
+                Statement.RETURN_GENERATED_KEYS)) {
+
+            for (int i = 0; i < rowIds.length; i++) {
+                PendingWrite.InsertDeath insert = inserts.get(i);
+                DeathRecord record = insert.record();
+                statement.setBytes(1, UuidUtil.toBytes(insert.playerId()));
+                statement.setString(2, serverName);
+                statement.setLong(3, record.deathAt());
+                statement.setLong(4, record.reviveAt());
+                statement.setString(5, truncate(record.deathCause()));
+                if (record.world() != null) {
+                    statement.setString(6, record.world());
+                    statement.setDouble(7, record.x());
+                    statement.setDouble(8, record.y());
+                    statement.setDouble(9, record.z());
+                } else {
+                    statement.setNull(6, Types.VARCHAR);
+                    statement.setNull(7, Types.DOUBLE);
+                    statement.setNull(8, Types.DOUBLE);
+                    statement.setNull(9, Types.DOUBLE);
+                }
+                statement.setString(10, insert.state().revivalMethod());
+                statement.setBoolean(11, insert.state().handled());
+                statement.setString(12, truncateCauseKey(insert.causeKey()));
+                if (legacyUuid) {
+                    statement.setString(13, insert.playerId().toString());
+                }
+
+                if (dialect.supportsBatchGeneratedKeys()) {
+                    statement.addBatch();
+                } else {
+                    // 驱动不支持批量返回自增ID时逐条插入，仍在同一事务内
+                    statement.executeUpdate();
+                    rowIds[i] = readGeneratedKey(statement);
+                }
+            }
+
+            if (dialect.supportsBatchGeneratedKeys()) {
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < rowIds.length && keys.next(); i++) {
+                        rowIds[i] = keys.getLong(1);
+                    }
+                }
+            }
+        }
+        return rowIds;
+    }
+
+    private long readGeneratedKey(PreparedStatement statement) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            return keys.next() ? keys.getLong(1) : 0L;
+        }
+    }
+
+    /**
+     * 截断过长的死亡消息，避免超出列长度导致写入失败
+     */
+    private static String truncate(String deathCause) {
+        if (deathCause == null || deathCause.length() <= DEATH_CAUSE_MAX_LENGTH) {
+            return deathCause;
+        }
+        return deathCause.substring(0, DEATH_CAUSE_MAX_LENGTH);
+    }
+
+    /**
+     * 截断过长的死因分类，死因分类同时写入死亡记录和死因统计表，两处使用相同的长度上限
+     */
+    private static String truncateCauseKey(String causeKey) {
+        return causeKey != null && causeKey.length() > CAUSE_KEY_MAX_LENGTH ? causeKey.substring(0, CAUSE_KEY_MAX_LENGTH) : causeKey;
+    }
+
+    /**
+     * 确定更新操作的目标行ID
+     * 入队时未知的ID可能已由之前批次的插入写回缓存
+     */
+    private long resolveRowId(UUID playerId, long rowId) {
+        return rowId > 0 ? rowId : cooldownCache.getRowId(playerId);
+    }
+
+    /**
+     * 异步更新玩家的复活方法
+     *
+     * @param playerId      玩家的UUID
+     * @param revivalMethod 玩家的复活方法
+     * @param updateHandled 是否更新handled状态为TRUE，默认为false
+     */
+    @Override
+    public void updateRevivalMethod(final UUID playerId, final String revivalMethod, final boolean updateHandled) {
+        long rowId = cooldownCache.getRowId(playerId);
+        cooldownCache.updateRevival(playerId, revivalMethod, updateHandled);
+        if (updateHandled) {
+            leaderboards.recordRevival(playerId, DeathState.now());
+        }
+        markWritten(playerId);
+
+        writeQueue.enqueue(new PendingWrite.UpdateRevival(playerId, rowId, revivalMethod, updateHandled));
+    }
+
+    /**
+     * 异步更新玩家的复活方法（保持向后兼容）
+     *
+     * @param playerId      玩家的UUID
+     * @param revivalMethod 玩家的复活方法
+     */
+    @SuppressWarnings("unused")
+    public void updateRevivalMethod(final UUID playerId, final String revivalMethod) {
+        updateRevivalMethod(playerId, revivalMethod, false);
+    }
+
+    /**
+     * 检查玩家是否有未处理的死亡记录（有死亡记录但没有revival_method）
+     * 缓存未命中时同步查询数据库，不要在主线程调用
+     *
+     * @param playerUUID 玩家UUID
+     * @return 如果有未处理的死亡记录则返回true
+     */
+    @Override
+    public boolean hasUnhandledDeathRecord(UUID playerUUID) {
+        DeathState state = getDeathState(playerUUID);
+        return (state != null ? state : loadDeathState(playerUUID)).isUnhandled();
+    }
+
+    /**
+     * 检查死亡冷却是否已结束
+     *
+     * @param deathDataStr 旧版 death_data 列中的死亡数据JSON
+     * @return 如果冷却已结束返回true
+     */
+    public boolean isDeathCooldownEnded(String deathDataStr) {
+        DeathRecord record = DeathRecord.fromJson(deathDataStr);
+        // 如果当前时间大于复活时间，说明冷却已结束，但玩家还未手动复活
+        return record.reviveAt() > 0 && DeathState.now() >= record.reviveAt();
+    }
+
+    /**
+     * 通过玩家名查询UUID
+     *
+     * @param playerName 玩家名
+     * @return 玩家UUID，如果未找到返回null
+     */
+    @Override
+    public UUID getPlayerUUIDByName(String playerName) {
+        UUID indexed = playerNames.find(playerName);
+        if (indexed != null) {
+            return indexed;
+        }
+
+        // 内存索引未加载完成或缺少该玩家时回退到数据库查询
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.LOOKUP_UUID);
+        try (Connection conn = timer.acquired(getReadConnection(null));
+             PreparedStatement stmt = conn.prepareStatement(String.format(SQL_SELECT_PLAYER_BY_NAME, playerTable))) {
+
+            stmt.setString(1, playerName.toLowerCase(Locale.ROOT));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    UUID playerId = UuidUtil.fromBytes(rs.getBytes("uuid"));
+                    playerNames.put(playerId, rs.getString("name"), rs.getLong("last_seen"));
+                    return playerId;
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("从数据库获取玩家UUID时出错: " + e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return null;
+    }
+
+    /**
+     * 将一批过期的历史记录移入归档表或直接删除
+     * 每个玩家在本服的最新记录始终保留在主表中，每批在单独的事务中提交
+     *
+     * @param afterId      从该ID之后开始扫描
+     * @param cutoffMillis 只处理更新时间早于该时间的记录，毫秒
+     * @param limit        本批最多处理的记录数量
+     * @param archive      为true时移入归档表，否则直接删除
+     * @return 本批的处理结果，出错时视为处理完成
+     */
+    @Override
+    public RetentionChunk pruneHistory(long afterId, long cutoffMillis, int limit, boolean archive) {
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.RETENTION);
+        try (Connection connection = timer.acquired(getConnection())) {
+            List<Long> ids = new ArrayList<>(limit);
+            try (PreparedStatement select = connection.prepareStatement(String.format(SQL_SELECT_SUPERSEDED, tablename))) {
+                select.setString(1, serverName);
+                select.setLong(2, afterId);
+                dialect.setTimestamp(select, 3, cutoffMillis);
+                select.setInt(4, limit);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getLong(1));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                return new RetentionChunk(-1L, 0);
+            }
+
+            String idList = " WHERE id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+            connection.setAutoCommit(false);
+            try {
+                if (archive) {
+                    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO `" +
+                            SchemaMigrator.archiveTableName(tablename) + "` (" + ARCHIVE_COLUMNS + ") SELECT " +
+                            ARCHIVE_SOURCE_COLUMNS + " FROM `" + tablename + "`" + idList)) {
+                        bindIds(insert, ids);
+                        insert.executeUpdate();
+                    }
+                }
+                int moved;
+                try (PreparedStatement delete = connection.prepareStatement("DELETE FROM `" + tablename + "`" + idList)) {
+                    bindIds(delete, ids);
+                    moved = delete.executeUpdate();
+                }
+                connection.commit();
+                return new RetentionChunk(ids.get(ids.size() - 1), moved);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "清理历史死亡记录时发生错误: " + e.getMessage());
+            return new RetentionChunk(-1L, 0);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * 用一条语句批量设置符合条件的玩家的复活方式
+     * 先等待写入队列中已有的写入完成，避免尚未写入的死亡记录被漏掉或覆盖；
+     * 再在同一事务中读出将被更新的记录用于更新缓存，以相同条件执行一次集合更新，并与队列写入一样增量更新统计表
+     *
+     * @param filter        筛选条件
+     * @param revivalMethod 复活方式
+     * @param handled       是否标记为已处理
+     * @return 执行结果，出错时影响数量为-1
+     */
+    @Override
+    public BulkUpdateResult bulkUpdateRevival(BulkFilter filter, String revivalMethod, boolean handled) {
+        long startedAt = System.currentTimeMillis();
+        String targets = bulkTargetsSql(filter);
+        try {
+            if (!writeQueue.awaitSettled(writeQueue.getPendingPlayers(), writeShutdownTimeout)) {
+                plugin.getLogger().warning("等待写入队列超时，批量操作可能不包含尚未写入的死亡记录");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new BulkUpdateResult(-1, Map.of(), System.currentTimeMillis() - startedAt);
+        }
+
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.BULK_UPDATE);
+        try (Connection connection = timer.acquired(getConnection())) {
+            connection.setAutoCommit(false);
+            try {
+                Map<UUID, Long> rows = new HashMap<>();
+                try (PreparedStatement select = connection.prepareStatement(targets)) {
+                    bindBulkFilter(select, 1, filter);
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        while (resultSet.next()) {
+                            rows.put(UuidUtil.fromBytes(resultSet.getBytes("uuid_bin")), resultSet.getLong("id"));
+                        }
+                    }
+                }
+
+                int affected;
+                try (PreparedStatement update = connection.prepareStatement(String.format(SQL_UPDATE_REVIVAL_METHOD, tablename)
+                        + String.format(SQL_WHERE_BULK_TARGETS, targets))) {
+                    update.setString(1, revivalMethod);
+                    update.setBoolean(2, handled);
+                    bindBulkFilter(update, 3, filter);
+                    affected = update.executeUpdate();
+                }
+                if (handled) {
+                    try (PreparedStatement revival = connection.prepareStatement(upsertRevivalStatsSql)) {
+                        if (addRevivalStats(revival, List.copyOf(rows.keySet()), DeathState.now())) {
+                            revival.executeBatch();
+                        }
+                    }
+                }
+                connection.commit();
+
+                // 其他子服的记录不在本服缓存中
+                if (serverName.equals(filter.serverName())) {
+                    cooldownCache.applyBulkRevival(rows, revivalMethod, handled);
+                }
+                rows.keySet().forEach(this::markWritten);
+                return new BulkUpdateResult(affected, rows, System.currentTimeMillis() - startedAt);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "执行批量操作时发生错误: " + e.getMessage());
+            return new BulkUpdateResult(-1, Map.of(), System.currentTimeMillis() - startedAt);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * 异步执行批量设置复活方式
+     *
+     * @param filter        筛选条件
+     * @param revivalMethod 复活方式
+     * @param handled       是否标记为已处理
+     * @return 执行结果
+     */
+    @Override
+    public CompletableFuture<BulkUpdateResult> bulkUpdateRevivalAsync(BulkFilter filter, String revivalMethod, boolean handled) {
+        return CompletableFuture.supplyAsync(() -> bulkUpdateRevival(filter, revivalMethod, handled), plugin.getAsyncExecutor());
+    }
+
+    private String bulkTargetsSql(BulkFilter filter) {
+        StringBuilder sql = new StringBuilder(String.format(SQL_BULK_TARGETS, tablename));
+        if (filter.deathFrom() > 0L) {
+            sql.append(" AND h.death_at >= ?");
+        }
+        if (filter.deathTo() > 0L) {
+            sql.append(" AND h.death_at <= ?");
+        }
+        if (filter.cause() != null) {
+            sql.append(" AND h.cause_key = ?");
+        }
+        return sql.toString();
+    }
+
+    private static void bindBulkFilter(PreparedStatement statement, int index, BulkFilter filter) throws SQLException {
+        statement.setString(index++, filter.serverName());
+        if (filter.deathFrom() > 0L) {
+            statement.setLong(index++, filter.deathFrom());
+        }
+        if (filter.deathTo() > 0L) {
+            statement.setLong(index++, filter.deathTo());
+        }
+        if (filter.cause() != null) {
+            statement.setString(index, filter.cause());
+        }
+    }
+
+    private static void bindIds(PreparedStatement statement, List<Long> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            statement.setLong(i + 1, ids.get(i));
+        }
+    }
+
+    /**
+     * 从数据库加载所有已知玩家的名称到内存索引
+     */
+    @Override
+    public void loadPlayerNames() {
+        try (Connection connection = getReadConnection(null);
+             PreparedStatement statement = connection.prepareStatement(String.format(SQL_SELECT_PLAYER_NAMES, playerTable))) {
+
+            statement.setFetchSize(1000);
+            int count = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    playerNames.put(UuidUtil.fromBytes(resultSet.getBytes("uuid")),
+                            resultSet.getString("name"), resultSet.getLong("last_seen"));
+                    count++;
+                }
+            }
+            plugin.getLogger().info("已加载 " + count + " 个玩家名称");
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "加载玩家名称时发生错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 记录玩家当前的名称，名称有变化时经由写入队列写入数据库
+     *
+     * @param playerId 玩家UUID
+     * @param name     玩家名称
+     */
+    @Override
+    public void recordPlayerName(UUID playerId, String name) {
+        long now = DeathState.now();
+        if (playerNames.put(playerId, name, now)) {
+            writeQueue.enqueue(new PendingWrite.UpsertPlayerName(playerId, name, now));
+        }
+    }
+
+    /**
+     * 获取玩家名称索引
+     *
+     * @return 玩家名称索引
+     */
+    @Override
+    public PlayerNameIndex getPlayerNameIndex() {
+        return playerNames;
+    }
+
+    /**
+     * 从统计表读取各排行榜的前几名并替换内存中的排行榜
+     * 三个查询都只按索引读取前几行，与玩家和历史记录的数量无关
+     *
+     * @param size 每个排行榜保留的名次数量
+     */
+    @Override
+    public void refreshLeaderboards(int size) {
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.LEADERBOARD);
+        try (Connection connection = timer.acquired(getReadConnection(null))) {
+            Map<Leaderboards.Board, List<Leaderboards.Entry>> boards = new EnumMap<>(Leaderboards.Board.class);
+            boards.put(Leaderboards.Board.DEATHS, loadTopPlayers(connection, "deaths", size));
+            boards.put(Leaderboards.Board.SURVIVAL, loadTopPlayers(connection, "longest_survival", size));
+
+            List<Leaderboards.Entry> causes = new ArrayList<>(size);
+            try (PreparedStatement statement = connection.prepareStatement(String.format(SQL_SELECT_TOP_CAUSES, causeStatsTable))) {
+                statement.setString(1, serverName);
+                statement.setInt(2, size);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        causes.add(new Leaderboards.Entry(resultSet.getString("cause"), resultSet.getLong("deaths")));
+                    }
+                }
+            }
+            boards.put(Leaderboards.Board.CAUSES, causes);
+            leaderboards.replace(boards);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "读取死亡排行榜时发生错误: " + e.getMessage());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private List<Leaderboards.Entry> loadTopPlayers(Connection connection, String column, int size) throws SQLException {
+        List<Leaderboards.Entry> entries = new ArrayList<>(size);
+        try (PreparedStatement statement = connection.prepareStatement(
+                String.format(SQL_SELECT_TOP_PLAYERS, statsTable, column, playerTable))) {
+            statement.setString(1, serverName);
+            statement.setInt(2, size);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    String name = resultSet.getString("name");
+                    if (name == null) {
+                        // 名称表中没有记录的玩家显示UUID
+                        name = UuidUtil.fromBytes(resultSet.getBytes("uuid")).toString();
+                    }
+                    entries.add(new Leaderboards.Entry(name, resultSet.getLong("value")));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 从统计表加载玩家的死亡统计并写入内存
+     *
+     * @param playerId 玩家的UUID
+     */
+    @Override
+    public void cachePlayerStats(UUID playerId) {
+        StorageMetrics.Timer timer = metrics.start(StorageMetrics.Operation.LEADERBOARD);
+        try (Connection connection = timer.acquired(getReadConnection(playerId));
+             PreparedStatement statement = connection.prepareStatement(String.format(SQL_SELECT_PLAYER_STATS, statsTable))) {
+
+            statement.setBytes(1, UuidUtil.toBytes(playerId));
+            statement.setString(2, serverName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                leaderboards.putPlayer(playerId, resultSet.next()
+                        ? new Leaderboards.PlayerStats(resultSet.getInt("deaths"),
+                        resultSet.getLong("longest_survival"), resultSet.getLong("alive_since"))
+                        : Leaderboards.PlayerStats.EMPTY);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "加载玩家死亡统计时发生错误: " + e.getMessage());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * 获取排行榜和在线玩家死亡统计
+     *
+     * @return 排行榜
+     */
+    @Override
+    public Leaderboards getLeaderboards() {
+        return leaderboards;
+    }
+
+    /**
+     * 异步通过玩家名查询UUID
+     *
+     * @param playerName 玩家名
+     * @return 玩家UUID，如果未找到为null
+     */
+    @Override
+    public CompletableFuture<UUID> getPlayerUUIDByNameAsync(String playerName) {
+        return CompletableFuture.supplyAsync(() -> getPlayerUUIDByName(playerName), plugin.getAsyncExecutor());
+    }
+
+    /**
+     * 获取存储操作的耗时统计
+     *
+     * @return 耗时统计
+     */
+    @Override
+    public StorageMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 获取连接池状态
+     *
+     * @return 连接池状态，连接池未初始化时返回null
+     */
+    @Override
+    public StorageMetrics.PoolStats getPoolStats() {
+        HikariDataSource source = dataSource;
+        if (source == null || source.isClosed() || source.getHikariPoolMXBean() == null) {
+            return null;
+        }
+        HikariPoolMXBean pool = source.getHikariPoolMXBean();
+        return new StorageMetrics.PoolStats(pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(), pool.getTotalConnections());
+    }
+
+    /**
+     * 获取死亡数据写入队列
+     *
+     * @return 写入队列
+     */
+    @Override
+    public WriteQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * 获取死亡状态缓存
+     *
+     * @return 死亡状态缓存
+     */
+    @Override
+    public CooldownCache getCooldownCache() {
+        return cooldownCache;
+    }
+
+    /**
+     * 数据库当前是否可用
+     *
+     * @return 熔断期间返回false
+     */
+    @Override
+    public boolean isAvailable() {
+        return !circuitBreaker.isOpen();
+    }
+
+    /**
+     * 内存缓存或本地写入日志中是否有玩家的死亡状态，数据库熔断期间这些状态仍然可信
+     *
+     * @param playerId 玩家的UUID
+     * @return 是否有本地状态
+     */
+    @Override
+    public boolean hasLocalDeathState(UUID playerId) {
+        return cooldownCache.get(playerId) != null || journaledStates.containsKey(playerId);
+    }
+
+    /**
+     * 获取数据库熔断器的状态
+     *
+     * @return 熔断器状态
+     */
+    @Override
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * 获取本地写入日志中等待重放的批次数量
+     *
+     * @return 批次数量
+     */
+    @Override
+    public int getJournalPendingBatches() {
+        return journal.getPendingBatches();
+    }
+
+    /**
+     * 熔断期间获取连接时抛出的异常
+     */
+    private static final class CircuitOpenException extends SQLTransientConnectionException {
+        private CircuitOpenException() {
+            super("数据库暂时不可用");
+        }
+    }
+
+    /**
+     * 提交事务时连接中断，无法确定事务是否已经提交
+     */
+    private static final class CommitUncertainException extends SQLException {
+        private CommitUncertainException(SQLException cause) {
+            super("提交写入事务时连接中断: " + cause.getMessage(), cause.getSQLState(), cause);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 死亡排行榜和在线玩家死亡统计的内存副本
+ * 排行榜由定时任务从统计表整体替换，在线玩家的统计在写入时同步更新，占位符读取时不访问数据库
+ */
+public class Leaderboards {
+    private volatile Map<Board, List<Entry>> boards = new EnumMap<>(Board.class);
+    private final Map<UUID, PlayerStats> players = new ConcurrentHashMap<>();
+
+    /**
+     * 获取排行榜某一名次
+     *
+     * @param board 排行榜
+     * @param rank  名次，从1开始
+     * @return 该名次的条目，没有时返回null
+     */
+    public Entry get(Board board, int rank) {
+        List<Entry> entries = boards.get(board);
+        return entries == null || rank < 1 || rank > entries.size() ? null : entries.get(rank - 1);
+    }
+
+    /**
+     * 用新读取的排行榜整体替换当前的排行榜
+     *
+     * @param snapshot 各排行榜按名次排列的条目
+     */
+    public void replace(Map<Board, List<Entry>> snapshot) {
+        boards = snapshot;
+    }
+
+    /**
+     * 获取在线玩家的死亡统计
+     *
+     * @param playerId 玩家UUID
+     * @return 死亡统计，尚未加载时返回null
+     */
+    public PlayerStats getPlayer(UUID playerId) {
+        return players.get(playerId);
+    }
+
+    /**
+     * 写入从数据库加载的玩家死亡统计
+     *
+     * @param playerId 玩家UUID
+     * @param stats    死亡统计
+     */
+    public void putPlayer(UUID playerId, PlayerStats stats) {
+        players.put(playerId, stats);
+    }
+
+    /**
+     * 移除离线玩家的死亡统计
+     *
+     * @param playerId 玩家UUID
+     */
+    public void removePlayer(UUID playerId) {
+        players.remove(playerId);
+    }
+
+    /**
+     * 按与统计表相同的规则记录一次死亡
+     *
+     * @param playerId 玩家UUID
+     * @param deathAt  死亡时间的UNIX时间戳（秒）
+     */
+    public void recordDeath(UUID playerId, long deathAt) {
+        players.computeIfPresent(playerId, (id, stats) -> stats.withDeath(deathAt));
+    }
+
+    /**
+     * 按与统计表相同的规则记录一次复活
+     *
+     * @param playerId  玩家UUID
+     * @param revivedAt 复活时间的UNIX时间戳（秒）
+     */
+    public void recordRevival(UUID playerId, long revivedAt) {
+        players.computeIfPresent(playerId, (id, stats) -> stats.withRevival(revivedAt));
+    }
+
+    /**
+     * 排行榜类型
+     */
+    public enum Board {
+        DEATHS("deaths"),
+        SURVIVAL("survival"),
+        CAUSES("causes");
+
+        private final String key;
+
+        Board(String key) {
+            this.key = key;
+        }
+
+        /**
+         * 占位符中使用的名称，如 %mhc_top_deaths_1_name%
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * 排行榜中的一个名次
+     *
+     * @param name  玩家名称或死亡原因
+     * @param value 死亡次数或最长存活时间（秒）
+     */
+    public record Entry(String name, long value) {
+    }
+
+    /**
+     * 一个玩家在本服的死亡统计
+     *
+     * @param deaths          死亡次数
+     * @param longestSurvival 两次死亡之间最长的存活时间（秒）
+     * @param aliveSince      本次复活的UNIX时间戳（秒），处于死亡状态或未知时为0
+     */
+    public record PlayerStats(int deaths, long longestSurvival, long aliveSince) {
+        public static final PlayerStats EMPTY = new PlayerStats(0, 0L, 0L);
+
+        PlayerStats withDeath(long deathAt) {
+            long survived = aliveSince > 0L ? deathAt - aliveSince : 0L;
+            return new PlayerStats(deaths + 1, Math.max(longestSurvival, survived), 0L);
+        }
+
+        PlayerStats withRevival(long revivedAt) {
+            return new PlayerStats(deaths, longestSurvival, revivedAt);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.miaomc.hardcore.utils;
+
+/**
+ * {@link SpectatorLeash} 使用的距离和抽查人数计算，只使用基本类型，不分配对象
+ */
+final class LeashMath {
+    // 拉回到半径的这个比例处，避免玩家停在边界上反复触发
+    static final double PULL_BACK_RATIO = 0.9D;
+
+    private LeashMath() {
+    }
+
+    /**
+     * 判断相对死亡位置的水平偏移是否在半径以内，边界上视为以内
+     *
+     * @param dx     X轴偏移
+     * @param dz     Z轴偏移
+     * @param radius 水平半径
+     * @return 是否在半径以内
+     */
+    static boolean isInside(double dx, double dz, double radius) {
+        return dx * dx + dz * dz <= radius * radius;
+    }
+
+    /**
+     * 越界时沿死亡位置指向玩家的方向拉回所用的缩放比例，偏移乘以该比例即为拉回后的偏移
+     *
+     * @param dx     X轴偏移
+     * @param dz     Z轴偏移
+     * @param radius 水平半径
+     * @return 缩放比例
+     */
+    static double pullBackScale(double dx, double dz, double radius) {
+        return radius * PULL_BACK_RATIO / Math.sqrt(dx * dx + dz * dz);
+    }
+
+    /**
+     * 每 tick 检查的人数，保证每名玩家每隔检查间隔至少被检查一次
+     *
+     * @param size          已登记的玩家数量
+     * @param checkInterval 检查间隔（tick）
+     * @return 本 tick 检查的人数
+     */
+    static int checksPerTick(int size, int checkInterval) {
+        int interval = Math.max(1, checkInterval);
+        return (size + interval - 1) / interval;
+    }
+}
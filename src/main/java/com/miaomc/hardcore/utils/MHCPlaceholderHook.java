@@ -2,19 +2,37 @@ package com.miaomc.hardcore.utils;
 
 import com.miaomc.hardcore.HardCore;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
-import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MHCPlaceholderHook extends PlaceholderExpansion implements Listener {
+    private static final String ZERO_CLOCK = "00:00:00";
 
-public class MHCPlaceholderHook extends PlaceholderExpansion {
     private final HardCore plugin;
+    // 每个玩家每秒最多格式化一次剩余时间
+    private final Map<UUID, RenderedTime> renderedTimes = new ConcurrentHashMap<>();
+    // 排行榜占位符在加载时全部登记，请求时只需一次哈希查找
+    private final Map<String, TopPlaceholder> topPlaceholders = new HashMap<>();
 
     public MHCPlaceholderHook(HardCore plugin) {
         this.plugin = plugin;
+        int size = Math.max(1, plugin.getConfig().getInt("settings.leaderboard.size", 10));
+        for (Leaderboards.Board board : Leaderboards.Board.values()) {
+            for (int rank = 1; rank <= size; rank++) {
+                String prefix = "top_" + board.getKey() + "_" + rank + "_";
+                topPlaceholders.put(prefix + "name", new TopPlaceholder(board, rank, true));
+                topPlaceholders.put(prefix + "value", new TopPlaceholder(board, rank, false));
+            }
+        }
     }
 
     @Override
@@ -37,71 +55,139 @@ public class MHCPlaceholderHook extends PlaceholderExpansion {
         return true;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        renderedTimes.remove(event.getPlayer().getUniqueId());
+    }
+
     @Override
     public String onPlaceholderRequest(Player player, @NotNull String identifier) {
+        // %mhc_top_deaths_1_name% 等排行榜占位符与玩家无关，全息图等场合请求时可能没有玩家
+        TopPlaceholder top = topPlaceholders.get(identifier);
+        if (top != null) {
+            return top.render(plugin.getStorage().getLeaderboards(), player);
+        }
+
         if (player == null) return "";
 
-        // %mhc_time_remain% - 剩余冷却时间（秒）
         switch (identifier) {
+            // %mhc_time_remain% - 剩余冷却时间（秒）
             case "time_remain" -> {
-                Map<String, Object> cooldownInfo = plugin.getMySQL().isPlayerInCooldown(player.getUniqueId());
-                if ((boolean) cooldownInfo.get("status")) {
-                    return String.valueOf(cooldownInfo.get("timeRemain"));
-                }
-                return "0";
+                RenderedTime rendered = render(player);
+                return rendered == null ? "0" : rendered.seconds();
             }
 
             case "time_remain_formatted" -> {
-                Map<String, Object> cooldownInfo = plugin.getMySQL().isPlayerInCooldown(player.getUniqueId());
-                if ((boolean) cooldownInfo.get("status")) {
-                    long seconds = (long) cooldownInfo.get("timeRemain");
-                    long hours = seconds / 3600;
-                    long minutes = (seconds % 3600) / 60;
-                    long remainingSeconds = seconds % 60;
-                    return String.format("%02d时%02d分%02d秒", hours, minutes, remainingSeconds);
-                }
-                return "00时00分00秒";
+                RenderedTime rendered = render(player);
+                return rendered == null ? Messager.timeFormat(player).formatPadded(0L) : rendered.formatted();
             }
 
-
             // %mhc_is_coolingdown% - 玩家是否在冷却中（true/false）
             case "is_coolingdown" -> {
-                Map<String, Object> cooldownInfo = plugin.getMySQL().isPlayerInCooldown(player.getUniqueId());
-                return String.valueOf(cooldownInfo.get("status"));
+                return render(player) == null ? "false" : "true";
             }
 
-
             // %mhc_revive_needs% - 复活所需物品
             case "revive_needs" -> {
-                ConfigurationSection reviveNeedSection = plugin.getConfig().getConfigurationSection("settings.reviveNeed");
-                if (reviveNeedSection == null) {
-                    return "无需求";
-                }
-
-                List<String> needs = new ArrayList<>();
-                for (String key : reviveNeedSection.getKeys(false)) {
-                    int amount = reviveNeedSection.getInt(key);
-                    needs.add(key + ": " + amount);
-                }
-
-                return String.join(", ", needs);
+                return Messager.describeReviveNeeds(player, plugin.getSettings().reviveNeeds());
             }
 
-
             // 保留原有的格式化时间显示
             case "cooldown_formatted" -> {
-                Map<String, Object> cooldownInfo = plugin.getMySQL().isPlayerInCooldown(player.getUniqueId());
-                if ((boolean) cooldownInfo.get("status")) {
-                    long seconds = (long) cooldownInfo.get("timeRemain");
-                    long hours = seconds / 3600;
-                    long minutes = (seconds % 3600) / 60;
-                    long remainingSeconds = seconds % 60;
-                    return String.format("%02d:%02d:%02d", hours, minutes, remainingSeconds);
-                }
-                return "00:00:00";
+                RenderedTime rendered = render(player);
+                return rendered == null ? ZERO_CLOCK : rendered.clock();
+            }
+
+            // %mhc_deaths% - 玩家在本服的死亡次数
+            case "deaths" -> {
+                Leaderboards.PlayerStats stats = plugin.getStorage().getLeaderboards().getPlayer(player.getUniqueId());
+                return stats == null ? "0" : Integer.toString(stats.deaths());
+            }
+
+            // %mhc_longest_survival% - 玩家两次死亡之间最长的存活时间
+            case "longest_survival" -> {
+                Leaderboards.PlayerStats stats = plugin.getStorage().getLeaderboards().getPlayer(player.getUniqueId());
+                return Messager.formatTime(player, stats == null ? 0L : stats.longestSurvival());
             }
         }
 
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * 获取玩家当前秒的剩余时间文本，只读取内存中的死亡状态，不访问数据库
+     *
+     * @param player 玩家，剩余时间按玩家的语言格式化
+     * @return 渲染好的剩余时间，不在冷却中时返回null
+     */
+    private RenderedTime render(Player player) {
+        UUID playerId = player.getUniqueId();
+        DeathState state = plugin.getStorage().getCooldownCache().get(playerId);
+        long now = DeathState.now();
+        if (state == null || !state.isInCooldown(now)) {
+            renderedTimes.remove(playerId);
+            return null;
+        }
+
+        RenderedTime rendered = renderedTimes.get(playerId);
+        if (rendered != null && rendered.renderedAt() == now) {
+            return rendered;
+        }
+
+        rendered = RenderedTime.of(now, state.getTimeRemain(now), Messager.timeFormat(player));
+        renderedTimes.put(playerId, rendered);
+        return rendered;
+    }
+
+    /**
+     * 一个排行榜占位符
+     *
+     * @param board 排行榜
+     * @param rank  名次，从1开始
+     * @param name  为true时显示名称，否则显示数值
+     */
+    private record TopPlaceholder(Leaderboards.Board board, int rank, boolean name) {
+
+        String render(Leaderboards leaderboards, Player player) {
+            Leaderboards.Entry entry = leaderboards.get(board, rank);
+            if (entry == null) {
+                return name ? "-" : "0";
+            }
+            if (name) {
+                return entry.name();
+            }
+            return board == Leaderboards.Board.SURVIVAL ? Messager.formatTime(player, entry.value()) : Long.toString(entry.value());
+        }
+    }
+
+    /**
+     * 某一秒渲染出的剩余时间文本
+     *
+     * @param renderedAt 渲染时的UNIX时间戳（秒）
+     * @param seconds    剩余秒数
+     * @param formatted  按玩家语言的固定宽度格式，如 XX时XX分XX秒
+     * @param clock      XX:XX:XX 格式
+     */
+    record RenderedTime(long renderedAt, String seconds, String formatted, String clock) {
+
+        static RenderedTime of(long renderedAt, long timeRemain, TimeFormat format) {
+            long hours = timeRemain / 3600;
+            long minutes = (timeRemain % 3600) / 60;
+            long remainingSeconds = timeRemain % 60;
+
+            StringBuilder clock = new StringBuilder(8);
+            appendTwoDigits(clock, hours).append(':');
+            appendTwoDigits(clock, minutes).append(':');
+            appendTwoDigits(clock, remainingSeconds);
+
+            return new RenderedTime(renderedAt, Long.toString(timeRemain), format.formatPadded(timeRemain), clock.toString());
+        }
+
+        private static StringBuilder appendTwoDigits(StringBuilder builder, long value) {
+            if (value < 10) {
+                builder.append('0');
+            }
+            return builder.append(value);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.miaomc.hardcore.utils;
+
+import com.miaomc.hardcore.HardCore;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * 消息模板注册表
+ * 启动时读取数据目录 messages 文件夹下的各语言消息文件，每条消息只解析一次为 Adventure 组件，
+ * 发送时只替换占位符，不再重复读取配置和解析颜色代码
+ */
+public class MessageTemplates {
+    private static final String FOLDER = "messages";
+    private static final String[] BUNDLED_LOCALES = {"zh_cn", "en_us"};
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.legacyAmpersand();
+    // 占位符返回的文本使用 § 颜色代码
+    private static final LegacyComponentSerializer LEGACY_SECTION = LegacyComponentSerializer.legacySection();
+
+    private final Map<String, Bundle> bundles = new HashMap<>();
+    private final Map<String, Bundle> byLanguage = new HashMap<>();
+    private final Bundle defaultBundle;
+
+    private MessageTemplates(Map<String, Bundle> bundles, String defaultLocale) {
+        this.bundles.putAll(bundles);
+        for (Map.Entry<String, Bundle> entry : bundles.entrySet()) {
+            byLanguage.putIfAbsent(language(entry.getKey()), entry.getValue());
+        }
+        Bundle fallback = bundles.get(defaultLocale);
+        this.defaultBundle = fallback != null ? fallback : bundles.get(BUNDLED_LOCALES[0]);
+    }
+
+    /**
+     * 释放内置的消息文件并加载所有语言的消息模板
+     *
+     * @param plugin HardCore 主插件实例
+     * @param prefix 已解析的消息前缀
+     * @return 消息模板注册表
+     */
+    public static MessageTemplates load(HardCore plugin, Component prefix) {
+        File folder = new File(plugin.getDataFolder(), FOLDER);
+        for (String locale : BUNDLED_LOCALES) {
+            if (!new File(folder, locale + ".yml").exists()) {
+                plugin.saveResource(FOLDER + "/" + locale + ".yml", false);
+            }
+        }
+
+        Map<String, Bundle> bundles = new HashMap<>();
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".yml"));
+        if (files != null) {
+            for (File file : files) {
+                String locale = file.getName().substring(0, file.getName().length() - 4).toLowerCase(Locale.ROOT);
+                YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+                // 消息文件缺少的条目使用插件内置的同语言消息，没有同语言时使用中文
+                YamlConfiguration defaults = loadBundled(plugin, locale);
+                if (defaults == null) {
+                    defaults = loadBundled(plugin, BUNDLED_LOCALES[0]);
+                }
+                if (defaults != null) {
+                    config.setDefaults(defaults);
+                }
+                bundles.put(locale, Bundle.parse(config, prefix));
+            }
+        }
+        if (!bundles.containsKey(BUNDLED_LOCALES[0])) {
+            YamlConfiguration bundled = loadBundled(plugin, BUNDLED_LOCALES[0]);
+            bundles.put(BUNDLED_LOCALES[0], Bundle.parse(bundled != null ? bundled : new YamlConfiguration(), prefix));
+        }
+
+        String defaultLocale = plugin.getSettings().locale().toLowerCase(Locale.ROOT);
+        return new MessageTemplates(bundles, defaultLocale);
+    }
+
+    private static YamlConfiguration loadBundled(HardCore plugin, String locale) {
+        InputStream stream = plugin.getResource(FOLDER + "/" + locale + ".yml");
+        if (stream == null) {
+            return null;
+        }
+        try (InputStreamReader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            return YamlConfiguration.loadConfiguration(reader);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "读取内置消息文件失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 获取客户端语言对应的消息，没有对应语言时使用同语种的其他地区，再没有则使用默认语言
+     *
+     * @param locale 客户端语言，为null时使用默认语言
+     * @return 消息集合
+     */
+    public Bundle forLocale(Locale locale) {
+        if (locale == null) {
+            return defaultBundle;
+        }
+        Bundle bundle = bundles.get(locale.toString().toLowerCase(Locale.ROOT));
+        if (bundle == null) {
+            bundle = byLanguage.get(locale.getLanguage().toLowerCase(Locale.ROOT));
+        }
+        return bundle != null ? bundle : defaultBundle;
+    }
+
+    /**
+     * 获取默认语言的消息
+     *
+     * @return 消息集合
+     */
+    public Bundle getDefault() {
+        return defaultBundle;
+    }
+
+    private static String language(String locale) {
+        int separator = locale.indexOf('_');
+        return separator < 0 ? locale : locale.substring(0, separator);
+    }
+
+    /**
+     * 一种语言的全部消息模板
+     */
+    public static final class Bundle {
+        // 缺少的消息键在第一次请求时登记为直接显示消息键的模板，之后不再重复解析
+        private final Map<String, Template> templates;
+        private final TimeFormat timeFormat;
+        // 复活所需资源的显示文本，配置快照未替换时直接复用
+        private volatile ReviveNeedsText reviveNeedsText;
+
+        private Bundle(Map<String, Template> templates, TimeFormat timeFormat) {
+            this.templates = templates;
+            this.timeFormat = timeFormat;
+        }
+
+        private static Bundle parse(ConfigurationSection config, Component prefix) {
+            Map<String, Template> templates = new ConcurrentHashMap<>();
+            for (String key : config.getKeys(true)) {
+                if (config.isString(key)) {
+                    templates.put(key, new Template(prefix, config.getString(key)));
+                }
+            }
+            return new Bundle(templates, TimeFormat.parse(config));
+        }
+
+        /**
+         * 获取消息模板
+         *
+         * @param key 消息键
+         * @return 消息模板，不存在时返回直接显示消息键的模板
+         */
+        public Template get(String key) {
+            Template template = templates.get(key);
+            return template != null ? template : templates.computeIfAbsent(key, missing -> new Template(Component.empty(), missing));
+        }
+
+        /**
+         * 获取这种语言的时间单位
+         *
+         * @return 时间单位
+         */
+        public TimeFormat getTimeFormat() {
+            return timeFormat;
+        }
+
+        /**
+         * 按这种语言的格式显示复活所需资源，用于占位符
+         *
+         * @param reviveNeeds 复活所需资源及数量
+         * @return 使用 § 颜色代码的文本
+         */
+        public String describeReviveNeeds(Map<String, Integer> reviveNeeds) {
+            ReviveNeedsText cached = reviveNeedsText;
+            if (cached != null && cached.reviveNeeds() == reviveNeeds) {
+                return cached.text();
+            }
+
+            String text;
+            if (reviveNeeds.isEmpty()) {
+                text = LEGACY_SECTION.serialize(get("placeholder.revive-needs-none").renderBody());
+            } else {
+                List<String> needs = new ArrayList<>(reviveNeeds.size());
+                Template entry = get("placeholder.revive-needs-entry");
+                reviveNeeds.forEach((resource, amount) ->
+                        needs.add(LEGACY_SECTION.serialize(entry.renderBody("resource", resource, "amount", String.valueOf(amount)))));
+                text = String.join(LEGACY_SECTION.serialize(get("placeholder.revive-needs-separator").renderBody()), needs);
+            }
+            reviveNeedsText = new ReviveNeedsText(reviveNeeds, text);
+            return text;
+        }
+    }
+
+    private record ReviveNeedsText(Map<String, Integer> reviveNeeds, String text) {
+    }
+
+    /**
+     * 预先解析好的一条消息
+     * 占位符写作 {名称}，替换时保留占位符所在位置的颜色和样式
+     */
+    public static final class Template {
+        private static final Pattern PLACEHOLDER = Pattern.compile("\\{([a-z_]+)}");
+
+        private final Component prefix;
+        private final Component body;
+        private final Component prefixed;
+        private final boolean hasPlaceholders;
+
+        Template(Component prefix, String raw) {
+            this.prefix = prefix;
+            this.body = SERIALIZER.deserialize(raw);
+            this.prefixed = Component.textOfChildren(prefix, body);
+            this.hasPlaceholders = PLACEHOLDER.matcher(raw).find();
+        }
+
+        /**
+         * 渲染带前缀的消息
+         *
+         * @param replacements 依次排列的占位符名称和替换值，如 "time", "5分钟"
+         * @return 消息组件，没有占位符时直接返回缓存的组件
+         */
+        public Component render(String... replacements) {
+            if (!hasPlaceholders || replacements.length == 0) {
+                return prefixed;
+            }
+            return Component.textOfChildren(prefix, replace(replacements));
+        }
+
+        /**
+         * 渲染不带前缀的消息，用于踢出提示等不需要前缀的场合
+         *
+         * @param replacements 依次排列的占位符名称和替换值
+         * @return 消息组件
+         */
+        public Component renderBody(String... replacements) {
+            if (!hasPlaceholders || replacements.length == 0) {
+                return body;
+            }
+            return replace(replacements);
+        }
+
+        private Component replace(String... replacements) {
+            Map<String, String> values = new HashMap<>(replacements.length);
+            for (int i = 0; i + 1 < replacements.length; i += 2) {
+                values.put(replacements[i], replacements[i + 1]);
+            }
+            // 一次遍历替换所有占位符，未提供的占位符原样保留
+            return body.replaceText(TextReplacementConfig.builder()
+                    .match(PLACEHOLDER)
+                    .replacement((result, builder) -> {
+                        String value = values.get(result.group(1));
+                        return builder.content(value != null ? value : result.group());
+                    })
+                    .build());
+        }
+    }
+}
@@ -1,105 +1,124 @@
 package com.miaomc.hardcore.utils;
 
 import com.miaomc.hardcore.HardCore;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import java.util.Map;
 import java.util.UUID;
 
 public class Messager {
     private static HardCore plugin;
-    private static final String DEFAULT_PREFIX = "&7[&a硬核模式&7] ";
-
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.legacyAmpersand();
+    // 重载配置时整体替换，异步线程发送消息时也能读到完整的新值
+    private static volatile MessageTemplates templates;
 
     /**
      * 初始化 Messager 类
-     * 应该在插件主类的 onEnable() 方法中调用
+     * 应该在插件主类的 onEnable() 方法中调用，消息前缀和各语言的消息模板在此时解析并缓存，重载配置时再次调用
      *
      * @param instance 插件实例
      */
     public static void init(HardCore instance) {
         plugin = instance;
+        templates = MessageTemplates.load(plugin, SERIALIZER.deserialize(plugin.getSettings().messagePrefix()));
     }
 
     /**
-     * 将时间（秒）格式化为可读字符串
+     * 按默认语言将时间（秒）格式化为可读字符串
      *
      * @param seconds 总秒数
      * @return 格式化的时间字符串
      */
     public static String formatTime(long seconds) {
-        if (seconds < 60) {
-            return seconds + "秒";
-        } else if (seconds < 3600) {
-            long mins = seconds / 60;
-            long secs = seconds % 60;
-            if (secs == 0) {
-                return mins + "分钟";
-            }
-            return mins + "分" + secs + "秒";
-        } else if (seconds < 86400) {
-            long hours = seconds / 3600;
-            long mins = (seconds % 3600) / 60;
-            if (mins == 0) {
-                return hours + "小时";
-            }
-            return hours + "小时" + mins + "分钟";
-        } else {
-            long days = seconds / 86400;
-            long hours = (seconds % 86400) / 3600;
-            if (hours == 0) {
-                return days + "天";
-            }
-            return days + "天" + hours + "小时";
-        }
+        return timeFormat(null).format(seconds);
+    }
+
+    /**
+     * 按接收者的语言将时间（秒）格式化为可读字符串
+     *
+     * @param audience 消息接收者，玩家按客户端语言选择，其他接收者使用默认语言
+     * @param seconds  总秒数
+     * @return 格式化的时间字符串
+     */
+    public static String formatTime(Audience audience, long seconds) {
+        return timeFormat(audience).format(seconds);
     }
 
     /**
-     * 获取消息前缀
+     * 获取接收者所用语言的时间单位
      *
-     * @return 格式化的消息前缀
+     * @param audience 消息接收者，为null或不是玩家时使用默认语言
+     * @return 时间单位，未初始化时返回内置的中文单位
      */
-    public static String getPrefix() {
-        if (plugin == null) {
-            return colorize(DEFAULT_PREFIX);
+    public static TimeFormat timeFormat(Audience audience) {
+        MessageTemplates current = templates;
+        if (current == null) {
+            return TimeFormat.DEFAULT;
         }
-        String prefix = plugin.getConfig().getString("settings.messagePrefix", DEFAULT_PREFIX);
-        return colorize(prefix);
+        return (audience instanceof Player player ? current.forLocale(player.locale()) : current.getDefault()).getTimeFormat();
+    }
+
+    /**
+     * 按接收者的语言显示复活所需资源
+     *
+     * @param audience    消息接收者，玩家按客户端语言选择，其他接收者使用默认语言
+     * @param reviveNeeds 复活所需资源及数量
+     * @return 使用 § 颜色代码的文本
+     */
+    public static String describeReviveNeeds(Audience audience, Map<String, Integer> reviveNeeds) {
+        return (audience instanceof Player player ? templates.forLocale(player.locale()) : templates.getDefault())
+                .describeReviveNeeds(reviveNeeds);
+    }
+
+    /**
+     * 获取接收者所用语言的消息模板
+     *
+     * @param audience 消息接收者，玩家按客户端语言选择，其他接收者使用默认语言
+     * @param key      消息键
+     * @return 消息模板
+     */
+    public static MessageTemplates.Template template(Audience audience, String key) {
+        return (audience instanceof Player player ? templates.forLocale(player.locale()) : templates.getDefault()).get(key);
     }
 
     /**
-     * 将颜色代码（&）转换为Minecraft颜色格式
+     * 获取默认语言的消息模板
      *
-     * @param message 原始消息
-     * @return 带颜色的消息
+     * @param key 消息键
+     * @return 消息模板
      */
-    public static String colorize(String message) {
-        if (message == null) return "";
-        return message.replace("&", "§");
+    public static MessageTemplates.Template template(String key) {
+        return templates.getDefault().get(key);
     }
 
     /**
-     * 向玩家发送消息
+     * 按消息键向玩家或控制台发送消息
      *
-     * @param player  玩家对象
-     * @param message 消息内容
+     * @param audience     消息接收者
+     * @param key          消息键
+     * @param replacements 依次排列的占位符名称和替换值
      */
-    public static void sendMessage(Player player, String message) {
-        if (player != null && player.isOnline()) {
-            player.sendMessage(colorize(getPrefix() + message));
+    public static void send(Audience audience, String key, String... replacements) {
+        if (audience == null || audience instanceof Player player && !player.isOnline()) {
+            return;
         }
+        audience.sendMessage(template(audience, key).render(replacements));
     }
 
     /**
-     * 通过UUID向玩家发送消息
+     * 按消息键通过UUID向玩家发送消息
      *
-     * @param playerId 玩家UUID
-     * @param message  消息内容
+     * @param playerId     玩家UUID
+     * @param key          消息键
+     * @param replacements 依次排列的占位符名称和替换值
      */
-    public static void sendMessage(UUID playerId, String message) {
+    public static void send(UUID playerId, String key, String... replacements) {
         Player player = Bukkit.getPlayer(playerId);
         if (player != null) {
-            sendMessage(player, message);
+            send(player, key, replacements);
         }
     }
 
@@ -110,8 +129,7 @@ public class Messager {
      * @param timeRemain 剩余时间（秒）
      */
     public static void sendTimeRemainMessage(UUID playerId, long timeRemain) {
-        String formattedTime = formatTime(timeRemain);
-        sendMessage(playerId, "&c你仍在死亡冷却中，还需等待 &e" + formattedTime + " &c才能重生！");
+        sendTime(playerId, "cooldown.remain", timeRemain);
     }
 
     /**
@@ -121,48 +139,39 @@ public class Messager {
      * @param cooldownTime 冷却时间（秒）
      */
     public static void sendDeathMessage(UUID playerId, int cooldownTime) {
-        String formattedTime = formatTime(cooldownTime);
-        sendMessage(playerId, "&c你已死亡，将在 &e" + formattedTime + " &c后被允许重生！");
+        sendTime(playerId, "death.died", cooldownTime);
     }
 
     /**
-     * 发送重生消息
+     * 按消息键向玩家发送带 {time} 占位符的消息，时间按玩家的语言格式化
      *
      * @param playerId 玩家UUID
+     * @param key      消息键
+     * @param seconds  时间（秒）
      */
-    public static void sendRevivalMessage(UUID playerId) {
-        sendMessage(playerId, "&a重生成功，请小心行事！");
+    public static void sendTime(UUID playerId, String key, long seconds) {
+        Player player = Bukkit.getPlayer(playerId);
+        if (player != null) {
+            send(player, key, "time", formatTime(player, seconds));
+        }
     }
 
     /**
-     * 发送重生方式通知
+     * 发送重生消息
      *
      * @param playerId 玩家UUID
-     * @param method   重生方式
-     */
-    public static void sendRevivalMethodMessage(UUID playerId, String method) {
-        sendMessage(playerId, "&a你通过 &e" + method + " &a方式重生了！");
-    }
-
-    /**
-     * 发送广播消息给所有玩家
-     *
-     * @param message 消息内容
      */
-    public static void broadcastMessage(String message) {
-        Bukkit.getOnlinePlayers().forEach(player ->
-                sendMessage(player, message));
+    public static void sendRevivalMessage(UUID playerId) {
+        send(playerId, "revive.success");
     }
 
     /**
-     * 向命令发送者发送消息（可以是玩家或控制台）
+     * 发送重生方式通知
      *
-     * @param sender  命令发送者
-     * @param message 消息内容
+     * @param playerId 玩家UUID
+     * @param method   重生方式
      */
-    public static void sendMessage(org.bukkit.command.CommandSender sender, String message) {
-        if (sender != null) {
-            sender.sendMessage(colorize(getPrefix() + message));
-        }
+    public static void sendRevivalMethodMessage(UUID playerId, String method) {
+        send(playerId, "revive.method", "method", method);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.UUID;
+
+/**
+ * 等待写入数据库的死亡数据变更
+ * 由 {@link WriteQueue} 排队并批量写入
+ */
+public sealed interface PendingWrite {
+
+    /**
+     * 变更所属的玩家
+     *
+     * @return 玩家UUID
+     */
+    UUID playerId();
+
+    /**
+     * 插入一条新的死亡记录
+     *
+     * @param playerId 玩家UUID
+     * @param state    插入时的死亡状态，包含复活方式和处理状态
+     * @param record   死亡的详细数据
+     * @param causeKey 用于死亡原因统计的分类，未知时为null
+     */
+    record InsertDeath(UUID playerId, DeathState state, DeathRecord record, String causeKey) implements PendingWrite {
+
+        /**
+         * 合并之后对同一记录的复活方式更新
+         */
+        InsertDeath merge(UpdateRevival update) {
+            return new InsertDeath(playerId, new DeathState(0L, state.recorded(), state.deathAt(), state.reviveAt(),
+                    update.revivalMethod(), update.handled(), state.location()), record, causeKey);
+        }
+
+        /**
+         * 合并之后对同一记录的死亡数据更新
+         */
+        InsertDeath merge(UpdateDeathData update) {
+            return new InsertDeath(playerId, new DeathState(0L, true, update.deathAt(), update.reviveAt(),
+                    state.revivalMethod(), state.handled(), state.location()), new DeathRecord(update.deathAt(), update.reviveAt(),
+                    update.deathCause(), record.world(), record.x(), record.y(), record.z()), causeKey);
+        }
+    }
+
+    /**
+     * 更新玩家最新死亡记录的复活方式
+     *
+     * @param playerId      玩家UUID
+     * @param rowId         入队时已知的行ID，未知时为0
+     * @param revivalMethod 复活方式
+     * @param handled       是否已处理
+     */
+    record UpdateRevival(UUID playerId, long rowId, String revivalMethod, boolean handled) implements PendingWrite {
+    }
+
+    /**
+     * 更新玩家最新死亡记录的死亡数据，没有记录时插入新记录
+     *
+     * @param playerId   玩家UUID
+     * @param rowId      入队时已知的行ID，未知时为0
+     * @param deathAt    死亡时间的UNIX时间戳（秒）
+     * @param reviveAt   复活时间的UNIX时间戳（秒）
+     * @param deathCause 死亡消息
+     */
+    record UpdateDeathData(UUID playerId, long rowId, long deathAt, long reviveAt,
+                           String deathCause) implements PendingWrite {
+    }
+
+    /**
+     * 记录玩家名称，已有记录时更新名称和最后进入时间
+     *
+     * @param playerId 玩家UUID
+     * @param name     玩家名称
+     * @param lastSeen 最后一次进入服务器的UNIX时间戳（秒）
+     */
+    record UpsertPlayerName(UUID playerId, String name, long lastSeen) implements PendingWrite {
+    }
+}
@@ -0,0 +1,105 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 玩家名称与UUID的内存索引
+ * 按小写名称排序，支持不区分大小写的精确查找和前缀补全，查找不访问数据库
+ */
+public class PlayerNameIndex {
+    private static final long REFRESH_SECONDS = 86400L;
+
+    private final ConcurrentSkipListMap<String, Entry> byName = new ConcurrentSkipListMap<>();
+    private final Map<UUID, Entry> byId = new ConcurrentHashMap<>();
+
+    /**
+     * 记录玩家当前的名称
+     *
+     * @param playerId 玩家UUID
+     * @param name     玩家名称
+     * @param lastSeen 最后一次进入服务器的UNIX时间戳（秒）
+     * @return 名称有变化或距上次记录超过一天时返回true，表示需要写入数据库
+     */
+    public boolean put(UUID playerId, String name, long lastSeen) {
+        Entry previous = byId.get(playerId);
+        if (previous != null && (lastSeen < previous.lastSeen()
+                || previous.name().equals(name) && lastSeen - previous.lastSeen() < REFRESH_SECONDS)) {
+            return false;
+        }
+
+        Entry entry = new Entry(playerId, name, lastSeen);
+        byId.put(playerId, entry);
+        if (previous != null) {
+            // 玩家改名后移除旧名称，旧名称若已被其他玩家使用则保留
+            byName.remove(lowerCase(previous.name()), previous);
+        }
+
+        // 同一个名称先后属于不同玩家时，以最后出现的玩家为准
+        byName.merge(lowerCase(name), entry, (current, candidate) ->
+                candidate.lastSeen() >= current.lastSeen() ? candidate : current);
+        return true;
+    }
+
+    /**
+     * 不区分大小写地查找玩家UUID
+     *
+     * @param name 玩家名称
+     * @return 玩家UUID，未找到时返回null
+     */
+    public UUID find(String name) {
+        Entry entry = byName.get(lowerCase(name));
+        return entry == null ? null : entry.playerId();
+    }
+
+    /**
+     * 不区分大小写地按前缀补全玩家名称
+     *
+     * @param prefix 名称前缀
+     * @param limit  最多返回的数量
+     * @return 按字母顺序排列的玩家名称
+     */
+    public List<String> complete(String prefix, int limit) {
+        String lowerPrefix = lowerCase(prefix);
+        NavigableMap<String, Entry> range = lowerPrefix.isEmpty() ? byName
+                : byName.subMap(lowerPrefix, true, lowerPrefix + Character.MAX_VALUE, false);
+
+        List<String> names = new ArrayList<>(Math.min(limit, 16));
+        for (Entry entry : range.values()) {
+            if (names.size() >= limit) {
+                break;
+            }
+            names.add(entry.name());
+        }
+        return names;
+    }
+
+    /**
+     * 获取索引中的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    private static String lowerCase(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 一条名称记录
+     *
+     * @param playerId 玩家UUID
+     * @param name     玩家名称
+     * @param lastSeen 最后一次进入服务器的UNIX时间戳（秒）
+     */
+    public record Entry(UUID playerId, String name, long lastSeen) {
+    }
+}
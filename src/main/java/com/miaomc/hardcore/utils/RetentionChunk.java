@@ -0,0 +1,17 @@
+package com.miaomc.hardcore.utils;
+
+/**
+ * 保留任务处理一批历史记录的结果
+ *
+ * @param lastId 本批扫描到的最大记录ID，没有更多记录时为-1
+ * @param moved  本批归档或删除的记录数量
+ */
+public record RetentionChunk(long lastId, int moved) {
+
+    /**
+     * 是否已经处理完所有符合条件的记录
+     */
+    public boolean isDone() {
+        return lastId < 0;
+    }
+}
@@ -0,0 +1,93 @@
+package com.miaomc.hardcore.utils;
+
+import com.miaomc.hardcore.HardCore;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 历史死亡记录的定期清理任务
+ * 按主键分批将超过保留期限的历史记录移入归档表或删除，每批之间暂停一段时间，避免长时间持有锁或与玩家查询争抢数据库
+ */
+public class RetentionJob {
+    private final HardCore plugin;
+    private final long maxAgeMillis;
+    private final boolean archive;
+    private final int chunkSize;
+    private final long throttleMillis;
+    private final long intervalTicks;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopped;
+    private BukkitTask task;
+
+    /**
+     * 清理任务构造函数
+     *
+     * @param plugin HardCore 主插件实例
+     */
+    public RetentionJob(HardCore plugin) {
+        this.plugin = plugin;
+        FileConfiguration config = plugin.getConfig();
+        this.maxAgeMillis = TimeUnit.DAYS.toMillis(Math.max(1L, config.getLong("database.retention.maxAge", 30L)));
+        this.archive = !"delete".equalsIgnoreCase(config.getString("database.retention.mode", "archive"));
+        this.chunkSize = Math.max(1, config.getInt("database.retention.chunkSize", 500));
+        this.throttleMillis = Math.max(0L, config.getLong("database.retention.throttle", 200L));
+        this.intervalTicks = Math.max(1L, config.getLong("database.retention.interval", 6L)) * 60L * 60L * 20L;
+    }
+
+    /**
+     * 启动定期清理，服务器启动一分钟后首次执行
+     */
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::run, 60L * 20L, intervalTicks);
+        }
+    }
+
+    /**
+     * 停止定期清理，正在执行的清理会在当前批次完成后结束
+     */
+    public void stop() {
+        stopped = true;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * 执行一轮完整的清理，上一轮未结束时直接跳过
+     */
+    private void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Storage storage = plugin.getStorage();
+            long cutoff = storage.currentDatabaseTime() - maxAgeMillis;
+            long lastId = 0L;
+            long total = 0L;
+            while (!stopped) {
+                RetentionChunk chunk = storage.pruneHistory(lastId, cutoff, chunkSize, archive);
+                if (chunk.isDone()) {
+                    break;
+                }
+                lastId = chunk.lastId();
+                total += chunk.moved();
+                if (throttleMillis > 0L) {
+                    Thread.sleep(throttleMillis);
+                }
+            }
+
+            if (total > 0) {
+                plugin.getLogger().info((archive ? "已归档 " : "已删除 ") + total + " 条历史死亡记录");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+    }
+}
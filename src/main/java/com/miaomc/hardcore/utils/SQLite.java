@@ -0,0 +1,57 @@
+package com.miaomc.hardcore.utils;
+
+import com.miaomc.hardcore.HardCore;
+import com.zaxxer.hikari.HikariConfig;
+
+import java.io.File;
+
+/**
+ * 基于本地文件的 SQLite 存储后端
+ * 适用于单服务器部署，无需额外的数据库服务器，查询在本地完成
+ */
+public class SQLite extends JdbcStorage {
+    private final File databaseFile;
+
+    /**
+     * SQLite 数据库管理工具类构造函数
+     *
+     * @param plugin HardCore 主插件实例，用于访问配置和日志系统
+     */
+    public SQLite(HardCore plugin) {
+        super(plugin, SqlDialect.SQLITE);
+        this.databaseFile = new File(plugin.getDataFolder(), plugin.getConfig().getString("database.file", "hardcore.db"));
+    }
+
+    /**
+     * 创建HikariCP配置
+     * 使用 WAL 日志模式，读取不会被写入线程阻塞
+     *
+     * @return 配置好的HikariConfig对象
+     */
+    @Override
+    protected HikariConfig createHikariConfig() {
+        if (!databaseFile.getParentFile().exists() && !databaseFile.getParentFile().mkdirs()) {
+            plugin.getLogger().warning("无法创建数据库文件目录: " + databaseFile.getParentFile());
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        config.setDriverClassName("org.sqlite.JDBC");
+
+        // SQLite 连接参数
+        config.addDataSourceProperty("journal_mode", "WAL");
+        config.addDataSourceProperty("synchronous", "NORMAL");
+        config.addDataSourceProperty("busy_timeout", "5000");
+
+        // 同一时间只有写入线程写入，少量连接即可满足并发读取
+        config.setMaximumPoolSize(4);
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(10000);
+        config.setMaxLifetime(0);
+
+        config.setConnectionTestQuery("SELECT 1");
+        config.setPoolName("HardCore-SQLite");
+
+        return config;
+    }
+}
@@ -0,0 +1,820 @@
+package com.miaomc.hardcore.utils;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 数据表结构的版本化迁移工具
+ * 每个迁移只执行一次，已执行的版本记录在 {@code <tablename>_schema} 表中。
+ * 只修改表结构的迁移在启动时执行；需要逐行处理已有记录的迁移在启动后由后台任务分批执行，
+ * 其中依赖所有子服都已升级的步骤（如删除旧列）要等 {@code <tablename>_nodes} 表中每个在线子服都上报了足够新的版本才会执行
+ */
+public class SchemaMigrator {
+    /**
+     * 回填类型化列的迁移版本，完成前部分旧记录只有字符串UUID和 death_data JSON
+     */
+    public static final int BACKFILL_VERSION = 4;
+    /**
+     * 把旧版本写入的记录计入死亡统计的迁移版本，完成后才能删除字符串UUID列
+     */
+    public static final int STATS_BACKFILL_VERSION = 11;
+    /**
+     * 删除字符串UUID列的迁移版本
+     */
+    public static final int CONTRACT_VERSION = 12;
+    /**
+     * 子服超过该时间没有上报版本时视为已离线，单位毫秒
+     */
+    public static final long NODE_TIMEOUT_MILLIS = 5L * 60L * 1000L;
+    // 旧版本插件写入时由触发器登记的子服ID，版本号为0，在线期间阻止依赖所有子服升级的迁移
+    static final String LEGACY_NODE_ID = "legacy";
+    // 仍按字符串UUID定位的旧索引，在删除字符串UUID列时一并删除
+    private static final String LATEST_DEATH_INDEX = "idx_player_latest";
+    private static final String LATEST_DEATH_BIN_INDEX = "idx_player_latest_bin";
+    private static final String REVIVE_AT_INDEX = "idx_revive_at";
+    private static final String SERVER_UPDATED_INDEX = "idx_server_updated";
+    private static final String PLAYER_NAME_INDEX = "idx_name_lower";
+    private static final String STATS_DEATHS_INDEX = "idx_stats_deaths";
+    private static final String STATS_SURVIVAL_INDEX = "idx_stats_survival";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    private static final int BACKFILL_CHUNK_SIZE = 1000;
+    private static final String BACKFILL_UPDATE_SQL = "UPDATE `%s` SET uuid_bin = ?, death_at = ?, revive_at = ?, " +
+            "death_cause = ?, death_world = ?, death_x = ?, death_y = ?, death_z = ? WHERE id = ?";
+
+    private final Logger logger;
+    private final String tablename;
+    private final String versionTable;
+    private final String nodeTable;
+    private final SqlDialect dialect;
+    private final List<Migration> migrations;
+
+    /**
+     * 数据表迁移工具构造函数
+     *
+     * @param logger    输出迁移进度的日志
+     * @param tablename 死亡数据表名称
+     * @param dialect   数据库使用的 SQL 方言
+     */
+    public SchemaMigrator(Logger logger, String tablename, SqlDialect dialect) {
+        this.logger = logger;
+        this.tablename = tablename;
+        this.versionTable = tablename + "_schema";
+        this.nodeTable = nodeTableName(tablename);
+        this.dialect = dialect;
+        this.migrations = List.of(
+                new Migration(1, "创建死亡数据表", false, 0, this::createDeathTable),
+                new Migration(2, "添加玩家最新死亡记录索引", false, 0, this::addLatestDeathIndex),
+                new Migration(3, "添加类型化死亡数据列", false, 0, this::addTypedColumns),
+                new Migration(BACKFILL_VERSION, "回填类型化死亡数据列", true, 0, this::backfillTypedColumns),
+                new Migration(5, "添加二进制UUID索引和旧版本兼容触发器", false, 0, this::expandBinaryUuid),
+                new Migration(6, "添加跨服同步索引", false, 0, this::addServerUpdatedIndex),
+                new Migration(7, "创建玩家名称索引表", false, 0, this::createPlayerNameTable),
+                new Migration(8, "创建死亡记录归档表", false, 0, this::createArchiveTable),
+                new Migration(9, "创建死亡统计表", false, 0, this::createStatsTables),
+                new Migration(10, "创建本地日志重放进度表", false, 0, this::createJournalTable),
+                new Migration(STATS_BACKFILL_VERSION, "回填旧版本记录的死亡次数", true, BACKFILL_VERSION, this::backfillDeathStats),
+                new Migration(CONTRACT_VERSION, "删除字符串UUID列", true, STATS_BACKFILL_VERSION, this::contractBinaryUuid),
+                new Migration(13, "添加死亡原因分类列", false, 0, this::addCauseKeyColumn)
+        );
+    }
+
+    /**
+     * 执行所有尚未应用的表结构迁移，逐行处理记录的迁移留给 {@link #migrateOnline(Connection)}
+     * 多个子服同时启动时通过数据库命名锁保证只有一个子服执行迁移
+     *
+     * @param connection 数据库连接
+     * @return 所有迁移是否成功执行
+     */
+    public boolean migrate(Connection connection) {
+        String lockName = tablename + "_migration";
+        try {
+            createVersionTable(connection);
+            createNodeTable(connection);
+            if (!acquireLock(connection, lockName, LOCK_TIMEOUT_SECONDS)) {
+                logger.severe("等待数据表迁移锁超时，可能有其他子服正在迁移");
+                return false;
+            }
+
+            try {
+                Set<Integer> applied = getAppliedVersions(connection);
+                int currentVersion = applied.stream().mapToInt(Integer::intValue).max().orElse(0);
+                int latestVersion = migrations.getLast().version();
+                if (currentVersion > latestVersion) {
+                    logger.warning("数据表版本 " + currentVersion + " 高于插件支持的版本 " + latestVersion + "，请升级插件");
+                    return true;
+                }
+
+                for (Migration migration : migrations) {
+                    if (migration.online() || applied.contains(migration.version())) {
+                        continue;
+                    }
+
+                    logger.info("正在执行数据表迁移 v" + migration.version() + ": " + migration.description());
+                    migration.step().apply(connection);
+                    recordVersion(connection, migration);
+                    applied.add(migration.version());
+                }
+
+                if (isEmpty(connection) && allNodesReached(connection, latestVersion)) {
+                    // 新建的数据表没有需要回填的记录，后台迁移直接在启动时完成
+                    for (Migration migration : migrations) {
+                        if (migration.online() && !applied.contains(migration.version())) {
+                            logger.info("正在执行数据表迁移 v" + migration.version() + ": " + migration.description());
+                            applyOnline(connection, migration);
+                            applied.add(migration.version());
+                        }
+                    }
+                } else if (applied.contains(STATS_BACKFILL_VERSION) && !applied.contains(CONTRACT_VERSION) && requiresLegacyUuid(connection)) {
+                    // 无法修改列默认值时（SQLite），本服务器运行期间一直写入字符串UUID列，只能在启动时、开始写入之前删除；
+                    // 嵌入式数据库只有本服务器访问，不需要等待其他子服
+                    applyOnline(connection, migration(CONTRACT_VERSION));
+                }
+            } finally {
+                releaseLock(connection, lockName);
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "执行数据表迁移时发生错误: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 按顺序执行可以执行的后台迁移，由后台任务定期调用
+     * 每个迁移的前一个迁移完成、且所有在线子服上报的版本都达到要求后才会执行；
+     * 多个子服之间通过非阻塞的命名锁保证同一时间只有一个子服执行，锁被占用时直接返回
+     *
+     * @param connection 数据库连接
+     * @return 是否所有迁移都已完成，完成后无需再调用
+     * @throws SQLException 如果迁移失败，已完成的迁移会保留
+     */
+    public boolean migrateOnline(Connection connection) throws SQLException {
+        String lockName = tablename + "_online_migration";
+        if (!acquireLock(connection, lockName, 0)) {
+            return false;
+        }
+        try {
+            Set<Integer> applied = getAppliedVersions(connection);
+            for (Migration migration : migrations) {
+                if (applied.contains(migration.version())) {
+                    continue;
+                }
+                if (!migration.online() || !allNodesReached(connection, migration.nodeVersion())) {
+                    return false;
+                }
+                if (migration.version() == CONTRACT_VERSION && requiresLegacyUuid(connection)) {
+                    // 本服务器仍在写入字符串UUID列，等下次启动时执行
+                    return false;
+                }
+                logger.info("正在后台执行数据表迁移 v" + migration.version() + ": " + migration.description());
+                applyOnline(connection, migration);
+                applied.add(migration.version());
+            }
+            return true;
+        } finally {
+            releaseLock(connection, lockName);
+        }
+    }
+
+    /**
+     * 获取已执行的迁移版本
+     *
+     * @param connection 数据库连接
+     * @return 已执行的版本号
+     * @throws SQLException 如果查询失败
+     */
+    public Set<Integer> getAppliedVersions(Connection connection) throws SQLException {
+        Set<Integer> applied = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version FROM `" + versionTable + "`")) {
+            while (resultSet.next()) {
+                applied.add(resultSet.getInt(1));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * 子服已经看到的表结构版本，即从 v1 开始连续执行完成的最大版本
+     *
+     * @param applied 已执行的版本号
+     * @return 版本号
+     */
+    public static int observedVersion(Set<Integer> applied) {
+        int version = 0;
+        while (applied.contains(version + 1)) {
+            version++;
+        }
+        return version;
+    }
+
+    /**
+     * 上报本子服看到的表结构版本，其他子服据此判断是否可以执行依赖所有子服升级的迁移
+     *
+     * @param connection 数据库连接
+     * @param nodeId     本次运行的子服ID
+     * @param serverName 子服名称
+     * @param version    本子服看到的表结构版本
+     * @throws SQLException 如果写入失败
+     */
+    public void reportNode(Connection connection, String nodeId, String serverName, int version) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(dialect.upsert(nodeTable, "node_id",
+                List.of("node_id", "server_name", "schema_version", "last_seen")))) {
+            statement.setString(1, nodeId);
+            statement.setString(2, serverName);
+            statement.setInt(3, version);
+            statement.setLong(4, System.currentTimeMillis());
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * 字符串UUID列是否仍需要由本插件写入
+     * 数据库不支持修改列默认值时（SQLite），在删除该列之前插入记录必须同时写入字符串UUID
+     *
+     * @param connection 数据库连接
+     * @return 需要写入时返回true
+     * @throws SQLException 如果读取表结构失败
+     */
+    public boolean requiresLegacyUuid(Connection connection) throws SQLException {
+        return !dialect.supportsColumnDefaults() && hasColumn(connection, "uuid");
+    }
+
+    /**
+     * v1: 创建死亡数据表
+     * 表结构包含：id, uuid, server_name, death_data, revival_method, update_date, create_date
+     */
+    private void createDeathTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + tablename + "` (" +
+                    "id " + dialect.autoIncrementPrimaryKey() + ", " +
+                    "uuid VARCHAR(36) NOT NULL, " +
+                    "server_name VARCHAR(64) NOT NULL, " +
+                    "death_data TEXT, " +
+                    "revival_method VARCHAR(128), " +
+                    "handled BOOLEAN DEFAULT FALSE, " +
+                    "update_date " + dialect.updateDateColumn() + ", " +
+                    "create_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+        }
+    }
+
+    /**
+     * v2: 添加 (uuid, server_name, update_date, id) 复合索引
+     * 查询玩家最新记录时可以直接反向扫描索引，不再对玩家全部历史记录排序
+     * MySQL 上使用 INPLACE 算法在线添加，迁移期间不阻塞读写
+     */
+    private void addLatestDeathIndex(Connection connection) throws SQLException {
+        if (hasIndex(connection, LATEST_DEATH_INDEX)) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(dialect.createIndex(tablename, LATEST_DEATH_INDEX, "uuid, server_name, update_date, id"));
+        }
+    }
+
+    /**
+     * v3: 添加类型化的死亡数据列和二进制UUID列
+     * 冷却检查只需读取 revive_at，不再解析 death_data JSON
+     */
+    private void addTypedColumns(Connection connection) throws SQLException {
+        List<String> definitions = new ArrayList<>();
+        addIfMissing(connection, definitions, "uuid_bin", dialect.binaryUuidType());
+        addIfMissing(connection, definitions, "death_at", "BIGINT");
+        addIfMissing(connection, definitions, "revive_at", "BIGINT");
+        addIfMissing(connection, definitions, "death_cause", "VARCHAR(512)");
+        addIfMissing(connection, definitions, "death_world", "VARCHAR(64)");
+        addIfMissing(connection, definitions, "death_x", "DOUBLE");
+        addIfMissing(connection, definitions, "death_y", "DOUBLE");
+        addIfMissing(connection, definitions, "death_z", "DOUBLE");
+        if (definitions.isEmpty()) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : dialect.addColumns(tablename, definitions)) {
+                statement.executeUpdate(sql);
+            }
+        }
+    }
+
+    /**
+     * v4（后台）: 将已有记录的 uuid 和 death_data 回填到新列
+     * 按主键分批处理，每批单独提交，避免长时间持有锁
+     */
+    private void backfillTypedColumns(Connection connection) throws SQLException {
+        if (!hasColumn(connection, "uuid_bin")) {
+            return;
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        long lastId = 0L;
+        long total = 0L;
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, uuid, death_data FROM `" + tablename +
+                "` WHERE id > ? AND uuid_bin IS NULL ORDER BY id LIMIT ?");
+             PreparedStatement update = connection.prepareStatement(String.format(BACKFILL_UPDATE_SQL, tablename))) {
+
+            while (true) {
+                select.setLong(1, lastId);
+                select.setInt(2, BACKFILL_CHUNK_SIZE);
+
+                int count = 0;
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        lastId = resultSet.getLong("id");
+                        bindBackfill(update, lastId, resultSet.getString("uuid"), resultSet.getString("death_data"));
+                        update.addBatch();
+                        count++;
+                    }
+                }
+                if (count == 0) {
+                    break;
+                }
+
+                update.executeBatch();
+                connection.commit();
+                total += count;
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        if (total > 0) {
+            logger.info("已回填 " + total + " 条死亡记录");
+        }
+    }
+
+    /**
+     * 回填某个玩家尚未回填的旧记录，后台回填完成前读写该玩家的最新记录之前调用
+     *
+     * @param connection 数据库连接
+     * @param playerId   玩家的UUID
+     * @throws SQLException 如果回填失败
+     */
+    public void backfillPlayer(Connection connection, UUID playerId) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, uuid, death_data FROM `" + tablename +
+                "` WHERE uuid = ? AND uuid_bin IS NULL");
+             PreparedStatement update = connection.prepareStatement(String.format(BACKFILL_UPDATE_SQL, tablename))) {
+            select.setString(1, playerId.toString());
+            boolean found = false;
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    bindBackfill(update, resultSet.getLong("id"), resultSet.getString("uuid"), resultSet.getString("death_data"));
+                    update.addBatch();
+                    found = true;
+                }
+            }
+            if (found) {
+                update.executeBatch();
+            }
+        }
+    }
+
+    private void bindBackfill(PreparedStatement update, long id, String uuid, String deathData) throws SQLException {
+        UUID playerId;
+        try {
+            playerId = UUID.fromString(uuid);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            logger.warning("死亡记录 " + id + " 的UUID无效: " + uuid);
+            playerId = new UUID(0L, 0L);
+        }
+        update.setBytes(1, UuidUtil.toBytes(playerId));
+
+        if (deathData == null || deathData.isEmpty()) {
+            update.setNull(2, Types.BIGINT);
+            update.setNull(3, Types.BIGINT);
+            update.setNull(4, Types.VARCHAR);
+            update.setNull(5, Types.VARCHAR);
+            update.setNull(6, Types.DOUBLE);
+            update.setNull(7, Types.DOUBLE);
+            update.setNull(8, Types.DOUBLE);
+        } else {
+            DeathRecord record = DeathRecord.fromJson(deathData);
+            update.setLong(2, record.deathAt());
+            update.setLong(3, record.reviveAt());
+            update.setString(4, record.deathCause());
+            update.setString(5, record.world());
+            update.setDouble(6, record.x());
+            update.setDouble(7, record.y());
+            update.setDouble(8, record.z());
+        }
+        update.setLong(9, id);
+    }
+
+    /**
+     * v5: 扩展步骤，插件从此按二进制UUID列读写，字符串UUID列保留给仍在运行的旧版本插件
+     * 添加以二进制UUID开头的最新记录索引；MySQL 上为字符串UUID列设置默认值，新插件插入时不再写入，
+     * 并添加触发器在两列之间互相补全：旧版本写入的记录补上二进制UUID和类型化列，新插件写入的记录补上字符串UUID。
+     * 没有权限创建触发器时只记录警告，旧版本写入的记录由后台回填补上
+     */
+    private void expandBinaryUuid(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (!hasIndex(connection, LATEST_DEATH_BIN_INDEX)) {
+                statement.executeUpdate(dialect.createIndex(tablename, LATEST_DEATH_BIN_INDEX,
+                        "uuid_bin, server_name, update_date, id"));
+            }
+            if (!hasIndex(connection, REVIVE_AT_INDEX)) {
+                statement.executeUpdate(dialect.createIndex(tablename, REVIVE_AT_INDEX, "server_name, revive_at"));
+            }
+            if (!hasColumn(connection, "uuid")) {
+                return;
+            }
+            if (dialect.supportsColumnDefaults()) {
+                statement.executeUpdate(dialect.setColumnDefault(tablename, "uuid", "''"));
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : dialect.createLegacyUuidTriggers(tablename, nodeTable, LEGACY_NODE_ID)) {
+                statement.executeUpdate(sql);
+            }
+        } catch (SQLException e) {
+            logger.warning("无法创建兼容旧版本插件的触发器，旧版本写入的记录需等待后台回填: " + e.getMessage());
+        }
+    }
+
+    /**
+     * v6: 添加 (server_name, update_date) 索引
+     * 跨服同步每次轮询只需对本服范围做一次索引范围扫描
+     */
+    private void addServerUpdatedIndex(Connection connection) throws SQLException {
+        if (hasIndex(connection, SERVER_UPDATED_INDEX)) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(dialect.createIndex(tablename, SERVER_UPDATED_INDEX, "server_name, update_date"));
+        }
+    }
+
+    /**
+     * v7: 创建玩家名称与UUID的对应表
+     * 用于离线玩家的 /mhc reset 和命令补全，玩家进入服务器时批量写入
+     */
+    private void createPlayerNameTable(Connection connection) throws SQLException {
+        String playerTable = playerTableName(tablename);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + playerTable + "` (" +
+                    "uuid " + dialect.binaryUuidType() + " NOT NULL PRIMARY KEY, " +
+                    "name VARCHAR(16) NOT NULL, " +
+                    "name_lower VARCHAR(16) NOT NULL, " +
+                    "last_seen BIGINT NOT NULL" +
+                    ")");
+            if (!hasIndex(connection, playerTable, PLAYER_NAME_INDEX)) {
+                statement.executeUpdate(dialect.createIndex(playerTable, PLAYER_NAME_INDEX, "name_lower"));
+            }
+        }
+    }
+
+    /**
+     * v8: 创建死亡记录归档表
+     * 保留原记录的ID和所有列，由保留任务把过期的历史记录从主表移入
+     */
+    private void createArchiveTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + archiveTableName(tablename) + "` (" +
+                    "id BIGINT NOT NULL PRIMARY KEY, " +
+                    "uuid " + dialect.binaryUuidType() + " NOT NULL, " +
+                    "server_name VARCHAR(64) NOT NULL, " +
+                    "death_at BIGINT, " +
+                    "revive_at BIGINT, " +
+                    "death_cause VARCHAR(512), " +
+                    "death_world VARCHAR(64), " +
+                    "death_x DOUBLE, " +
+                    "death_y DOUBLE, " +
+                    "death_z DOUBLE, " +
+                    "death_data TEXT, " +
+                    "revival_method VARCHAR(128), " +
+                    "handled BOOLEAN, " +
+                    "update_date TIMESTAMP NULL, " +
+                    "create_date TIMESTAMP NULL, " +
+                    "archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+        }
+    }
+
+    /**
+     * v9: 创建按玩家和按死亡原因汇总的统计表
+     * 由写入线程在写入死亡和复活记录的同一事务中增量更新，排行榜只需按索引读取前几名；旧版本写入的记录由 v11 在后台回填
+     */
+    private void createStatsTables(Connection connection) throws SQLException {
+        String statsTable = statsTableName(tablename);
+        String causeTable = causeStatsTableName(tablename);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + statsTable + "` (" +
+                    "uuid " + dialect.binaryUuidType() + " NOT NULL, " +
+                    "server_name VARCHAR(64) NOT NULL, " +
+                    "deaths INT NOT NULL DEFAULT 0, " +
+                    "longest_survival BIGINT NOT NULL DEFAULT 0, " +
+                    "alive_since BIGINT NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (uuid, server_name)" +
+                    ")");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + causeTable + "` (" +
+                    "server_name VARCHAR(64) NOT NULL, " +
+                    "cause VARCHAR(64) NOT NULL, " +
+                    "deaths INT NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (server_name, cause)" +
+                    ")");
+            if (!hasIndex(connection, statsTable, STATS_DEATHS_INDEX)) {
+                statement.executeUpdate(dialect.createIndex(statsTable, STATS_DEATHS_INDEX, "server_name, deaths"));
+            }
+            if (!hasIndex(connection, statsTable, STATS_SURVIVAL_INDEX)) {
+                statement.executeUpdate(dialect.createIndex(statsTable, STATS_SURVIVAL_INDEX, "server_name, longest_survival"));
+            }
+        }
+    }
+
+    private void createJournalTable(Connection connection) throws SQLException {
+        // 每个本地日志文件已重放到的序号，与重放的写入在同一事务中更新，重复重放时跳过已提交的批次
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + journalTableName(tablename) + "` (" +
+                    "journal_id VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                    "last_seq BIGINT NOT NULL" +
+                    ")");
+        }
+    }
+
+    /**
+     * v11（后台，所有子服升级后）: 把旧版本写入的记录计入每个玩家的死亡次数
+     * 新插件写入的记录没有 death_data，已由写入线程增量计入；旧版本插件停止写入后才执行，不会漏计。
+     * 与版本记录在同一事务中提交，中断后重新执行不会重复累加
+     */
+    private void backfillDeathStats(Connection connection) throws SQLException {
+        String statsTable = statsTableName(tablename);
+        try (Statement statement = connection.createStatement()) {
+            int backfilled = statement.executeUpdate("INSERT INTO `" + statsTable + "` (uuid, server_name, deaths) " +
+                    "SELECT uuid, server_name, COUNT(*) FROM (" +
+                    "SELECT uuid_bin AS uuid, server_name FROM `" + tablename + "` " +
+                    "WHERE death_data IS NOT NULL AND death_at IS NOT NULL AND uuid_bin IS NOT NULL " +
+                    "UNION ALL SELECT uuid, server_name FROM `" + archiveTableName(tablename) + "` " +
+                    "WHERE death_data IS NOT NULL AND death_at IS NOT NULL" +
+                    ") deaths GROUP BY uuid, server_name" +
+                    dialect.onConflictUpdate("uuid, server_name") + "deaths = deaths + " + dialect.excluded("deaths"));
+            logger.info("已回填 " + backfilled + " 个玩家的死亡次数");
+        }
+    }
+
+    /**
+     * v12（后台，所有子服都已按二进制UUID读写后）: 收缩步骤，删除字符串UUID列及其索引和兼容触发器
+     * 删除前再回填一次，覆盖没有触发器时旧版本插件写入的记录
+     */
+    private void contractBinaryUuid(Connection connection) throws SQLException {
+        backfillTypedColumns(connection);
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : dialect.dropLegacyUuidTriggers(tablename)) {
+                statement.executeUpdate(sql);
+            }
+            if (hasIndex(connection, LATEST_DEATH_INDEX)) {
+                statement.executeUpdate(dialect.dropIndex(tablename, LATEST_DEATH_INDEX));
+            }
+            if (hasColumn(connection, "uuid")) {
+                statement.executeUpdate(dialect.dropColumn(tablename, "uuid"));
+            }
+        }
+    }
+
+    /**
+     * v13: 为死亡记录和归档表添加死亡原因分类列
+     * 与死亡原因排行和 {@code HardcorePlayerDeathEvent#getDeathCause()} 使用相同的分类，批量操作按分类精确筛选
+     */
+    private void addCauseKeyColumn(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : List.of(tablename, archiveTableName(tablename))) {
+                if (!hasColumn(connection, table, "cause_key")) {
+                    for (String sql : dialect.addColumns(table, List.of("cause_key VARCHAR(64)"))) {
+                        statement.executeUpdate(sql);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 玩家死亡统计表的表名
+     *
+     * @param tablename 死亡数据表名称
+     * @return 玩家死亡统计表名称
+     */
+    static String statsTableName(String tablename) {
+        return tablename + "_stats";
+    }
+
+    /**
+     * 死亡原因统计表的表名
+     *
+     * @param tablename 死亡数据表名称
+     * @return 死亡原因统计表名称
+     */
+    static String causeStatsTableName(String tablename) {
+        return tablename + "_causes";
+    }
+
+    /**
+     * 死亡记录归档表的表名
+     *
+     * @param tablename 死亡数据表名称
+     * @return 归档表名称
+     */
+    static String archiveTableName(String tablename) {
+        return tablename + "_archive";
+    }
+
+    /**
+     * 本地日志重放进度表的表名
+     *
+     * @param tablename 死亡数据表名称
+     * @return 重放进度表名称
+     */
+    static String journalTableName(String tablename) {
+        return tablename + "_journal";
+    }
+
+    /**
+     * 子服版本上报表的表名
+     *
+     * @param tablename 死亡数据表名称
+     * @return 子服版本上报表名称
+     */
+    static String nodeTableName(String tablename) {
+        return tablename + "_nodes";
+    }
+
+    /**
+     * 玩家名称表的表名
+     *
+     * @param tablename 死亡数据表名称
+     * @return 玩家名称表名称
+     */
+    static String playerTableName(String tablename) {
+        return tablename + "_players";
+    }
+
+    private void createVersionTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + versionTable + "` (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(255) NOT NULL, " +
+                    "applied_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+        }
+    }
+
+    private void createNodeTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + nodeTable + "` (" +
+                    "node_id VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                    "server_name VARCHAR(64), " +
+                    "schema_version INT NOT NULL, " +
+                    "last_seen BIGINT NOT NULL" +
+                    ")");
+        }
+    }
+
+    /**
+     * 所有在线子服上报的版本是否都不低于指定版本，包括触发器登记的旧版本插件
+     */
+    private boolean allNodesReached(Connection connection, int version) throws SQLException {
+        if (version <= 0) {
+            return true;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COUNT(*) FROM `" + nodeTable + "` WHERE last_seen > ? AND schema_version < ?")) {
+            statement.setLong(1, System.currentTimeMillis() - NODE_TIMEOUT_MILLIS);
+            statement.setInt(2, version);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 0;
+            }
+        }
+    }
+
+    private boolean isEmpty(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT 1 FROM `" + tablename + "` LIMIT 1")) {
+            return !resultSet.next();
+        }
+    }
+
+    /**
+     * 按版本号查找迁移
+     */
+    private Migration migration(int version) {
+        return migrations.stream().filter(migration -> migration.version() == version).findFirst()
+                .orElseThrow(() -> new IllegalStateException("未定义的数据表迁移版本 " + version));
+    }
+
+    /**
+     * 在一个事务中执行后台迁移并记录版本，迁移内部分批提交的部分在中断后可以安全地重新执行
+     */
+    private void applyOnline(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            migration.step().apply(connection);
+            recordVersion(connection, migration);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void recordVersion(Connection connection, Migration migration) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO `" + versionTable + "` (version, description) VALUES (?, ?)")) {
+            statement.setInt(1, migration.version());
+            statement.setString(2, migration.description());
+            statement.executeUpdate();
+        }
+    }
+
+    private boolean hasColumn(Connection connection, String columnName) throws SQLException {
+        return hasColumn(connection, tablename, columnName);
+    }
+
+    private boolean hasColumn(Connection connection, String table, String columnName) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(null, null, table, columnName)) {
+            return columns.next();
+        }
+    }
+
+    private void addIfMissing(Connection connection, List<String> definitions, String columnName, String type) throws SQLException {
+        if (!hasColumn(connection, columnName)) {
+            definitions.add(columnName + " " + type);
+        }
+    }
+
+    private boolean hasIndex(Connection connection, String indexName) throws SQLException {
+        return hasIndex(connection, tablename, indexName);
+    }
+
+    private boolean hasIndex(Connection connection, String table, String indexName) throws SQLException {
+        try (ResultSet indexes = connection.getMetaData().getIndexInfo(null, null, table, false, false)) {
+            while (indexes.next()) {
+                if (indexName.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean acquireLock(Connection connection, String lockName, int timeoutSeconds) throws SQLException {
+        if (!dialect.supportsNamedLocks()) {
+            // 嵌入式数据库只有本服务器访问，无需加锁
+            return true;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, lockName);
+            statement.setInt(2, timeoutSeconds);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection, String lockName) {
+        if (!dialect.supportsNamedLocks()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, lockName);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "释放数据表迁移锁时发生错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 单个迁移步骤
+     */
+    @FunctionalInterface
+    private interface MigrationStep {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * 迁移定义
+     *
+     * @param version     迁移后的版本号
+     * @param description 迁移描述
+     * @param online      是否由后台任务执行
+     * @param nodeVersion 后台迁移执行前所有在线子服上报的版本至少要达到的版本，0表示不需要等待其他子服
+     * @param step        迁移执行逻辑
+     */
+    private record Migration(int version, String description, boolean online, int nodeVersion, MigrationStep step) {
+    }
+}
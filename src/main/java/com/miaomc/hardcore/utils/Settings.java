@@ -0,0 +1,151 @@
+package com.miaomc.hardcore.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * config.yml 中 settings 部分的不可变快照
+ * 启动和执行 /mhc reload 时解析并校验一次，整体替换；事件和命令处理只读取字段，不再查询配置
+ *
+ * @param serverName             子服名称，存储后端在启动时使用，重载时不会改变
+ * @param reviveCooldown         复活冷却时间，单位秒
+ * @param messagePrefix          消息前缀，使用 &amp; 颜色代码
+ * @param locale                 默认语言
+ * @param useHardcoreHearts      是否使用极限模式爱心显示
+ * @param keepInventory          死亡时是否保留物品
+ * @param reviveProcess          复活时以控制台身份执行的命令
+ * @param reviveNeeds            复活所需资源及数量，按配置顺序排列
+ * @param deathChestProtection   死亡箱只允许本人打开的时间，单位秒，0表示始终只允许本人
+ * @param prefetchTimeout        登录时预加载死亡数据的最长等待时间，单位毫秒
+ * @param denyOnPrefetchTimeout  预加载超时时是否拒绝登录
+ * @param denyOnOutage           数据库熔断期间是否拒绝本地没有死亡状态的玩家登录
+ * @param spectatorLeash         是否限制死亡后旁观者的活动范围
+ * @param spectatorLeashRadius   旁观者活动范围的水平半径，单位格
+ * @param spectatorLeashInterval 每名旁观者的检查间隔，单位tick
+ */
+public record Settings(String serverName, int reviveCooldown, String messagePrefix, String locale,
+                       boolean useHardcoreHearts, boolean keepInventory, List<String> reviveProcess,
+                       Map<String, Integer> reviveNeeds, long deathChestProtection,
+                       long prefetchTimeout, boolean denyOnPrefetchTimeout, boolean denyOnOutage,
+                       boolean spectatorLeash, double spectatorLeashRadius, int spectatorLeashInterval) {
+    public static final String DEFAULT_PREFIX = "&7[&a硬核模式&7] ";
+    private static final int DEFAULT_REVIVE_POINTS = 100;
+
+    /**
+     * 解析并校验配置，无效的值记录警告后使用默认值
+     *
+     * @param config 插件配置
+     * @param logger 用于输出警告的日志
+     * @return 配置快照
+     */
+    public static Settings load(ConfigurationSection config, Logger logger) {
+        int reviveCooldown = config.getInt("settings.reviveCooldown", 3600);
+        if (reviveCooldown < 0) {
+            logger.warning("settings.reviveCooldown 不能为负数，已使用 0");
+            reviveCooldown = 0;
+        }
+
+        long protection = config.getLong("settings.deathChest.protection", 600L);
+        if (protection < 0L) {
+            logger.warning("settings.deathChest.protection 不能为负数，已使用 0");
+            protection = 0L;
+        }
+
+        long prefetchTimeout = config.getLong("settings.prefetch.timeout", 3000L);
+        if (prefetchTimeout <= 0L) {
+            logger.warning("settings.prefetch.timeout 必须大于 0，已使用 3000");
+            prefetchTimeout = 3000L;
+        }
+
+        String onTimeout = config.getString("settings.prefetch.onTimeout", "deny");
+        if (!"deny".equalsIgnoreCase(onTimeout) && !"async".equalsIgnoreCase(onTimeout)) {
+            logger.warning("settings.prefetch.onTimeout 只能为 deny 或 async，已使用 deny");
+        }
+
+        String onOutage = config.getString("settings.prefetch.onOutage", "allow");
+        if (!"deny".equalsIgnoreCase(onOutage) && !"allow".equalsIgnoreCase(onOutage)) {
+            logger.warning("settings.prefetch.onOutage 只能为 allow 或 deny，已使用 allow");
+        }
+
+        double leashRadius = config.getDouble("settings.spectatorLeash.radius", 64D);
+        if (leashRadius < 1D) {
+            logger.warning("settings.spectatorLeash.radius 不能小于 1，已使用 64");
+            leashRadius = 64D;
+        }
+
+        int leashInterval = config.getInt("settings.spectatorLeash.checkInterval", 10);
+        if (leashInterval < 1) {
+            logger.warning("settings.spectatorLeash.checkInterval 必须大于 0，已使用 10");
+            leashInterval = 10;
+        }
+
+        return new Settings(
+                config.getString("settings.serverName", "root"),
+                reviveCooldown,
+                config.getString("settings.messagePrefix", DEFAULT_PREFIX),
+                config.getString("settings.locale", "zh_cn"),
+                config.getBoolean("settings.useHardcoreHearts", true),
+                config.getBoolean("settings.keepInventory", false),
+                List.copyOf(config.getStringList("settings.reviveProcess")),
+                parseReviveNeeds(config, logger),
+                protection,
+                prefetchTimeout,
+                !"async".equalsIgnoreCase(onTimeout),
+                "deny".equalsIgnoreCase(onOutage),
+                config.getBoolean("settings.spectatorLeash.enabled", false),
+                leashRadius,
+                leashInterval);
+    }
+
+    /**
+     * 解析复活所需资源，同时支持列表写法（- playerpoints: 100）和节点写法（playerpoints: 100）
+     */
+    private static Map<String, Integer> parseReviveNeeds(ConfigurationSection config, Logger logger) {
+        Map<String, Integer> needs = new LinkedHashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("settings.reviveNeed");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                putReviveNeed(needs, key, section.get(key), logger);
+            }
+        } else {
+            for (Map<?, ?> entry : config.getMapList("settings.reviveNeed")) {
+                entry.forEach((key, value) -> putReviveNeed(needs, String.valueOf(key), value, logger));
+            }
+        }
+        return Collections.unmodifiableMap(needs);
+    }
+
+    private static void putReviveNeed(Map<String, Integer> needs, String key, Object value, Logger logger) {
+        if (value instanceof Number number && number.intValue() >= 0) {
+            needs.put(key, number.intValue());
+        } else {
+            logger.warning("settings.reviveNeed." + key + " 必须为非负整数，已忽略");
+        }
+    }
+
+    /**
+     * 获取使用 PlayerPoints 立即复活所需的点数
+     *
+     * @return 点数，未配置时为100
+     */
+    public int reviveNeedPoints() {
+        return reviveNeeds.getOrDefault("playerpoints", DEFAULT_REVIVE_POINTS);
+    }
+
+    /**
+     * 返回子服名称替换为指定值的副本，重载时用于保留启动时的子服名称
+     *
+     * @param name 子服名称
+     * @return 配置快照
+     */
+    public Settings withServerName(String name) {
+        return new Settings(name, reviveCooldown, messagePrefix, locale, useHardcoreHearts, keepInventory, reviveProcess,
+                reviveNeeds, deathChestProtection, prefetchTimeout, denyOnPrefetchTimeout,
+                denyOnOutage, spectatorLeash, spectatorLeashRadius, spectatorLeashInterval);
+    }
+}
@@ -0,0 +1,206 @@
+package com.miaomc.hardcore.utils;
+
+import com.miaomc.hardcore.HardCore;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 把死亡后处于旁观者模式的玩家限制在死亡位置附近
+ * 不监听 PlayerMoveEvent，而是由一个每 tick 执行的任务轮流抽查已登记的玩家，每名玩家每隔 checkInterval tick 检查一次；
+ * 只比较水平距离的平方，不分配对象。越界的玩家被拉回到边界以内、离当前位置最近的点，目标区块通常仍在加载中。
+ * 玩家复活（不再是旁观者模式）或离线后自动移除。开关、半径和检查间隔每 tick 从配置快照读取，执行 /mhc reload 后立即生效。
+ * 所有方法都只应在主线程调用
+ */
+public class SpectatorLeash implements Listener {
+    private final HardCore plugin;
+    private final List<Leash> leashes = new ArrayList<>();
+    private final Map<UUID, Leash> byPlayer = new HashMap<>();
+    // 复用的坐标对象，读取玩家位置时不分配新对象
+    private final Location scratch = new Location(null, 0D, 0D, 0D);
+    private int cursor;
+    private BukkitTask task;
+
+    /**
+     * 旁观者活动范围限制构造函数
+     *
+     * @param plugin HardCore 主插件实例
+     */
+    public SpectatorLeash(HardCore plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 启动检查任务，重复调用不会创建多个任务
+     */
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * 停止检查任务并清空所有登记
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        leashes.clear();
+        byPlayer.clear();
+    }
+
+    /**
+     * 登记玩家的死亡位置，同一玩家重复登记时使用新的位置，未启用时忽略
+     *
+     * @param player   旁观者模式的玩家
+     * @param location 死亡位置
+     */
+    public void register(Player player, Location location) {
+        World world = location.getWorld();
+        if (world == null || !plugin.getSettings().spectatorLeash()) {
+            return;
+        }
+        Leash leash = byPlayer.get(player.getUniqueId());
+        if (leash == null) {
+            leash = new Leash(player);
+            byPlayer.put(player.getUniqueId(), leash);
+            leashes.add(leash);
+        }
+        leash.world = world;
+        leash.x = location.getX();
+        leash.y = location.getY();
+        leash.z = location.getZ();
+    }
+
+    /**
+     * 取消玩家的活动范围限制
+     *
+     * @param playerId 玩家UUID
+     */
+    public void unregister(UUID playerId) {
+        Leash leash = byPlayer.remove(playerId);
+        if (leash != null) {
+            removeAt(leashes.indexOf(leash));
+        }
+    }
+
+    /**
+     * 获取已登记的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public int size() {
+        return leashes.size();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        unregister(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * 检查本 tick 轮到的玩家，每 tick 检查的人数为总人数除以检查间隔
+     */
+    private void tick() {
+        int size = leashes.size();
+        if (size == 0) {
+            return;
+        }
+        Settings settings = plugin.getSettings();
+        if (!settings.spectatorLeash()) {
+            // 重载后关闭了限制
+            leashes.clear();
+            byPlayer.clear();
+            return;
+        }
+        double radius = settings.spectatorLeashRadius();
+        int checkInterval = settings.spectatorLeashInterval();
+        int checks = LeashMath.checksPerTick(size, checkInterval);
+        for (int i = 0; i < checks && !leashes.isEmpty(); i++) {
+            if (cursor >= leashes.size()) {
+                cursor = 0;
+            }
+            if (check(leashes.get(cursor), radius)) {
+                cursor++;
+            } else {
+                byPlayer.remove(leashes.get(cursor).player.getUniqueId());
+                removeAt(cursor);
+            }
+        }
+    }
+
+    /**
+     * 检查一名玩家，越界时拉回
+     *
+     * @param radius 水平半径
+     * @return 是否继续限制该玩家，玩家离线或已不是旁观者模式时返回false
+     */
+    private boolean check(Leash leash, double radius) {
+        Player player = leash.player;
+        if (!player.isOnline() || player.getGameMode() != GameMode.SPECTATOR) {
+            return false;
+        }
+
+        player.getLocation(scratch);
+        if (scratch.getWorld() != leash.world) {
+            // 不在死亡所在的世界，只能传送回死亡位置
+            player.teleportAsync(new Location(leash.world, leash.x, leash.y, leash.z, scratch.getYaw(), scratch.getPitch()));
+            Messager.send(player, "spectator.leash", "radius", String.valueOf((int) radius));
+            return true;
+        }
+
+        double dx = scratch.getX() - leash.x;
+        double dz = scratch.getZ() - leash.z;
+        if (LeashMath.isInside(dx, dz, radius)) {
+            return true;
+        }
+
+        // 沿死亡位置指向玩家的方向拉回到边界以内，只移动越界的那一小段，目标区块通常就是玩家刚经过的区块
+        double scale = LeashMath.pullBackScale(dx, dz, radius);
+        player.teleportAsync(new Location(leash.world, leash.x + dx * scale, scratch.getY(), leash.z + dz * scale,
+                scratch.getYaw(), scratch.getPitch()));
+        Messager.send(player, "spectator.leash", "radius", String.valueOf((int) radius));
+        return true;
+    }
+
+    /**
+     * 用最后一个元素覆盖被移除的位置，移除操作不需要移动其他元素
+     */
+    private void removeAt(int index) {
+        if (index < 0) {
+            return;
+        }
+        int last = leashes.size() - 1;
+        leashes.set(index, leashes.get(last));
+        leashes.remove(last);
+    }
+
+    /**
+     * 一名玩家的死亡位置，坐标使用基本类型保存
+     */
+    private static final class Leash {
+        private final Player player;
+        private World world;
+        private double x;
+        private double y;
+        private double z;
+
+        private Leash(Player player) {
+            this.player = player;
+        }
+    }
+}
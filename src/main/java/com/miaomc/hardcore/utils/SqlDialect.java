@@ -0,0 +1,399 @@
+package com.miaomc.hardcore.utils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 不同数据库之间存在差异的 SQL 片段
+ */
+public enum SqlDialect {
+    MYSQL {
+        @Override
+        public String autoIncrementPrimaryKey() {
+            return "INT AUTO_INCREMENT PRIMARY KEY";
+        }
+
+        @Override
+        public String updateDateColumn() {
+            return "TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP";
+        }
+
+        @Override
+        public String createIndex(String tablename, String indexName, String columns) {
+            // 使用 INPLACE 算法在线添加索引，迁移期间不阻塞读写
+            return "ALTER TABLE `" + tablename + "` ADD INDEX " + indexName + " (" + columns + "), ALGORITHM=INPLACE, LOCK=NONE";
+        }
+
+        @Override
+        public String binaryUuidType() {
+            return "BINARY(16)";
+        }
+
+        @Override
+        public List<String> addColumns(String tablename, List<String> columnDefinitions) {
+            StringBuilder sql = new StringBuilder("ALTER TABLE `").append(tablename).append("` ");
+            for (int i = 0; i < columnDefinitions.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("ADD COLUMN ").append(columnDefinitions.get(i));
+            }
+            return List.of(sql.append(", ALGORITHM=INPLACE, LOCK=NONE").toString());
+        }
+
+        @Override
+        public String dropIndex(String tablename, String indexName) {
+            return "ALTER TABLE `" + tablename + "` DROP INDEX " + indexName + ", ALGORITHM=INPLACE, LOCK=NONE";
+        }
+
+        @Override
+        public String dropColumn(String tablename, String column) {
+            // 重建表期间允许并发读写
+            return "ALTER TABLE `" + tablename + "` DROP COLUMN " + column + ", ALGORITHM=INPLACE, LOCK=NONE";
+        }
+
+        @Override
+        public boolean supportsColumnDefaults() {
+            return true;
+        }
+
+        @Override
+        public String setColumnDefault(String tablename, String column, String defaultValue) {
+            // 只修改表的元数据，不重建表
+            return "ALTER TABLE `" + tablename + "` ALTER COLUMN " + column + " SET DEFAULT " + defaultValue;
+        }
+
+        @Override
+        public List<String> createLegacyUuidTriggers(String tablename, String nodeTable, String legacyNodeId) {
+            String typedColumns = "IF JSON_VALID(NEW.death_data) THEN " +
+                    "SET NEW.death_at = CAST(JSON_EXTRACT(NEW.death_data, '$.deathAt') AS SIGNED), " +
+                    "NEW.revive_at = CAST(JSON_EXTRACT(NEW.death_data, '$.reviveAt') AS SIGNED), " +
+                    "NEW.death_cause = LEFT(JSON_UNQUOTE(JSON_EXTRACT(NEW.death_data, '$.deathCaused')), 512), " +
+                    "NEW.death_world = JSON_UNQUOTE(JSON_EXTRACT(NEW.death_data, '$.deathWorld')), " +
+                    "NEW.death_x = CAST(JSON_EXTRACT(NEW.death_data, '$.deathLoc.x') AS DOUBLE), " +
+                    "NEW.death_y = CAST(JSON_EXTRACT(NEW.death_data, '$.deathLoc.y') AS DOUBLE), " +
+                    "NEW.death_z = CAST(JSON_EXTRACT(NEW.death_data, '$.deathLoc.z') AS DOUBLE); END IF; ";
+            // 旧版本插件仍在写入，登记为版本0的子服，阻止依赖所有子服升级的迁移
+            String markLegacy = "INSERT INTO `" + nodeTable + "` (node_id, server_name, schema_version, last_seen) " +
+                    "VALUES ('" + legacyNodeId + "', NEW.server_name, 0, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000)) " +
+                    "ON DUPLICATE KEY UPDATE server_name = VALUES(server_name), schema_version = 0, last_seen = VALUES(last_seen); ";
+            return List.of(
+                    "DROP TRIGGER IF EXISTS `" + tablename + "_legacy_insert`",
+                    "CREATE TRIGGER `" + tablename + "_legacy_insert` BEFORE INSERT ON `" + tablename + "` FOR EACH ROW BEGIN " +
+                            "IF NEW.uuid_bin IS NULL THEN " +
+                            "SET NEW.uuid_bin = UNHEX(REPLACE(NEW.uuid, '-', '')); " + typedColumns + markLegacy +
+                            "ELSEIF NEW.uuid = '' THEN " +
+                            "SET NEW.uuid = LOWER(INSERT(INSERT(INSERT(INSERT(HEX(NEW.uuid_bin), 9, 0, '-'), 14, 0, '-'), 19, 0, '-'), 24, 0, '-')); " +
+                            "END IF; END",
+                    "DROP TRIGGER IF EXISTS `" + tablename + "_legacy_update`",
+                    "CREATE TRIGGER `" + tablename + "_legacy_update` BEFORE UPDATE ON `" + tablename + "` FOR EACH ROW BEGIN " +
+                            "IF NOT (NEW.death_data <=> OLD.death_data) THEN " + typedColumns + markLegacy + "END IF; END"
+            );
+        }
+
+        @Override
+        public List<String> dropLegacyUuidTriggers(String tablename) {
+            return List.of("DROP TRIGGER IF EXISTS `" + tablename + "_legacy_insert`",
+                    "DROP TRIGGER IF EXISTS `" + tablename + "_legacy_update`");
+        }
+
+        @Override
+        public String upsert(String tablename, String keyColumn, List<String> columns) {
+            StringBuilder sql = new StringBuilder(insertInto(tablename, columns)).append(" ON DUPLICATE KEY UPDATE ");
+            appendUpdates(sql, keyColumn, columns, "VALUES(%s)");
+            return sql.toString();
+        }
+
+        @Override
+        public String onConflictUpdate(String keyColumns) {
+            return " ON DUPLICATE KEY UPDATE ";
+        }
+
+        @Override
+        public String excluded(String column) {
+            return "VALUES(" + column + ")";
+        }
+
+        @Override
+        public void setTimestamp(PreparedStatement statement, int index, long millis) throws SQLException {
+            statement.setTimestamp(index, new Timestamp(millis));
+        }
+
+        @Override
+        public boolean supportsNamedLocks() {
+            return true;
+        }
+
+        @Override
+        public boolean supportsBatchGeneratedKeys() {
+            return true;
+        }
+    },
+    SQLITE {
+        @Override
+        public String autoIncrementPrimaryKey() {
+            return "INTEGER PRIMARY KEY AUTOINCREMENT";
+        }
+
+        @Override
+        public String updateDateColumn() {
+            return "TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP";
+        }
+
+        @Override
+        public String createIndex(String tablename, String indexName, String columns) {
+            return "CREATE INDEX IF NOT EXISTS " + indexName + " ON `" + tablename + "` (" + columns + ")";
+        }
+
+        @Override
+        public String binaryUuidType() {
+            return "BLOB";
+        }
+
+        @Override
+        public List<String> addColumns(String tablename, List<String> columnDefinitions) {
+            // SQLite 每条 ALTER TABLE 只能添加一列
+            List<String> statements = new ArrayList<>();
+            for (String definition : columnDefinitions) {
+                statements.add("ALTER TABLE `" + tablename + "` ADD COLUMN " + definition);
+            }
+            return statements;
+        }
+
+        @Override
+        public String dropIndex(String tablename, String indexName) {
+            return "DROP INDEX IF EXISTS " + indexName;
+        }
+
+        @Override
+        public String dropColumn(String tablename, String column) {
+            return "ALTER TABLE `" + tablename + "` DROP COLUMN " + column;
+        }
+
+        @Override
+        public boolean supportsColumnDefaults() {
+            return false;
+        }
+
+        @Override
+        public String setColumnDefault(String tablename, String column, String defaultValue) {
+            throw new UnsupportedOperationException("SQLite 不支持修改已有列的默认值");
+        }
+
+        @Override
+        public List<String> createLegacyUuidTriggers(String tablename, String nodeTable, String legacyNodeId) {
+            // 嵌入式数据库只有本服务器访问，不存在同时运行的旧版本插件
+            return List.of();
+        }
+
+        @Override
+        public List<String> dropLegacyUuidTriggers(String tablename) {
+            return List.of();
+        }
+
+        @Override
+        public String upsert(String tablename, String keyColumn, List<String> columns) {
+            StringBuilder sql = new StringBuilder(insertInto(tablename, columns))
+                    .append(" ON CONFLICT(").append(keyColumn).append(") DO UPDATE SET ");
+            appendUpdates(sql, keyColumn, columns, "excluded.%s");
+            return sql.toString();
+        }
+
+        @Override
+        public String onConflictUpdate(String keyColumns) {
+            return " ON CONFLICT(" + keyColumns + ") DO UPDATE SET ";
+        }
+
+        @Override
+        public String excluded(String column) {
+            return "excluded." + column;
+        }
+
+        @Override
+        public void setTimestamp(PreparedStatement statement, int index, long millis) throws SQLException {
+            // SQLite 的 CURRENT_TIMESTAMP 是 UTC 文本，绑定为相同格式的文本才能正确比较
+            statement.setString(index, Formats.SQLITE_TIMESTAMP.format(Instant.ofEpochMilli(millis)));
+        }
+
+        @Override
+        public boolean supportsNamedLocks() {
+            return false;
+        }
+
+        @Override
+        public boolean supportsBatchGeneratedKeys() {
+            return false;
+        }
+    };
+
+    /**
+     * 自增主键列定义
+     *
+     * @return 列类型及约束
+     */
+    public abstract String autoIncrementPrimaryKey();
+
+    /**
+     * update_date 列定义
+     *
+     * @return 列类型及约束
+     */
+    public abstract String updateDateColumn();
+
+    /**
+     * 为已有数据表添加索引的语句
+     *
+     * @param tablename 数据表名称
+     * @param indexName 索引名称
+     * @param columns   逗号分隔的索引列
+     * @return 建立索引的SQL
+     */
+    public abstract String createIndex(String tablename, String indexName, String columns);
+
+    /**
+     * 以二进制形式存储UUID的列类型
+     *
+     * @return 列类型
+     */
+    public abstract String binaryUuidType();
+
+    /**
+     * 为已有数据表添加列的语句
+     *
+     * @param tablename         数据表名称
+     * @param columnDefinitions 列定义
+     * @return 按顺序执行的SQL
+     */
+    public abstract List<String> addColumns(String tablename, List<String> columnDefinitions);
+
+    /**
+     * 删除索引的语句
+     *
+     * @param tablename 数据表名称
+     * @param indexName 索引名称
+     * @return 删除索引的SQL
+     */
+    public abstract String dropIndex(String tablename, String indexName);
+
+    /**
+     * 删除列的语句，列上的索引需要先删除
+     *
+     * @param tablename 数据表名称
+     * @param column    被删除的列
+     * @return 删除列的SQL
+     */
+    public abstract String dropColumn(String tablename, String column);
+
+    /**
+     * 是否支持修改已有列的默认值
+     *
+     * @return 支持时返回true
+     */
+    public abstract boolean supportsColumnDefaults();
+
+    /**
+     * 修改已有列默认值的语句，仅在 {@link #supportsColumnDefaults()} 为true时可用
+     *
+     * @param tablename    数据表名称
+     * @param column       列名
+     * @param defaultValue 默认值的SQL字面量
+     * @return 修改默认值的SQL
+     */
+    public abstract String setColumnDefault(String tablename, String column, String defaultValue);
+
+    /**
+     * 创建兼容旧版本插件的触发器的语句
+     * 旧版本插件只写入字符串UUID和 death_data JSON，新版本只写入二进制UUID和类型化列，触发器在插入和更新时补全另一方的列，
+     * 并在旧版本插件写入时把它登记到子服版本表中
+     *
+     * @param tablename    死亡数据表名称
+     * @param nodeTable    子服版本上报表名称
+     * @param legacyNodeId 旧版本插件登记使用的子服ID
+     * @return 按顺序执行的SQL，不支持触发器时为空
+     */
+    public abstract List<String> createLegacyUuidTriggers(String tablename, String nodeTable, String legacyNodeId);
+
+    /**
+     * 删除 {@link #createLegacyUuidTriggers(String, String, String)} 创建的触发器的语句
+     *
+     * @param tablename 死亡数据表名称
+     * @return 按顺序执行的SQL，不支持触发器时为空
+     */
+    public abstract List<String> dropLegacyUuidTriggers(String tablename);
+
+    /**
+     * 插入一行，主键已存在时更新其余列的语句
+     *
+     * @param tablename 数据表名称
+     * @param keyColumn 主键列
+     * @param columns   插入的所有列，包含主键列，按参数顺序排列
+     * @return 带参数占位符的SQL
+     */
+    public abstract String upsert(String tablename, String keyColumn, List<String> columns);
+
+    /**
+     * 插入语句之后、主键冲突时执行的更新子句的开头
+     * 更新子句中不带前缀的列名在两种数据库中都指向已存在的行
+     *
+     * @param keyColumns 逗号分隔的主键列
+     * @return 追加在 INSERT 语句之后的SQL片段，其后直接跟 列 = 表达式
+     */
+    public abstract String onConflictUpdate(String keyColumns);
+
+    /**
+     * 在 {@link #onConflictUpdate(String)} 的更新子句中引用本次要插入的值
+     *
+     * @param column 列名
+     * @return 引用插入值的SQL表达式
+     */
+    public abstract String excluded(String column);
+
+    private static String insertInto(String tablename, List<String> columns) {
+        return "INSERT INTO `" + tablename + "` (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    private static void appendUpdates(StringBuilder sql, String keyColumn, List<String> columns, String valueFormat) {
+        boolean first = true;
+        for (String column : columns) {
+            if (column.equals(keyColumn)) {
+                continue;
+            }
+            sql.append(first ? "" : ", ").append(column).append(" = ").append(String.format(valueFormat, column));
+            first = false;
+        }
+    }
+
+    /**
+     * 绑定与 update_date 列比较的时间参数
+     *
+     * @param statement 预编译语句
+     * @param index     参数位置
+     * @param millis    时间，毫秒
+     * @throws SQLException 如果绑定失败
+     */
+    public abstract void setTimestamp(PreparedStatement statement, int index, long millis) throws SQLException;
+
+    /**
+     * 是否支持 GET_LOCK 命名锁，用于多个子服之间互斥执行迁移
+     *
+     * @return 支持时返回true
+     */
+    public abstract boolean supportsNamedLocks();
+
+    /**
+     * 驱动是否能在批量插入后返回每一行的自增ID
+     *
+     * @return 支持时返回true
+     */
+    public abstract boolean supportsBatchGeneratedKeys();
+
+    private static final class Formats {
+        private static final DateTimeFormatter SQLITE_TIMESTAMP =
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,270 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 玩家死亡数据的存储后端
+ * 读取操作优先使用 {@link CooldownCache}，写入操作经由 {@link WriteQueue} 异步执行
+ */
+public interface Storage {
+
+    /**
+     * 初始化并连接到数据库
+     */
+    void connect();
+
+    /**
+     * 等待未完成的写入后关闭数据库连接
+     */
+    void disconnect();
+
+    /**
+     * 执行数据表迁移并验证表结构是否符合要求
+     *
+     * @return 表结构是否有效，如果无效且无法修复则返回false
+     */
+    boolean validateDatabase();
+
+    /**
+     * 获取缓存中玩家最新的死亡状态，只读取内存，可以在主线程调用
+     * 在线玩家的状态在登录时预取；需要查询数据库时使用 {@link #getDeathStateAsync(UUID)}
+     *
+     * @param playerId 玩家的UUID
+     * @return 玩家的死亡状态，没有记录时返回 {@link DeathState#NONE}，尚未加载到缓存时返回null
+     */
+    DeathState getDeathState(UUID playerId);
+
+    /**
+     * 异步获取玩家最新的死亡状态，缓存命中时直接返回已完成的结果
+     *
+     * @param playerId 玩家的UUID
+     * @return 玩家的死亡状态，没有记录时为 {@link DeathState#NONE}
+     */
+    CompletableFuture<DeathState> getDeathStateAsync(UUID playerId);
+
+    /**
+     * 从数据库加载玩家最新的死亡状态（同步执行，不经过缓存）
+     *
+     * @param playerId 玩家的UUID
+     * @return 玩家的死亡状态，没有记录或查询失败时返回 {@link DeathState#NONE}
+     */
+    DeathState loadDeathState(UUID playerId);
+
+    /**
+     * 从数据库加载玩家的死亡状态并写入缓存
+     *
+     * @param playerId 玩家的UUID
+     * @return 加载到的死亡状态
+     */
+    DeathState cacheDeathState(UUID playerId);
+
+    /**
+     * 查询本服在某个时间之后变更的所有死亡记录
+     *
+     * @param sinceMillis 起始时间（不包含），毫秒
+     * @return 按更新时间升序排列的变更列表
+     */
+    List<DeathStateChange> loadChangesSince(long sinceMillis);
+
+    /**
+     * 获取数据库的当前时间
+     *
+     * @return 数据库当前时间，毫秒
+     */
+    long currentDatabaseTime();
+
+    /**
+     * 记录玩家的一次死亡
+     *
+     * @param playerId      玩家的UUID
+     * @param record        死亡的详细数据
+     * @param revivalMethod 复活方法，如果为null则表示玩家处于死亡冷却状态
+     */
+    default void insertPlayerDeathData(UUID playerId, DeathRecord record, String revivalMethod) {
+        insertPlayerDeathData(playerId, record, revivalMethod, null);
+    }
+
+    /**
+     * 记录玩家的一次死亡，并计入死亡统计
+     *
+     * @param playerId      玩家的UUID
+     * @param record        死亡的详细数据
+     * @param revivalMethod 复活方法，如果为null则表示玩家处于死亡冷却状态
+     * @param causeKey      用于死亡原因排行的分类，如伤害类型名称，为null时不计入死亡原因统计
+     */
+    void insertPlayerDeathData(UUID playerId, DeathRecord record, String revivalMethod, String causeKey);
+
+    /**
+     * 更新玩家最新死亡记录的冷却时间
+     *
+     * @param playerId    玩家的UUID
+     * @param deathAt     玩家死亡时间的UNIX时间戳（秒）
+     * @param reviveAt    玩家复活时间的UNIX时间戳（秒）
+     * @param deathCaused 导致玩家死亡的原因
+     */
+    void updatePlayerCooldown(UUID playerId, long deathAt, long reviveAt, String deathCaused);
+
+    /**
+     * 更新玩家最新死亡记录的复活方法
+     *
+     * @param playerId      玩家的UUID
+     * @param revivalMethod 玩家的复活方法
+     * @param updateHandled 是否更新handled状态为TRUE
+     */
+    void updateRevivalMethod(UUID playerId, String revivalMethod, boolean updateHandled);
+
+    /**
+     * 检查玩家是否有未处理的死亡记录，缓存未命中时同步查询数据库，不要在主线程调用
+     *
+     * @param playerUUID 玩家UUID
+     * @return 如果有未处理的死亡记录则返回true
+     */
+    boolean hasUnhandledDeathRecord(UUID playerUUID);
+
+    /**
+     * 通过玩家名查询UUID
+     *
+     * @param playerName 玩家名
+     * @return 玩家UUID，如果未找到返回null
+     */
+    UUID getPlayerUUIDByName(String playerName);
+
+    /**
+     * 异步通过玩家名查询UUID
+     *
+     * @param playerName 玩家名
+     * @return 玩家UUID，如果未找到为null
+     */
+    CompletableFuture<UUID> getPlayerUUIDByNameAsync(String playerName);
+
+    /**
+     * 将一批过期的历史记录移入归档表或直接删除，每个玩家的最新记录始终保留
+     *
+     * @param afterId      从该ID之后开始扫描
+     * @param cutoffMillis 只处理更新时间早于该时间的记录，毫秒
+     * @param limit        本批最多处理的记录数量
+     * @param archive      为true时移入归档表，否则直接删除
+     * @return 本批的处理结果
+     */
+    RetentionChunk pruneHistory(long afterId, long cutoffMillis, int limit, boolean archive);
+
+    /**
+     * 用一条语句批量设置符合条件的玩家的复活方式，并将结果应用到在线玩家的缓存
+     *
+     * @param filter        筛选条件
+     * @param revivalMethod 复活方式
+     * @param handled       是否标记为已处理
+     * @return 执行结果
+     */
+    BulkUpdateResult bulkUpdateRevival(BulkFilter filter, String revivalMethod, boolean handled);
+
+    /**
+     * 异步执行批量设置复活方式
+     *
+     * @param filter        筛选条件
+     * @param revivalMethod 复活方式
+     * @param handled       是否标记为已处理
+     * @return 执行结果
+     */
+    CompletableFuture<BulkUpdateResult> bulkUpdateRevivalAsync(BulkFilter filter, String revivalMethod, boolean handled);
+
+    /**
+     * 从存储加载所有已知玩家的名称到内存索引
+     */
+    void loadPlayerNames();
+
+    /**
+     * 记录玩家当前的名称
+     *
+     * @param playerId 玩家UUID
+     * @param name     玩家名称
+     */
+    void recordPlayerName(UUID playerId, String name);
+
+    /**
+     * 获取玩家名称索引
+     *
+     * @return 玩家名称索引
+     */
+    PlayerNameIndex getPlayerNameIndex();
+
+    /**
+     * 从统计表读取各排行榜的前几名并替换内存中的排行榜
+     *
+     * @param size 每个排行榜保留的名次数量
+     */
+    void refreshLeaderboards(int size);
+
+    /**
+     * 从统计表加载玩家的死亡统计并写入内存
+     *
+     * @param playerId 玩家的UUID
+     */
+    void cachePlayerStats(UUID playerId);
+
+    /**
+     * 获取排行榜和在线玩家死亡统计
+     *
+     * @return 排行榜
+     */
+    Leaderboards getLeaderboards();
+
+    /**
+     * 获取死亡状态缓存
+     *
+     * @return 死亡状态缓存
+     */
+    CooldownCache getCooldownCache();
+
+    /**
+     * 获取死亡数据写入队列
+     *
+     * @return 写入队列
+     */
+    WriteQueue getWriteQueue();
+
+    /**
+     * 获取存储操作的耗时统计
+     *
+     * @return 耗时统计
+     */
+    StorageMetrics getMetrics();
+
+    /**
+     * 获取连接池状态
+     *
+     * @return 连接池状态，不使用连接池或尚未连接时返回null
+     */
+    StorageMetrics.PoolStats getPoolStats();
+
+    /**
+     * 数据库当前是否可用
+     *
+     * @return 数据库熔断期间返回false
+     */
+    boolean isAvailable();
+
+    /**
+     * 内存缓存或本地写入日志中是否有玩家的死亡状态，数据库熔断期间这些状态仍然可信
+     *
+     * @param playerId 玩家的UUID
+     * @return 是否有本地状态
+     */
+    boolean hasLocalDeathState(UUID playerId);
+
+    /**
+     * 获取数据库熔断器的状态
+     *
+     * @return 熔断器状态
+     */
+    CircuitBreaker.State getCircuitState();
+
+    /**
+     * 获取本地写入日志中等待重放的批次数量
+     *
+     * @return 批次数量
+     */
+    int getJournalPendingBatches();
+}
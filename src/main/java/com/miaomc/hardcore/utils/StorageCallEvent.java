@@ -0,0 +1,28 @@
+package com.miaomc.hardcore.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 主线程上同步执行的存储操作，可在 JFR 记录中按耗时定位导致卡顿的数据库调用
+ */
+@Name("com.miaomc.hardcore.StorageCall")
+@Label("HardCore Storage Call")
+@Category({"HardCore", "Storage"})
+@Description("在服务器主线程上同步执行的数据库操作")
+@StackTrace
+class StorageCallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Pool Wait (us)")
+    long poolWaitMicros;
+
+    @Label("Execute (us)")
+    long executeMicros;
+}
@@ -0,0 +1,260 @@
+package com.miaomc.hardcore.utils;
+
+import org.bukkit.Bukkit;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 存储操作的耗时统计
+ * 每种操作分别记录等待连接、执行和总耗时的直方图，并统计主线程最近一分钟被数据库调用阻塞的时间
+ */
+public class StorageMetrics {
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final MainThreadWindow mainThread = new MainThreadWindow();
+
+    public StorageMetrics() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * 开始计时一次存储操作
+     *
+     * @param operation 操作类型
+     * @return 计时器，操作结束后需调用 {@link Timer#stop()}
+     */
+    public Timer start(Operation operation) {
+        return new Timer(operation, Bukkit.isPrimaryThread());
+    }
+
+    /**
+     * 获取某种操作的统计
+     *
+     * @param operation 操作类型
+     * @return 统计数据
+     */
+    public OperationStats get(Operation operation) {
+        return stats.get(operation);
+    }
+
+    /**
+     * 获取最近一分钟主线程被存储操作阻塞的总时间
+     *
+     * @return 阻塞时间，单位毫秒
+     */
+    public long getMainThreadBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mainThread.sum());
+    }
+
+    /**
+     * 存储操作类型
+     */
+    public enum Operation {
+        LOAD_DEATH_STATE("加载死亡状态"),
+        WRITE_BATCH("批量写入"),
+        LOOKUP_UUID("查询玩家UUID"),
+        SYNC_CHANGES("跨服同步"),
+        RETENTION("清理历史记录"),
+        BULK_UPDATE("批量操作"),
+        LEADERBOARD("读取排行榜"),
+        VALIDATE("迁移与验证");
+
+        private final String displayName;
+
+        Operation(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * 一次存储操作的计时器
+     */
+    public final class Timer {
+        private final Operation operation;
+        private final boolean primaryThread;
+        private final long startedAt;
+        private final StorageCallEvent event;
+        private long acquiredAt;
+
+        private Timer(Operation operation, boolean primaryThread) {
+            this.operation = operation;
+            this.primaryThread = primaryThread;
+            // 只为主线程上的同步调用记录 JFR 事件
+            this.event = primaryThread ? new StorageCallEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            this.startedAt = System.nanoTime();
+        }
+
+        /**
+         * 记录从连接池取得连接的时间
+         *
+         * @param value 取得的连接或任意值
+         * @return 原样返回传入的值，便于在 try-with-resources 中使用
+         */
+        public <T> T acquired(T value) {
+            acquiredAt = System.nanoTime();
+            return value;
+        }
+
+        /**
+         * 结束计时并记录统计
+         */
+        public void stop() {
+            long stoppedAt = System.nanoTime();
+            long total = stoppedAt - startedAt;
+            long poolWait = acquiredAt == 0L ? total : acquiredAt - startedAt;
+            stats.get(operation).record(poolWait, total - poolWait, total);
+
+            if (primaryThread) {
+                mainThread.add(total);
+            }
+            if (event != null) {
+                event.operation = operation.name();
+                event.poolWaitMicros = TimeUnit.NANOSECONDS.toMicros(poolWait);
+                event.executeMicros = TimeUnit.NANOSECONDS.toMicros(total - poolWait);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 一种操作的耗时直方图
+     */
+    public static final class OperationStats {
+        private final LatencyHistogram poolWait = new LatencyHistogram();
+        private final LatencyHistogram execute = new LatencyHistogram();
+        private final LatencyHistogram total = new LatencyHistogram();
+
+        private void record(long poolWaitNanos, long executeNanos, long totalNanos) {
+            poolWait.record(poolWaitNanos);
+            execute.record(executeNanos);
+            total.record(totalNanos);
+        }
+
+        public LatencyHistogram poolWait() {
+            return poolWait;
+        }
+
+        public LatencyHistogram execute() {
+            return execute;
+        }
+
+        public LatencyHistogram total() {
+            return total;
+        }
+    }
+
+    /**
+     * 按2的幂划分桶的延迟直方图，单位微秒
+     * 百分位数取所在桶的上界，误差不超过2倍，足以区分正常和异常的延迟
+     */
+    public static final class LatencyHistogram {
+        private static final int BUCKETS = 40;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumMicros = new LongAdder();
+
+        void record(long nanos) {
+            long micros = Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos));
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            counts.incrementAndGet(bucket);
+            count.increment();
+            sumMicros.add(micros);
+        }
+
+        /**
+         * 获取记录的次数
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * 获取平均耗时，单位毫秒
+         */
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0D : sumMicros.sum() / 1000D / n;
+        }
+
+        /**
+         * 获取百分位耗时
+         *
+         * @param percentile 百分位，取值 0 到 1
+         * @return 耗时，单位毫秒，没有记录时返回0
+         */
+        public double getPercentileMillis(double percentile) {
+            long n = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                n += snapshot[i];
+            }
+            if (n == 0) {
+                return 0D;
+            }
+
+            long target = Math.max(1L, (long) Math.ceil(n * percentile));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= target) {
+                    return (1L << i) / 1000D;
+                }
+            }
+            return (1L << (BUCKETS - 1)) / 1000D;
+        }
+    }
+
+    /**
+     * 以秒为单位的60格环形窗口，统计最近一分钟主线程的阻塞时间
+     */
+    private static final class MainThreadWindow {
+        private static final int SECONDS = 60;
+        private final long[] nanos = new long[SECONDS];
+        private final long[] stamps = new long[SECONDS];
+
+        synchronized void add(long value) {
+            long second = DeathState.now();
+            int index = (int) (second % SECONDS);
+            if (stamps[index] != second) {
+                stamps[index] = second;
+                nanos[index] = 0L;
+            }
+            nanos[index] += value;
+        }
+
+        synchronized long sum() {
+            long now = DeathState.now();
+            long sum = 0L;
+            for (int i = 0; i < SECONDS; i++) {
+                if (now - stamps[i] < SECONDS) {
+                    sum += nanos[i];
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * 连接池状态快照
+     *
+     * @param active  正在使用的连接数
+     * @param idle    空闲连接数
+     * @param pending 等待获取连接的线程数
+     * @param total   连接总数
+     */
+    public record PoolStats(int active, int idle, int pending, int total) {
+    }
+}
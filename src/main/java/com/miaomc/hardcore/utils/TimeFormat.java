@@ -0,0 +1,161 @@
+package com.miaomc.hardcore.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 一种语言的时间单位，由消息文件的 time 节点配置
+ * 单位写作 "{n}分钟" 的形式，加载时拆分为数值前后的两段，格式化时只需拼接
+ */
+public final class TimeFormat {
+    private static final String VALUE = "{n}";
+    private static final Pattern PADDED_FIELD = Pattern.compile("\\{([hms])}");
+
+    /**
+     * 消息文件缺少 time 节点时使用的中文单位
+     */
+    public static final TimeFormat DEFAULT = new TimeFormat("{n}秒", "{n}分钟", "{n}小时", "{n}天", "", "{h}时{m}分{s}秒");
+
+    private final Unit seconds;
+    private final Unit minutes;
+    private final Unit hours;
+    private final Unit days;
+    private final String separator;
+    private final String padded;
+    // 固定宽度格式拆分为字段之间的文本和字段，最后一段文本在所有字段之后
+    private final List<String> paddedLiterals;
+    private final String paddedFields;
+    private final String paddedZero;
+
+    /**
+     * 时间单位构造函数
+     *
+     * @param seconds   秒的格式
+     * @param minutes   分钟的格式
+     * @param hours     小时的格式
+     * @param days      天的格式
+     * @param separator 两个单位之间的分隔符
+     * @param padded    固定宽度格式，{h}、{m}、{s} 分别为两位数的时、分、秒
+     */
+    public TimeFormat(String seconds, String minutes, String hours, String days, String separator, String padded) {
+        this.seconds = Unit.parse(seconds);
+        this.minutes = Unit.parse(minutes);
+        this.hours = Unit.parse(hours);
+        this.days = Unit.parse(days);
+        this.separator = separator;
+        this.padded = padded;
+        List<String> literals = new ArrayList<>();
+        StringBuilder fields = new StringBuilder();
+        Matcher matcher = PADDED_FIELD.matcher(padded);
+        int start = 0;
+        while (matcher.find()) {
+            literals.add(padded.substring(start, matcher.start()));
+            fields.append(matcher.group(1).charAt(0));
+            start = matcher.end();
+        }
+        literals.add(padded.substring(start));
+        this.paddedLiterals = List.copyOf(literals);
+        this.paddedFields = fields.toString();
+        this.paddedZero = formatPadded(0L);
+    }
+
+    /**
+     * 从消息文件读取时间单位，缺少的条目使用 {@link #DEFAULT}
+     *
+     * @param config 消息文件
+     * @return 时间单位
+     */
+    static TimeFormat parse(ConfigurationSection config) {
+        return new TimeFormat(
+                config.getString("time.seconds", DEFAULT.seconds.toString()),
+                config.getString("time.minutes", DEFAULT.minutes.toString()),
+                config.getString("time.hours", DEFAULT.hours.toString()),
+                config.getString("time.days", DEFAULT.days.toString()),
+                config.getString("time.separator", DEFAULT.separator),
+                config.getString("time.padded", DEFAULT.padded));
+    }
+
+    /**
+     * 将时间（秒）格式化为可读字符串，最多显示相邻的两个单位
+     *
+     * @param totalSeconds 总秒数
+     * @return 格式化的时间字符串
+     */
+    public String format(long totalSeconds) {
+        StringBuilder builder = new StringBuilder(16);
+        if (totalSeconds < 60) {
+            seconds.append(builder, totalSeconds);
+        } else if (totalSeconds < 3600) {
+            appendPair(builder, minutes, totalSeconds / 60, seconds, totalSeconds % 60);
+        } else if (totalSeconds < 86400) {
+            appendPair(builder, hours, totalSeconds / 3600, minutes, (totalSeconds % 3600) / 60);
+        } else {
+            appendPair(builder, days, totalSeconds / 86400, hours, (totalSeconds % 86400) / 3600);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 将时间（秒）格式化为固定宽度的时、分、秒，用于计分板等需要对齐的场合
+     *
+     * @param totalSeconds 总秒数
+     * @return 格式化的时间字符串
+     */
+    public String formatPadded(long totalSeconds) {
+        if (totalSeconds == 0L && paddedZero != null) {
+            return paddedZero;
+        }
+        StringBuilder builder = new StringBuilder(padded.length());
+        for (int i = 0; i < paddedFields.length(); i++) {
+            builder.append(paddedLiterals.get(i));
+            long value = switch (paddedFields.charAt(i)) {
+                case 'h' -> totalSeconds / 3600;
+                case 'm' -> (totalSeconds % 3600) / 60;
+                default -> totalSeconds % 60;
+            };
+            if (value < 10) {
+                builder.append('0');
+            }
+            builder.append(value);
+        }
+        return builder.append(paddedLiterals.get(paddedLiterals.size() - 1)).toString();
+    }
+
+    private void appendPair(StringBuilder builder, Unit major, long majorValue, Unit minor, long minorValue) {
+        major.append(builder, majorValue);
+        if (minorValue != 0) {
+            minor.append(builder.append(separator), minorValue);
+        }
+    }
+
+    /**
+     * 以数值为界拆分的单位格式
+     *
+     * @param before 数值之前的文本
+     * @param after  数值之后的文本
+     */
+    private record Unit(String before, String after) {
+
+        static Unit parse(String format) {
+            int index = format.indexOf(VALUE);
+            if (index < 0) {
+                // 没有写数值占位符时把单位放在数值之后
+                return new Unit("", format);
+            }
+            return new Unit(format.substring(0, index), format.substring(index + VALUE.length()));
+        }
+
+        void append(StringBuilder builder, long value) {
+            builder.append(before).append(value).append(after);
+        }
+
+        @Override
+        public String toString() {
+            return before + VALUE + after;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.miaomc.hardcore.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有过期时间和数量上限的线程安全临时状态，用于确认操作等只需短时间保留、不需要持久化的数据
+ * 条目按写入顺序排列，写入后经过固定时间过期；超过上限时淘汰最早写入的条目。
+ * 过期条目在每次读写时从头部顺带清理，不需要定时任务，也不会无限增长
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class TransientStore<K, V> {
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>();
+
+    /**
+     * 临时状态构造函数
+     *
+     * @param ttlMillis 条目的有效时间，单位毫秒
+     * @param maxSize   最多保留的条目数量
+     */
+    public TransientStore(long ttlMillis, int maxSize) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, ttlMillis));
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * 写入条目，已存在时重新计算过期时间
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public synchronized void put(K key, V value) {
+        long now = System.nanoTime();
+        // 先移除再写入，使条目移到末尾，保持按过期时间排序
+        entries.remove(key);
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+        prune(now);
+    }
+
+    /**
+     * 获取未过期的条目
+     *
+     * @param key 键
+     * @return 值，不存在或已过期时返回null
+     */
+    public synchronized V get(K key) {
+        prune(System.nanoTime());
+        Entry<V> entry = entries.get(key);
+        return entry == null ? null : entry.value();
+    }
+
+    /**
+     * 移除并返回未过期的条目
+     *
+     * @param key 键
+     * @return 值，不存在或已过期时返回null
+     */
+    public synchronized V remove(K key) {
+        prune(System.nanoTime());
+        Entry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value();
+    }
+
+    /**
+     * 获取未过期的条目数量
+     *
+     * @return 条目数量
+     */
+    public synchronized int size() {
+        prune(System.nanoTime());
+        return entries.size();
+    }
+
+    private void prune(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = iterator.next();
+            if (entries.size() <= maxSize && now - eldest.getValue().expiresAt() < 0L) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
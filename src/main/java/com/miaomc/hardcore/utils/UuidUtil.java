@@ -0,0 +1,40 @@
+package com.miaomc.hardcore.utils;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * UUID 与数据库 BINARY(16) 列之间的转换工具
+ */
+public final class UuidUtil {
+
+    private UuidUtil() {
+    }
+
+    /**
+     * 将UUID转换为16字节数组
+     *
+     * @param uuid UUID
+     * @return 大端序的16字节数组
+     */
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * 将16字节数组转换为UUID
+     *
+     * @param bytes 大端序的16字节数组
+     * @return UUID，字节数组为null或长度不正确时返回null
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
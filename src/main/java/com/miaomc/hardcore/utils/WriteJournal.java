@@ -0,0 +1,295 @@
+package com.miaomc.hardcore.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库不可用时的本地写入日志
+ * 写入批次按顺序追加到文件，每批只调用一次 fsync；数据库恢复后按顺序重放，全部重放完成后删除文件。
+ * 每个日志文件有唯一的ID，批次有递增的序号，重放进度与写入在同一数据库事务中记录，重复重放不会重复写入。
+ * 无法改名保留的日志文件原样留在目录中，之后的写入使用带时间戳后缀的新文件
+ */
+public class WriteJournal {
+    private static final Gson GSON = new Gson();
+    private static final String FILE_NAME = "writes.journal";
+    private static final Pattern ROTATED_NAME = Pattern.compile(Pattern.quote(FILE_NAME) + "\\.\\d+");
+
+    private final Logger logger;
+    private final File folder;
+    private File file;
+    private FileChannel channel;
+    private String journalId;
+    private long lastSeq;
+    private volatile int pendingBatches;
+
+    /**
+     * 本地写入日志构造函数，上次运行遗留的日志会被读取并等待重放
+     *
+     * @param logger 日志
+     * @param folder 日志文件所在的目录
+     */
+    public WriteJournal(Logger logger, File folder) {
+        this.logger = logger;
+        this.folder = folder;
+        this.file = new File(folder, FILE_NAME);
+        for (File candidate : findJournals()) {
+            file = candidate;
+            try {
+                Contents contents = read();
+                journalId = contents.journalId();
+                lastSeq = contents.entries().isEmpty() ? 0L : contents.entries().getLast().seq();
+                pendingBatches = contents.entries().size();
+                logger.warning("发现上次运行遗留的本地写入日志 " + file.getName() + "，共 " + pendingBatches + " 批写入等待重放到数据库");
+                return;
+            } catch (IOException e) {
+                logger.severe("读取本地写入日志 " + candidate.getName() + " 失败: " + e.getMessage());
+                quarantine();
+            }
+        }
+    }
+
+    /**
+     * 查找上次运行遗留的日志文件，不包括已改名保留的文件
+     *
+     * @return 按创建顺序排列的日志文件
+     */
+    private List<File> findJournals() {
+        File[] files = folder.listFiles((dir, name) -> name.equals(FILE_NAME) || ROTATED_NAME.matcher(name).matches());
+        if (files == null) {
+            return List.of();
+        }
+        return Arrays.stream(files).sorted(Comparator.comparingLong(WriteJournal::suffix)).toList();
+    }
+
+    private static long suffix(File journal) {
+        String name = journal.getName();
+        return name.equals(FILE_NAME) ? 0L : Long.parseLong(name.substring(FILE_NAME.length() + 1));
+    }
+
+    /**
+     * 追加一个写入批次并同步到磁盘
+     *
+     * @param batch 合并后的写入批次
+     * @throws IOException 如果写入文件失败
+     */
+    public synchronized void append(WriteQueue.WriteBatch batch) throws IOException {
+        if (channel == null) {
+            open();
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(GSON.toJson(new Entry(lastSeq + 1, batch)) + "\n");
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        lastSeq++;
+        pendingBatches++;
+    }
+
+    private void open() throws IOException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("无法创建目录 " + folder);
+        }
+        boolean fresh = journalId == null || !file.exists();
+        if (!fresh) {
+            terminatePartialLine();
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                fresh ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND);
+        if (fresh) {
+            journalId = UUID.randomUUID().toString();
+            lastSeq = 0L;
+            channel.write(StandardCharsets.UTF_8.encode(GSON.toJson(new Header(journalId)) + "\n"));
+        }
+    }
+
+    /**
+     * 上次运行在写入一行的中途停止时，先补一个换行，避免新的批次接在不完整的行后面
+     */
+    private void terminatePartialLine() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() > 0L) {
+                raf.seek(raf.length() - 1L);
+                if (raf.read() != '\n') {
+                    raf.write('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取日志中的所有批次，遇到不完整或无法解析的行时忽略该行
+     *
+     * @return 日志ID和按序号排列的批次
+     * @throws IOException 如果读取文件失败或文件头无效
+     */
+    public synchronized Contents read() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        String id;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            Header header = parse(reader.readLine(), Header.class);
+            if (header == null || header.journal() == null) {
+                throw new IOException("日志文件头无效");
+            }
+            id = header.journal();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry = parse(line, Entry.class);
+                if (entry == null || entry.batch() == null) {
+                    logger.warning("本地写入日志中有一行不完整，已忽略");
+                    continue;
+                }
+                entries.add(entry);
+            }
+        }
+        return new Contents(id, entries);
+    }
+
+    private static <T> T parse(String line, Class<T> type) {
+        if (line == null) {
+            return null;
+        }
+        try {
+            return GSON.fromJson(line, type);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 所有批次都已重放到数据库后删除日志文件
+     *
+     * @throws IOException 如果删除失败
+     */
+    public synchronized void complete() throws IOException {
+        close();
+        Files.deleteIfExists(file.toPath());
+        reset();
+    }
+
+    /**
+     * 日志无法读取或重放时改名保留，供管理员手动检查，之后的写入使用新的日志文件
+     * 改名失败时原文件保持不变，改为写入带时间戳后缀的新文件，避免下次追加时清空尚未重放的日志
+     */
+    public synchronized void quarantine() {
+        close();
+        File failed = new File(folder, FILE_NAME + ".failed-" + System.currentTimeMillis());
+        if (rename(file, failed)) {
+            logger.severe("本地写入日志已改名为 " + failed.getName() + "，请手动检查");
+            reset();
+            return;
+        }
+        File next = new File(folder, FILE_NAME + "." + System.currentTimeMillis());
+        while (next.exists()) {
+            next = new File(folder, FILE_NAME + "." + (suffix(next) + 1));
+        }
+        logger.severe("无法改名本地写入日志 " + file.getName() + "，已原样保留，请手动检查；之后的写入使用 " + next.getName());
+        file = next;
+        reset();
+    }
+
+    /**
+     * 改名日志文件
+     *
+     * @param from 原文件
+     * @param to   新文件
+     * @return 是否改名成功
+     */
+    boolean rename(File from, File to) {
+        return from.renameTo(to);
+    }
+
+    private void reset() {
+        journalId = null;
+        lastSeq = 0L;
+        pendingBatches = 0;
+    }
+
+    /**
+     * 关闭日志文件，数据已在每次追加时同步到磁盘
+     */
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warning("关闭本地写入日志失败: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * 是否有等待重放的批次
+     *
+     * @return 有等待重放的批次时返回true
+     */
+    public boolean hasPending() {
+        return pendingBatches > 0;
+    }
+
+    /**
+     * 获取等待重放的批次数量
+     *
+     * @return 批次数量
+     */
+    public int getPendingBatches() {
+        return pendingBatches;
+    }
+
+    /**
+     * 日志文件头
+     *
+     * @param journal 日志ID
+     */
+    private record Header(String journal) {
+    }
+
+    /**
+     * 日志中的一个写入批次
+     *
+     * @param seq   序号，从1开始递增
+     * @param batch 合并后的写入批次
+     */
+    public record Entry(long seq, WriteQueue.WriteBatch batch) {
+    }
+
+    /**
+     * 日志的全部内容
+     *
+     * @param journalId 日志ID
+     * @param entries   按序号排列的批次
+     */
+    public record Contents(String journalId, List<Entry> entries) {
+
+        /**
+         * 获取序号大于重放进度的批次，即尚未提交到数据库的批次
+         *
+         * @param progress 数据库记录的重放进度
+         * @return 按序号排列的批次
+         */
+        public List<Entry> after(long progress) {
+            return entries.stream().filter(entry -> entry.seq() > progress).toList();
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.miaomc.hardcore.utils;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 死亡数据的异步写入队列
+ * 所有写入由单个写入线程按入队顺序批量执行，同一玩家被后续操作覆盖的更新会在写入前合并；
+ * 入队从不阻塞调用线程，队列写满时超出的写入暂存在溢出列表中，由写入线程按顺序补回队列
+ */
+public class WriteQueue {
+    private static final long POLL_INTERVAL_MILLIS = 500L;
+
+    private final Logger logger;
+    private final BatchExecutor executor;
+    private final BlockingQueue<PendingWrite> queue;
+    // 队列写满后入队的写入，由 this 保护；不为空时新的写入也追加到这里，保证整体顺序与入队顺序一致
+    private final Deque<PendingWrite> overflow = new ArrayDeque<>();
+    private final int batchSize;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    // 队列统计数据
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder overflowCount = new LongAdder();
+    private final AtomicLong peakDepth = new AtomicLong();
+
+    // 尚未写入数据库的玩家及其写入数量，以及每个玩家最近一次写入完成时的批次序号
+    private final Map<UUID, Integer> pending = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> lastFlushed = new ConcurrentHashMap<>();
+    private final AtomicLong flushSequence = new AtomicLong();
+
+    /**
+     * 写入队列构造函数
+     *
+     * @param logger    输出队列告警的日志
+     * @param capacity  队列容量，超出的写入暂存在溢出列表中
+     * @param batchSize 单次批量写入的最大操作数
+     * @param executor  执行批量写入的回调
+     */
+    public WriteQueue(Logger logger, int capacity, int batchSize, BatchExecutor executor) {
+        this.logger = logger;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 启动写入线程，重复调用不会创建多个线程
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "HardCore-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 将写入操作加入队列，不会阻塞调用线程
+     * 队列已满时写入追加到溢出列表并计入溢出统计，开始溢出时输出一次警告
+     * 与 {@link #shutdown(long)} 持有同一把锁，关闭之后入队的写入会被拒绝而不会留在队列中
+     *
+     * @param write 写入操作
+     */
+    public synchronized void enqueue(PendingWrite write) {
+        if (!running) {
+            logger.warning("写入队列已关闭，丢弃玩家 " + write.playerId() + " 的数据写入");
+            return;
+        }
+
+        // 先登记再入队，保证写入线程完成时一定能找到对应的登记
+        pending.merge(write.playerId(), 1, Integer::sum);
+        if (!overflow.isEmpty() || !queue.offer(write)) {
+            if (overflow.isEmpty()) {
+                logger.warning("写入队列已满（容量 " + getCapacity() + "），超出的写入暂存在内存中，数据库写入速度跟不上");
+            }
+            overflow.addLast(write);
+            overflowCount.increment();
+        }
+
+        enqueued.increment();
+        peakDepth.accumulateAndGet(queue.size() + overflow.size(), Math::max);
+    }
+
+    /**
+     * 写入线程腾出队列空间后，把溢出列表中的写入按顺序补回队列
+     */
+    private synchronized void refill() {
+        while (!overflow.isEmpty() && queue.offer(overflow.peekFirst())) {
+            overflow.pollFirst();
+        }
+    }
+
+    private synchronized boolean isEmpty() {
+        return queue.isEmpty() && overflow.isEmpty();
+    }
+
+    /**
+     * 停止接收新的写入，并等待队列中剩余的写入完成
+     * 超时后仍未写入的操作留在队列中，由调用方通过 {@link #drainRemaining()} 取出保存
+     *
+     * @param timeoutMillis 最长等待时间，单位毫秒
+     */
+    public void shutdown(long timeoutMillis) {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = writerThread;
+        }
+
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive() || !isEmpty()) {
+            logger.severe("等待写入队列超时，仍有 " + getDepth() + " 条数据未写入数据库");
+        }
+    }
+
+    /**
+     * 取出关闭超时后仍未写入的操作，取出的写入不会再由写入线程执行
+     * 写入线程正在执行的批次不包含在内
+     *
+     * @return 按入队顺序排列的剩余写入
+     */
+    public synchronized List<PendingWrite> drainRemaining() {
+        List<PendingWrite> remaining = new ArrayList<>(queue.size() + overflow.size());
+        queue.drainTo(remaining);
+        remaining.addAll(overflow);
+        overflow.clear();
+        remaining.forEach(write -> release(write.playerId()));
+        notifyAll();
+        return remaining;
+    }
+
+    private void runWriter() {
+        List<PendingWrite> drained = new ArrayList<>(batchSize);
+        while (running || !isEmpty()) {
+            try {
+                refill();
+                PendingWrite first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, batchSize - 1);
+                flush(drained);
+            } catch (InterruptedException e) {
+                // 关闭时依然需要写完剩余数据，中断只用于唤醒
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> drained) {
+        WriteBatch batch = coalesce(drained);
+        try {
+            executor.execute(batch);
+            written.add(drained.size());
+            coalesced.add(drained.size() - batch.size());
+            batches.increment();
+        } catch (SQLException e) {
+            failed.add(drained.size());
+            logger.log(Level.SEVERE, "批量写入死亡数据时发生错误，" + drained.size() + " 条写入未完成: " + e.getMessage());
+        } finally {
+            long sequence = flushSequence.incrementAndGet();
+            for (PendingWrite write : drained) {
+                lastFlushed.put(write.playerId(), sequence);
+                release(write.playerId());
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    private void release(UUID playerId) {
+        pending.computeIfPresent(playerId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 获取有尚未写入操作的玩家
+     *
+     * @return 玩家UUID的快照
+     */
+    public Set<UUID> getPendingPlayers() {
+        return Set.copyOf(pending.keySet());
+    }
+
+    /**
+     * 等待指定玩家已入队的写入全部完成，写入失败也视为完成
+     *
+     * @param playerIds     玩家UUID
+     * @param timeoutMillis 最长等待时间，单位毫秒
+     * @return 是否在超时前全部完成
+     * @throws InterruptedException 如果等待时被中断
+     */
+    public synchronized boolean awaitSettled(Collection<UUID> playerIds, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (playerIds.stream().anyMatch(pending::containsKey)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0L) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * 获取当前的批次序号，用于判断之后是否有写入完成
+     *
+     * @return 已完成的批次数量
+     */
+    public long getFlushSequence() {
+        return flushSequence.get();
+    }
+
+    /**
+     * 判断玩家的数据自某个批次序号之后是否保持不变
+     * 有尚未写入的操作，或在该序号之后有写入完成时返回false，此时读到的数据库数据可能比内存旧
+     *
+     * @param playerId 玩家UUID
+     * @param sequence 读取数据库之前的批次序号
+     * @return 数据库中的数据是否可以直接覆盖内存状态
+     */
+    public boolean isSettled(UUID playerId, long sequence) {
+        return !pending.containsKey(playerId) && lastFlushed.getOrDefault(playerId, 0L) <= sequence;
+    }
+
+    /**
+     * 清除在某个批次序号及之前完成的写入记录
+     *
+     * @param sequence 批次序号
+     */
+    public void pruneFlushed(long sequence) {
+        lastFlushed.values().removeIf(flushed -> flushed <= sequence);
+    }
+
+    /**
+     * 合并同一批次中的写入操作
+     * 插入之后对同一玩家的更新直接合并到插入语句中；插入之前的更新只保留最后一次，
+     * 并在插入之前执行，因此执行顺序与入队顺序的结果一致
+     *
+     * @param drained 按入队顺序排列的写入操作
+     * @return 合并后的批次
+     */
+    static WriteBatch coalesce(List<PendingWrite> drained) {
+        List<PendingWrite.InsertDeath> inserts = new ArrayList<>();
+        Map<UUID, Integer> lastInsert = new HashMap<>();
+        Map<UUID, PendingWrite.UpdateRevival> revivals = new LinkedHashMap<>();
+        Map<UUID, PendingWrite.UpdateDeathData> deathData = new LinkedHashMap<>();
+        Map<UUID, PendingWrite.UpsertPlayerName> names = new LinkedHashMap<>();
+
+        for (PendingWrite write : drained) {
+            Integer insertIndex = lastInsert.get(write.playerId());
+            switch (write) {
+                case PendingWrite.InsertDeath insert -> {
+                    lastInsert.put(insert.playerId(), inserts.size());
+                    inserts.add(insert);
+                }
+                case PendingWrite.UpdateRevival update -> {
+                    if (insertIndex != null) {
+                        inserts.set(insertIndex, inserts.get(insertIndex).merge(update));
+                    } else {
+                        revivals.put(update.playerId(), update);
+                    }
+                }
+                case PendingWrite.UpdateDeathData update -> {
+                    if (insertIndex != null) {
+                        inserts.set(insertIndex, inserts.get(insertIndex).merge(update));
+                    } else {
+                        deathData.put(update.playerId(), update);
+                    }
+                }
+                // 玩家名称与死亡记录互不影响，只保留最后一次
+                case PendingWrite.UpsertPlayerName name -> names.put(name.playerId(), name);
+            }
+        }
+
+        return new WriteBatch(new ArrayList<>(revivals.values()), new ArrayList<>(deathData.values()), inserts,
+                new ArrayList<>(names.values()));
+    }
+
+    /**
+     * 获取当前队列深度，包括溢出列表中的写入
+     *
+     * @return 等待写入的操作数量
+     */
+    public synchronized int getDepth() {
+        return queue.size() + overflow.size();
+    }
+
+    /**
+     * 获取队列容量
+     *
+     * @return 队列容量
+     */
+    public int getCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    /**
+     * 获取队列出现过的最大深度
+     */
+    public long getPeakDepth() {
+        return peakDepth.get();
+    }
+
+    /**
+     * 获取累计入队的写入数量
+     */
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    /**
+     * 获取累计成功写入的操作数量（合并前）
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * 获取累计被合并掉的操作数量
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 获取累计写入失败的操作数量
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * 获取累计执行的批次数量
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * 获取因队列已满而暂存到溢出列表的写入数量
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+    /**
+     * 执行一个合并后批次的回调
+     */
+    @FunctionalInterface
+    public interface BatchExecutor {
+        void execute(WriteBatch batch) throws SQLException;
+    }
+
+    /**
+     * 合并后的写入批次，按字段顺序执行
+     *
+     * @param revivals  复活方式更新
+     * @param deathData 死亡数据更新
+     * @param inserts   新死亡记录插入
+     * @param names     玩家名称记录
+     */
+    public record WriteBatch(List<PendingWrite.UpdateRevival> revivals,
+                             List<PendingWrite.UpdateDeathData> deathData,
+                             List<PendingWrite.InsertDeath> inserts,
+                             List<PendingWrite.UpsertPlayerName> names) {
+
+        public int size() {
+            return revivals.size() + deathData.size() + inserts.size() + names.size();
+        }
+    }
+}
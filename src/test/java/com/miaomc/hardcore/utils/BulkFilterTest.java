@@ -0,0 +1,55 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkFilterTest {
+
+    @Test
+    void allUsesDefaultServer() {
+        BulkFilter filter = BulkFilter.parse(List.of("all"), "lobby");
+        assertEquals(new BulkFilter("lobby", 0L, 0L, null), filter);
+        assertEquals("server=lobby", filter.describe());
+    }
+
+    @Test
+    void parsesCauseAndServer() {
+        BulkFilter filter = BulkFilter.parse(List.of("cause:fall", "SERVER:survival"), "lobby");
+        assertEquals("survival", filter.serverName());
+        assertEquals("FALL", filter.cause());
+        assertEquals("server=survival, cause=FALL", filter.describe());
+    }
+
+    @Test
+    void parsesRelativeTime() {
+        long before = DeathState.now();
+        BulkFilter filter = BulkFilter.parse(List.of("from:2h", "to:30m"), "lobby");
+        long after = DeathState.now();
+        assertTrue(filter.deathFrom() >= before - 7200L && filter.deathFrom() <= after - 7200L);
+        assertTrue(filter.deathTo() >= before - 1800L && filter.deathTo() <= after - 1800L);
+    }
+
+    @Test
+    void parsesLocalTime() {
+        BulkFilter filter = BulkFilter.parse(List.of("from:2024-01-01T12:00"), "lobby");
+        assertEquals(LocalDateTime.of(2024, 1, 1, 12, 0).atZone(ZoneId.systemDefault()).toEpochSecond(),
+                filter.deathFrom());
+    }
+
+    @Test
+    void rejectsInvalidTokens() {
+        assertThrows(IllegalArgumentException.class, () -> BulkFilter.parse(List.of(), "lobby"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> BulkFilter.parse(List.of("all", "from:yesterday"), "lobby"));
+        assertEquals("from:yesterday", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> BulkFilter.parse(List.of("cause:"), "lobby"));
+        assertThrows(IllegalArgumentException.class, () -> BulkFilter.parse(List.of("world:nether"), "lobby"));
+    }
+}
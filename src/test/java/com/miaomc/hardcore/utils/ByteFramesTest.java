@@ -0,0 +1,49 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteFramesTest {
+
+    @Test
+    void framesRoundTripInOrder() throws IOException {
+        List<byte[]> frames = List.of(bytes("diamond_sword"), new byte[0], bytes("torch"));
+
+        List<byte[]> unpacked = ByteFrames.unpack(ByteFrames.pack(frames));
+        assertEquals(3, unpacked.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertArrayEquals(frames.get(i), unpacked.get(i));
+        }
+    }
+
+    @Test
+    void missingDataMeansNoFrames() throws IOException {
+        assertTrue(ByteFrames.unpack(null).isEmpty());
+        assertTrue(ByteFrames.unpack(new byte[0]).isEmpty());
+        assertTrue(ByteFrames.unpack(ByteFrames.pack(List.of())).isEmpty());
+    }
+
+    @Test
+    void truncatedDataIsRejected() {
+        byte[] packed = ByteFrames.pack(List.of(bytes("diamond_sword"), bytes("torch")));
+
+        // 截掉最后一段的一部分，或把长度改成超出剩余数据的值
+        assertThrows(IOException.class, () -> ByteFrames.unpack(Arrays.copyOf(packed, packed.length - 2)));
+        byte[] corrupted = packed.clone();
+        corrupted[4] = 0x7F;
+        assertThrows(IOException.class, () -> ByteFrames.unpack(corrupted));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,116 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CooldownCacheTest {
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Test
+    void missReturnsNullAndHitReturnsSameInstance() {
+        CooldownCache cache = new CooldownCache();
+        assertNull(cache.get(ALICE));
+
+        DeathState state = dead(7L, 100L, 200L);
+        cache.put(ALICE, state);
+        assertSame(state, cache.get(ALICE));
+        assertEquals(7L, cache.getRowId(ALICE));
+        assertEquals(0L, cache.getRowId(BOB));
+    }
+
+    @Test
+    void cooldownFollowsReviveTimeAndRevival() {
+        DeathState state = dead(1L, 100L, 200L);
+        assertTrue(state.isInCooldown(150L));
+        assertEquals(50L, state.getTimeRemain(150L));
+        assertFalse(state.isInCooldown(200L));
+        assertEquals(0L, state.getTimeRemain(250L));
+
+        DeathState revived = state.withRevival("points", true);
+        assertFalse(revived.isInCooldown(150L));
+        assertFalse(revived.isUnhandled());
+        assertFalse(DeathState.NONE.isInCooldown(150L));
+        assertSame(DeathState.NONE, DeathState.NONE.withRevival("points", true));
+    }
+
+    @Test
+    void updatesOnlyTouchCachedPlayers() {
+        CooldownCache cache = new CooldownCache();
+        cache.put(ALICE, dead(1L, 100L, 200L));
+
+        cache.updateRevival(ALICE, "points", true);
+        cache.updateRevival(BOB, "points", true);
+        assertEquals("points", cache.get(ALICE).revivalMethod());
+        assertTrue(cache.get(ALICE).handled());
+        assertNull(cache.get(BOB));
+
+        // 更新死亡时间时保留复活方式和行ID
+        cache.updateDeathTime(ALICE, 300L, 400L);
+        cache.updateDeathTime(BOB, 300L, 400L);
+        assertEquals(300L, cache.get(ALICE).deathAt());
+        assertEquals(400L, cache.get(ALICE).reviveAt());
+        assertEquals("points", cache.get(ALICE).revivalMethod());
+        assertEquals(1L, cache.getRowId(ALICE));
+        assertNull(cache.get(BOB));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void assignIdOnlyMatchesSameDeath() {
+        CooldownCache cache = new CooldownCache();
+        cache.put(ALICE, dead(0L, 100L, 200L));
+
+        cache.assignId(ALICE, 99L, 5L);
+        assertEquals(0L, cache.getRowId(ALICE));
+        cache.assignId(ALICE, 100L, 5L);
+        assertEquals(5L, cache.getRowId(ALICE));
+
+        // 已有ID的记录不会被其他插入的结果覆盖
+        cache.assignId(ALICE, 100L, 6L);
+        assertEquals(5L, cache.getRowId(ALICE));
+    }
+
+    @Test
+    void bulkRevivalSkipsNewerAndRevivedRecords() {
+        CooldownCache cache = new CooldownCache();
+        cache.put(ALICE, dead(1L, 100L, 200L));
+        cache.put(BOB, dead(2L, 100L, 200L).withRevival("self", true));
+
+        int applied = cache.applyBulkRevival(Map.of(ALICE, 1L, BOB, 2L, UUID.randomUUID(), 3L), "bulk", true);
+        assertEquals(1, applied);
+        assertEquals("bulk", cache.get(ALICE).revivalMethod());
+        assertEquals("self", cache.get(BOB).revivalMethod());
+
+        // 批量操作期间玩家又死亡了一次，缓存中已是新记录
+        cache.put(ALICE, dead(9L, 300L, 400L));
+        assertEquals(0, cache.applyBulkRevival(Map.of(ALICE, 1L), "bulk", true));
+        assertNull(cache.get(ALICE).revivalMethod());
+    }
+
+    @Test
+    void invalidateAndClearRemoveEntries() {
+        CooldownCache cache = new CooldownCache();
+        cache.put(ALICE, dead(1L, 100L, 200L));
+        cache.put(BOB, DeathState.NONE);
+
+        cache.invalidate(ALICE);
+        assertNull(cache.get(ALICE));
+        assertSame(DeathState.NONE, cache.get(BOB));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    private static DeathState dead(long id, long deathAt, long reviveAt) {
+        return new DeathState(id, true, deathAt, reviveAt, null, false, null);
+    }
+}
@@ -0,0 +1,100 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CooldownSyncTest {
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID CAROL = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    @Test
+    void watermarkAdvancesToLatestChangeAndNeverMovesBack() {
+        assertEquals(1_000L, DeathStateChange.watermark(List.of(), 1_000L));
+        assertEquals(3_000L, DeathStateChange.watermark(List.of(
+                change(ALICE, dead(1L), 3_000L),
+                change(BOB, dead(2L), 2_000L)), 1_000L));
+        // 回看窗口内读到的旧变更不会让水位线后退
+        assertEquals(5_000L, DeathStateChange.watermark(List.of(change(ALICE, dead(1L), 4_000L)), 5_000L));
+    }
+
+    @Test
+    void latestChangeIsAppliedToCachedPlayersOnly() {
+        CooldownCache cache = new CooldownCache();
+        cache.put(ALICE, dead(1L));
+        DeathState revived = dead(1L).withRevival("remote", true);
+
+        int applied = cache.applyRemoteChanges(List.of(
+                change(ALICE, dead(1L).withRevival("older", false), 1_000L),
+                change(ALICE, revived, 2_000L),
+                change(CAROL, revived, 2_000L)), playerId -> true);
+
+        assertEquals(1, applied);
+        assertEquals(revived, cache.get(ALICE));
+        assertNull(cache.get(CAROL));
+    }
+
+    @Test
+    void unchangedStateIsNotCounted() {
+        CooldownCache cache = new CooldownCache();
+        DeathState state = dead(1L);
+        cache.put(ALICE, state);
+
+        assertEquals(0, cache.applyRemoteChanges(List.of(change(ALICE, dead(1L), 1_000L)), playerId -> true));
+        assertSame(state, cache.get(ALICE));
+    }
+
+    @Test
+    void localPendingWriteWinsOverRemoteChange() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        WriteQueue queue = new WriteQueue(Logger.getLogger("CooldownSyncTest"), 4, 10, batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        queue.start();
+
+        CooldownCache cache = new CooldownCache();
+        DeathState local = dead(1L).withRevival("local", true);
+        cache.put(ALICE, local);
+        cache.put(BOB, dead(2L));
+        long sequence = queue.getFlushSequence();
+        queue.enqueue(new PendingWrite.UpdateRevival(ALICE, 1L, "local", true));
+
+        // 读取数据库时本服的复活还没有写入，读到的旧状态不能覆盖缓存
+        int applied = cache.applyRemoteChanges(List.of(
+                change(ALICE, dead(1L), 1_000L),
+                change(BOB, dead(2L).withRevival("remote", true), 1_000L)),
+                playerId -> queue.isSettled(playerId, sequence));
+
+        assertEquals(1, applied);
+        assertSame(local, cache.get(ALICE));
+        assertEquals("remote", cache.get(BOB).revivalMethod());
+
+        // 查询期间完成的写入同样以本地为准
+        release.countDown();
+        assertTrue(queue.awaitSettled(List.of(ALICE), 5000L));
+        assertFalse(queue.isSettled(ALICE, sequence));
+        queue.shutdown(5000L);
+    }
+
+    private static DeathStateChange change(UUID playerId, DeathState state, long updatedAt) {
+        return new DeathStateChange(playerId, state, updatedAt);
+    }
+
+    private static DeathState dead(long id) {
+        return new DeathState(id, true, 100L, 200L, null, false, null);
+    }
+}
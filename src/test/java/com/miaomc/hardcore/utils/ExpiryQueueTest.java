@@ -0,0 +1,98 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiryQueueTest {
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID CAROL = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    @Test
+    void dueEntriesComeOutByFireTimeThenRegistrationOrder() {
+        ExpiryQueue queue = new ExpiryQueue();
+        queue.register(ALICE, 130L, 100L);
+        queue.register(BOB, 120L, 100L);
+        queue.register(CAROL, 120L, 100L);
+
+        assertNull(queue.pollDue(119L));
+        assertEquals(List.of(BOB, CAROL), drain(queue, 125L));
+        assertEquals(List.of(ALICE), drain(queue, 200L));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void longCooldownFiresAtReminderInterval() {
+        ExpiryQueue queue = new ExpiryQueue();
+        queue.register(ALICE, 10_000L, 100L);
+
+        ExpiryQueue.Entry entry = queue.pollDue(400L);
+        assertEquals(400L, entry.fireAt());
+        assertEquals(10_000L, entry.reviveAt());
+
+        // 提醒之后重新登记，最后一次在冷却结束时触发
+        queue.schedule(ALICE, 10_000L, 9_800L);
+        assertNull(queue.pollDue(9_999L));
+        assertEquals(10_000L, queue.pollDue(10_000L).fireAt());
+    }
+
+    @Test
+    void reRegistrationSupersedesEarlierEntry() {
+        ExpiryQueue queue = new ExpiryQueue();
+        queue.register(ALICE, 120L, 100L);
+        queue.register(ALICE, 200L, 100L);
+
+        // 旧条目的触发时间到了也不会出队
+        assertNull(queue.pollDue(150L));
+        assertEquals(200L, queue.pollDue(200L).reviveAt());
+        assertNull(queue.pollDue(300L));
+    }
+
+    @Test
+    void sameReviveTimeKeepsOriginalEntry() {
+        ExpiryQueue queue = new ExpiryQueue();
+        queue.register(ALICE, 10_000L, 100L);
+        queue.register(ALICE, 10_000L, 200L);
+
+        assertEquals(1, queue.queuedSize());
+        assertEquals(400L, queue.pollDue(400L).fireAt());
+    }
+
+    @Test
+    void unregisteredPlayerNeverFires() {
+        ExpiryQueue queue = new ExpiryQueue();
+        queue.register(ALICE, 120L, 100L);
+        queue.register(BOB, 120L, 100L);
+        queue.unregister(ALICE);
+
+        assertEquals(List.of(BOB), drain(queue, 200L));
+    }
+
+    @Test
+    void supersededEntriesAreCompacted() {
+        ExpiryQueue queue = new ExpiryQueue();
+        for (long reviveAt = 1_000L; reviveAt < 2_000L; reviveAt++) {
+            queue.register(ALICE, reviveAt, 100L);
+        }
+
+        assertEquals(1, queue.size());
+        assertTrue(queue.queuedSize() <= 66);
+        assertEquals(List.of(ALICE), drain(queue, 5_000L));
+    }
+
+    private static List<UUID> drain(ExpiryQueue queue, long now) {
+        List<UUID> fired = new ArrayList<>();
+        ExpiryQueue.Entry entry;
+        while ((entry = queue.pollDue(now)) != null) {
+            fired.add(entry.playerId());
+        }
+        return fired;
+    }
+}
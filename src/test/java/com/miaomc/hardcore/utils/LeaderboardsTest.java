@@ -0,0 +1,62 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LeaderboardsTest {
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Test
+    void ranksAreOneBasedAndOutOfRangeIsNull() {
+        Leaderboards leaderboards = new Leaderboards();
+        assertNull(leaderboards.get(Leaderboards.Board.DEATHS, 1));
+
+        leaderboards.replace(Map.of(Leaderboards.Board.DEATHS,
+                List.of(new Leaderboards.Entry("alice", 5L), new Leaderboards.Entry("bob", 3L))));
+        assertEquals("alice", leaderboards.get(Leaderboards.Board.DEATHS, 1).name());
+        assertEquals(3L, leaderboards.get(Leaderboards.Board.DEATHS, 2).value());
+        assertNull(leaderboards.get(Leaderboards.Board.DEATHS, 0));
+        assertNull(leaderboards.get(Leaderboards.Board.DEATHS, 3));
+        assertNull(leaderboards.get(Leaderboards.Board.SURVIVAL, 1));
+    }
+
+    @Test
+    void survivalIsMeasuredFromRevivalToNextDeath() {
+        Leaderboards leaderboards = new Leaderboards();
+        leaderboards.putPlayer(ALICE, Leaderboards.PlayerStats.EMPTY);
+
+        // 第一次死亡之前不知道存活起点，不计入最长存活时间
+        leaderboards.recordDeath(ALICE, 1_000L);
+        assertEquals(new Leaderboards.PlayerStats(1, 0L, 0L), leaderboards.getPlayer(ALICE));
+
+        leaderboards.recordRevival(ALICE, 2_000L);
+        leaderboards.recordDeath(ALICE, 2_500L);
+        assertEquals(new Leaderboards.PlayerStats(2, 500L, 0L), leaderboards.getPlayer(ALICE));
+
+        // 更短的存活时间不会覆盖最长存活时间
+        leaderboards.recordRevival(ALICE, 3_000L);
+        assertEquals(3_000L, leaderboards.getPlayer(ALICE).aliveSince());
+        leaderboards.recordDeath(ALICE, 3_100L);
+        assertEquals(new Leaderboards.PlayerStats(3, 500L, 0L), leaderboards.getPlayer(ALICE));
+    }
+
+    @Test
+    void onlyLoadedPlayersAreUpdated() {
+        Leaderboards leaderboards = new Leaderboards();
+        leaderboards.recordDeath(BOB, 1_000L);
+        leaderboards.recordRevival(BOB, 2_000L);
+        assertNull(leaderboards.getPlayer(BOB));
+
+        leaderboards.putPlayer(ALICE, new Leaderboards.PlayerStats(4, 100L, 0L));
+        leaderboards.removePlayer(ALICE);
+        leaderboards.recordDeath(ALICE, 1_000L);
+        assertNull(leaderboards.getPlayer(ALICE));
+    }
+}
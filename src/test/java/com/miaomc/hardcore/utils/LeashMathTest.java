@@ -0,0 +1,43 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeashMathTest {
+    private static final double EPSILON = 1.0E-9D;
+
+    @Test
+    void onlyHorizontalDistanceIsCompared() {
+        assertTrue(LeashMath.isInside(0D, 0D, 16D));
+        assertTrue(LeashMath.isInside(16D, 0D, 16D));
+        assertTrue(LeashMath.isInside(-11D, 11D, 16D));
+        assertFalse(LeashMath.isInside(12D, -12D, 16D));
+        assertFalse(LeashMath.isInside(0D, 16.01D, 16D));
+    }
+
+    @Test
+    void pullBackKeepsDirectionAndLandsInsideRadius() {
+        double dx = 30D;
+        double dz = -40D;
+        double scale = LeashMath.pullBackScale(dx, dz, 20D);
+
+        // 距离50拉回到半径20的90%处，方向不变
+        assertEquals(18D, Math.hypot(dx * scale, dz * scale), EPSILON);
+        assertEquals(dx / dz, (dx * scale) / (dz * scale), EPSILON);
+        assertTrue(LeashMath.isInside(dx * scale, dz * scale, 20D));
+    }
+
+    @Test
+    void everyPlayerIsCheckedWithinOneInterval() {
+        assertEquals(0, LeashMath.checksPerTick(0, 20));
+        assertEquals(1, LeashMath.checksPerTick(1, 20));
+        assertEquals(1, LeashMath.checksPerTick(20, 20));
+        assertEquals(2, LeashMath.checksPerTick(21, 20));
+        assertEquals(5, LeashMath.checksPerTick(5, 1));
+        // 间隔配置为0时按每 tick 检查所有人处理
+        assertEquals(5, LeashMath.checksPerTick(5, 0));
+    }
+}
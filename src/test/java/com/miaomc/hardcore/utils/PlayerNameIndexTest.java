@@ -0,0 +1,69 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerNameIndexTest {
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Test
+    void findsIgnoringCase() {
+        PlayerNameIndex index = new PlayerNameIndex();
+        assertTrue(index.put(ALICE, "Alice", 100L));
+        assertEquals(ALICE, index.find("alice"));
+        assertEquals(ALICE, index.find("ALICE"));
+        assertNull(index.find("bob"));
+    }
+
+    @Test
+    void putReportsWhetherWriteIsNeeded() {
+        PlayerNameIndex index = new PlayerNameIndex();
+        assertTrue(index.put(ALICE, "Alice", 100L));
+        assertFalse(index.put(ALICE, "Alice", 200L));
+        assertFalse(index.put(ALICE, "Alicia", 50L));
+        assertTrue(index.put(ALICE, "Alice", 100L + 86400L));
+    }
+
+    @Test
+    void renameRemovesOldName() {
+        PlayerNameIndex index = new PlayerNameIndex();
+        index.put(ALICE, "Alice", 100L);
+        assertTrue(index.put(ALICE, "Alicia", 200L));
+        assertNull(index.find("alice"));
+        assertEquals(ALICE, index.find("alicia"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void latestOwnerKeepsReusedName() {
+        PlayerNameIndex index = new PlayerNameIndex();
+        index.put(ALICE, "Steve", 100L);
+        index.put(BOB, "steve", 200L);
+        assertEquals(BOB, index.find("Steve"));
+
+        // 旧主人改名时不能移除已属于其他玩家的名称
+        index.put(ALICE, "Alice", 300L);
+        assertEquals(BOB, index.find("steve"));
+    }
+
+    @Test
+    void completesByPrefix() {
+        PlayerNameIndex index = new PlayerNameIndex();
+        index.put(ALICE, "Alice", 100L);
+        index.put(BOB, "Albert", 100L);
+        index.put(UUID.randomUUID(), "Bob", 100L);
+
+        assertEquals(List.of("Albert", "Alice"), index.complete("al", 10));
+        assertEquals(List.of("Albert"), index.complete("AL", 1));
+        assertEquals(3, index.complete("", 10).size());
+        assertEquals(List.of(), index.complete("z", 10));
+    }
+}
@@ -0,0 +1,143 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaMigratorTest {
+    private static final String TABLE = "deaths";
+    private static final int LATEST_VERSION = 13;
+    private static final Set<Integer> ALL_VERSIONS = IntStream.rangeClosed(1, LATEST_VERSION).boxed().collect(Collectors.toSet());
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @TempDir
+    File folder;
+
+    private Connection connection;
+    private SchemaMigrator migrator;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite:" + new File(folder, "test.db").getAbsolutePath());
+        migrator = new SchemaMigrator(Logger.getLogger("SchemaMigratorTest"), TABLE, SqlDialect.SQLITE);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void freshDatabaseReachesLatestVersionAtStartup() throws SQLException {
+        assertTrue(migrator.migrate(connection));
+        assertEquals(ALL_VERSIONS, migrator.getAppliedVersions(connection));
+        assertEquals(LATEST_VERSION, SchemaMigrator.observedVersion(migrator.getAppliedVersions(connection)));
+        assertFalse(migrator.requiresLegacyUuid(connection));
+        assertTrue(hasColumn(TABLE, "uuid_bin"));
+        assertTrue(hasColumn(TABLE, "cause_key"));
+        assertTrue(hasColumn(SchemaMigrator.archiveTableName(TABLE), "cause_key"));
+        assertFalse(hasColumn(TABLE, "uuid"));
+
+        // 重复执行不会再次迁移
+        assertTrue(migrator.migrate(connection));
+        assertTrue(migrator.migrateOnline(connection));
+        assertEquals(ALL_VERSIONS, migrator.getAppliedVersions(connection));
+    }
+
+    @Test
+    void legacyDatabaseIsBackfilledAndContracted() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE `" + TABLE + "` (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "uuid VARCHAR(36) NOT NULL, server_name VARCHAR(64) NOT NULL, death_data TEXT, " +
+                    "revival_method VARCHAR(128), handled BOOLEAN DEFAULT FALSE, " +
+                    "update_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "create_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+        insertLegacy(ALICE, 100L, 200L, "fall");
+        insertLegacy(ALICE, 300L, 400L, "lava");
+        insertLegacy(BOB, 500L, 600L, "fall");
+
+        // 启动时只执行表结构迁移，逐行回填留给后台
+        assertTrue(migrator.migrate(connection));
+        Set<Integer> applied = migrator.getAppliedVersions(connection);
+        assertFalse(applied.contains(SchemaMigrator.BACKFILL_VERSION));
+        assertFalse(applied.contains(SchemaMigrator.STATS_BACKFILL_VERSION));
+        assertFalse(applied.contains(SchemaMigrator.CONTRACT_VERSION));
+        assertEquals(3, SchemaMigrator.observedVersion(applied));
+        assertTrue(hasColumn(TABLE, "cause_key"));
+        assertTrue(migrator.requiresLegacyUuid(connection));
+
+        // 玩家进入时单独回填
+        migrator.backfillPlayer(connection, ALICE);
+        assertEquals(List.of("100", "300"), query("SELECT death_at FROM `" + TABLE + "` WHERE uuid_bin IS NOT NULL ORDER BY id"));
+
+        // 后台迁移完成回填和统计，删除字符串UUID列需要等到下次启动
+        assertFalse(migrator.migrateOnline(connection));
+        applied = migrator.getAppliedVersions(connection);
+        assertTrue(applied.contains(SchemaMigrator.BACKFILL_VERSION));
+        assertTrue(applied.contains(SchemaMigrator.STATS_BACKFILL_VERSION));
+        assertFalse(applied.contains(SchemaMigrator.CONTRACT_VERSION));
+        assertEquals(List.of("0"), query("SELECT COUNT(*) FROM `" + TABLE + "` WHERE uuid_bin IS NULL"));
+        assertEquals(List.of("1", "2"),
+                query("SELECT deaths FROM `" + SchemaMigrator.statsTableName(TABLE) + "` ORDER BY deaths"));
+
+        assertTrue(migrator.migrate(connection));
+        assertEquals(ALL_VERSIONS, migrator.getAppliedVersions(connection));
+        assertFalse(hasColumn(TABLE, "uuid"));
+        assertEquals(List.of("3"), query("SELECT COUNT(*) FROM `" + TABLE + "`"));
+    }
+
+    @Test
+    void observedVersionStopsAtFirstGap() {
+        assertEquals(0, SchemaMigrator.observedVersion(Set.of()));
+        assertEquals(3, SchemaMigrator.observedVersion(Set.of(1, 2, 3, 5, 6)));
+        assertEquals(6, SchemaMigrator.observedVersion(Set.of(1, 2, 3, 4, 5, 6)));
+    }
+
+    private void insertLegacy(UUID playerId, long deathAt, long reviveAt, String cause) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO `" + TABLE + "` (uuid, server_name, death_data) VALUES (?, 'survival', ?)")) {
+            statement.setString(1, playerId.toString());
+            statement.setString(2, "{\"deathAt\":" + deathAt + ",\"reviveAt\":" + reviveAt + ",\"deathCaused\":\"" + cause + "\"}");
+            statement.executeUpdate();
+        }
+    }
+
+    private boolean hasColumn(String table, String column) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(null, null, table, column)) {
+            return columns.next();
+        }
+    }
+
+    private List<String> query(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+        }
+        return values;
+    }
+}
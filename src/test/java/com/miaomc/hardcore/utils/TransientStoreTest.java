@@ -0,0 +1,52 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TransientStoreTest {
+
+    @Test
+    void storesAndRemovesEntries() {
+        TransientStore<String, Integer> store = new TransientStore<>(60_000L, 10);
+        store.put("a", 1);
+        assertEquals(1, store.get("a"));
+        assertEquals(1, store.remove("a"));
+        assertNull(store.get("a"));
+        assertNull(store.remove("a"));
+    }
+
+    @Test
+    void entriesExpire() throws InterruptedException {
+        TransientStore<String, Integer> store = new TransientStore<>(20L, 10);
+        store.put("a", 1);
+        Thread.sleep(50L);
+        assertNull(store.get("a"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void evictsEldestWhenFull() {
+        TransientStore<String, Integer> store = new TransientStore<>(60_000L, 2);
+        store.put("a", 1);
+        store.put("b", 2);
+        store.put("c", 3);
+        assertEquals(2, store.size());
+        assertNull(store.get("a"));
+        assertEquals(2, store.get("b"));
+        assertEquals(3, store.get("c"));
+    }
+
+    @Test
+    void putMovesEntryToEnd() {
+        TransientStore<String, Integer> store = new TransientStore<>(60_000L, 2);
+        store.put("a", 1);
+        store.put("b", 2);
+        // 重新写入的条目排到最后，超过上限时先淘汰 b
+        store.put("a", 10);
+        store.put("c", 3);
+        assertEquals(10, store.get("a"));
+        assertNull(store.get("b"));
+    }
+}
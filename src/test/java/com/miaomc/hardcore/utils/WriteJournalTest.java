@@ -0,0 +1,147 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class WriteJournalTest {
+    private static final Logger LOGGER = Logger.getLogger("WriteJournalTest");
+
+    @TempDir
+    File folder;
+
+    @Test
+    void appendedBatchesAreReadBackInOrder() throws IOException {
+        WriteJournal journal = new WriteJournal(LOGGER, folder);
+        journal.append(batch("a"));
+        journal.append(batch("b"));
+        journal.close();
+
+        WriteJournal.Contents contents = journal.read();
+        assertNotNull(contents.journalId());
+        assertEquals(List.of(1L, 2L), seqs(contents.entries()));
+        assertEquals("a", contents.entries().get(0).batch().names().getFirst().name());
+        assertEquals(2, journal.getPendingBatches());
+    }
+
+    @Test
+    void partialLineIsIgnoredAndNextBatchStartsOnNewLine() throws IOException {
+        WriteJournal journal = new WriteJournal(LOGGER, folder);
+        journal.append(batch("a"));
+        journal.append(batch("b"));
+        journal.close();
+        String journalId = journal.read().journalId();
+
+        // 模拟写入第三批时进程中止，只留下半行
+        Files.writeString(journalFile().toPath(), "{\"seq\":3,\"batch\":{\"revi", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        WriteJournal reopened = new WriteJournal(LOGGER, folder);
+        assertEquals(2, reopened.getPendingBatches());
+        reopened.append(batch("c"));
+        reopened.close();
+
+        WriteJournal.Contents contents = reopened.read();
+        assertEquals(journalId, contents.journalId());
+        assertEquals(List.of(1L, 2L, 3L), seqs(contents.entries()));
+        assertEquals("c", contents.entries().get(2).batch().names().getFirst().name());
+    }
+
+    @Test
+    void interruptedReplaySkipsCommittedBatches() throws IOException {
+        WriteJournal journal = new WriteJournal(LOGGER, folder);
+        for (String name : List.of("a", "b", "c", "d")) {
+            journal.append(batch(name));
+        }
+        journal.close();
+
+        // 重放到第二批时中断，数据库中记录的进度为2；重启后继续重放只应包含之后的批次
+        WriteJournal reopened = new WriteJournal(LOGGER, folder);
+        WriteJournal.Contents contents = reopened.read();
+        assertEquals(List.of(3L, 4L), seqs(contents.after(2L)));
+        assertEquals(List.of(), seqs(contents.after(4L)));
+        assertEquals(List.of(1L, 2L, 3L, 4L), seqs(contents.after(0L)));
+
+        // 同一份日志再次读取时序号保持不变，重复重放不会重复写入
+        assertEquals(seqs(contents.entries()), seqs(reopened.read().entries()));
+        assertEquals(journal.read().journalId(), contents.journalId());
+    }
+
+    @Test
+    void completeDeletesJournalAndStartsNewId() throws IOException {
+        WriteJournal journal = new WriteJournal(LOGGER, folder);
+        journal.append(batch("a"));
+        String firstId = journal.read().journalId();
+        journal.complete();
+        assertFalse(journalFile().exists());
+        assertFalse(journal.hasPending());
+
+        journal.append(batch("b"));
+        journal.close();
+        WriteJournal.Contents contents = journal.read();
+        assertNotEquals(firstId, contents.journalId());
+        assertEquals(List.of(1L), seqs(contents.entries()));
+    }
+
+    @Test
+    void invalidHeaderIsQuarantined() throws IOException {
+        Files.writeString(journalFile().toPath(), "not a header\n", StandardCharsets.UTF_8);
+
+        WriteJournal journal = new WriteJournal(LOGGER, folder);
+        assertFalse(journal.hasPending());
+        assertFalse(journalFile().exists());
+        File[] failed = folder.listFiles((dir, name) -> name.startsWith("writes.journal.failed-"));
+        assertNotNull(failed);
+        assertEquals(1, failed.length);
+    }
+
+    @Test
+    void failedRenameLeavesJournalAndWritesToNewFile() throws IOException {
+        String unreadable = "not a header\n";
+        Files.writeString(journalFile().toPath(), unreadable, StandardCharsets.UTF_8);
+
+        // 改名失败时原文件保持不变，新的写入进入另一个文件
+        WriteJournal journal = new WriteJournal(LOGGER, folder) {
+            @Override
+            boolean rename(File from, File to) {
+                return false;
+            }
+        };
+        assertFalse(journal.hasPending());
+        journal.append(batch("a"));
+        journal.close();
+        assertEquals(unreadable, Files.readString(journalFile().toPath(), StandardCharsets.UTF_8));
+        assertEquals(List.of(1L), seqs(journal.read().entries()));
+
+        // 下次启动时无法读取的文件被改名保留，新文件中的批次等待重放
+        WriteJournal reopened = new WriteJournal(LOGGER, folder);
+        assertFalse(journalFile().exists());
+        assertEquals(1, reopened.getPendingBatches());
+        assertEquals("a", reopened.read().entries().getFirst().batch().names().getFirst().name());
+    }
+
+    private File journalFile() {
+        return new File(folder, "writes.journal");
+    }
+
+    private static WriteQueue.WriteBatch batch(String name) {
+        return WriteQueue.coalesce(List.of(new PendingWrite.UpsertPlayerName(UUID.randomUUID(), name, 1L)));
+    }
+
+    private static List<Long> seqs(List<WriteJournal.Entry> entries) {
+        return entries.stream().map(WriteJournal.Entry::seq).toList();
+    }
+}
@@ -0,0 +1,209 @@
+package com.miaomc.hardcore.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteQueueTest {
+    private static final Logger LOGGER = Logger.getLogger("WriteQueueTest");
+    private static final UUID PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID OTHER = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Test
+    void revivalIsFoldedIntoPendingInsert() {
+        WriteQueue.WriteBatch batch = WriteQueue.coalesce(List.of(
+                insert(PLAYER, 100L, 200L),
+                new PendingWrite.UpdateRevival(PLAYER, 0L, "points", true)));
+
+        assertTrue(batch.revivals().isEmpty());
+        assertEquals(1, batch.inserts().size());
+        DeathState state = batch.inserts().getFirst().state();
+        assertEquals("points", state.revivalMethod());
+        assertTrue(state.handled());
+        assertEquals(100L, state.deathAt());
+        assertEquals(200L, state.reviveAt());
+    }
+
+    @Test
+    void deathDataIsFoldedIntoPendingInsert() {
+        WriteQueue.WriteBatch batch = WriteQueue.coalesce(List.of(
+                insert(PLAYER, 100L, 200L),
+                new PendingWrite.UpdateDeathData(PLAYER, 0L, 150L, 250L, "lava")));
+
+        assertTrue(batch.deathData().isEmpty());
+        PendingWrite.InsertDeath insert = batch.inserts().getFirst();
+        assertEquals(150L, insert.record().deathAt());
+        assertEquals(250L, insert.record().reviveAt());
+        assertEquals("lava", insert.record().deathCause());
+        assertEquals("world", insert.record().world());
+        assertEquals("FALL", insert.causeKey());
+    }
+
+    @Test
+    void revivalBeforeInsertIsKeptSeparately() {
+        WriteQueue.WriteBatch batch = WriteQueue.coalesce(List.of(
+                new PendingWrite.UpdateRevival(PLAYER, 7L, "first", false),
+                new PendingWrite.UpdateRevival(PLAYER, 7L, "second", true),
+                insert(PLAYER, 100L, 200L)));
+
+        // 插入之前的更新只保留最后一次，并且不影响新插入的记录
+        assertEquals(1, batch.revivals().size());
+        assertEquals("second", batch.revivals().getFirst().revivalMethod());
+        assertNull(batch.inserts().getFirst().state().revivalMethod());
+    }
+
+    @Test
+    void revivalIsFoldedIntoLatestInsertOnly() {
+        WriteQueue.WriteBatch batch = WriteQueue.coalesce(List.of(
+                insert(PLAYER, 100L, 200L),
+                insert(PLAYER, 300L, 400L),
+                new PendingWrite.UpdateRevival(PLAYER, 0L, "points", true)));
+
+        assertEquals(2, batch.inserts().size());
+        assertNull(batch.inserts().get(0).state().revivalMethod());
+        assertEquals("points", batch.inserts().get(1).state().revivalMethod());
+    }
+
+    @Test
+    void otherPlayersAreNotMerged() {
+        WriteQueue.WriteBatch batch = WriteQueue.coalesce(List.of(
+                insert(PLAYER, 100L, 200L),
+                new PendingWrite.UpdateRevival(OTHER, 3L, "points", true),
+                new PendingWrite.UpsertPlayerName(PLAYER, "old", 1L),
+                new PendingWrite.UpsertPlayerName(PLAYER, "new", 2L)));
+
+        assertEquals(1, batch.revivals().size());
+        assertEquals(OTHER, batch.revivals().getFirst().playerId());
+        assertNull(batch.inserts().getFirst().state().revivalMethod());
+        assertEquals(1, batch.names().size());
+        assertEquals("new", batch.names().getFirst().name());
+        assertEquals(3, batch.size());
+    }
+
+    @Test
+    void fullQueueOverflowsWithoutBlockingAndKeepsOrder() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        WriteQueue queue = new WriteQueue(LOGGER, 2, 1, batch -> {
+            started.countDown();
+            await(release);
+            batch.names().forEach(name -> written.add(name.name()));
+        });
+        queue.start();
+
+        // 写入线程卡在第一批时，容量为2的队列只能再放两条，其余进入溢出列表而不是阻塞调用线程
+        queue.enqueue(name("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (String name : List.of("b", "c", "d", "e")) {
+            queue.enqueue(name(name));
+        }
+        assertEquals(4, queue.getDepth());
+        assertEquals(2, queue.getOverflowCount());
+        assertEquals(5, queue.getEnqueuedCount());
+
+        release.countDown();
+        queue.shutdown(5000L);
+        assertEquals(List.of("a", "b", "c", "d", "e"), written);
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    void writesAfterShutdownAreRejected() {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        WriteQueue queue = new WriteQueue(LOGGER, 4, 10,
+                batch -> batch.names().forEach(name -> written.add(name.name())));
+        queue.start();
+        queue.enqueue(name("a"));
+        long sequence = queue.getFlushSequence();
+        queue.shutdown(5000L);
+
+        PendingWrite.UpsertPlayerName late = name("b");
+        queue.enqueue(late);
+        assertEquals(List.of("a"), written);
+        assertEquals(1, queue.getEnqueuedCount());
+        assertEquals(0, queue.getDepth());
+        // 被拒绝的写入不会登记为待写入，不会让跨服同步一直等待
+        assertTrue(queue.isSettled(late.playerId(), sequence));
+    }
+
+    @Test
+    void writesLeftAfterShutdownTimeoutCanBeDrained() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        WriteQueue queue = new WriteQueue(LOGGER, 2, 1, batch -> {
+            started.countDown();
+            await(release);
+            batch.names().forEach(name -> written.add(name.name()));
+            finished.countDown();
+        });
+        queue.start();
+        queue.enqueue(name("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<PendingWrite.UpsertPlayerName> left = List.of(name("b"), name("c"), name("d"));
+        left.forEach(queue::enqueue);
+        long sequence = queue.getFlushSequence();
+
+        // 写入线程卡住时关闭超时，剩余的写入按入队顺序取出，不会再由写入线程执行
+        queue.shutdown(50L);
+        assertEquals(left, queue.drainRemaining());
+        assertEquals(0, queue.getDepth());
+        left.forEach(write -> assertTrue(queue.isSettled(write.playerId(), sequence)));
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.drainRemaining().isEmpty());
+        assertEquals(List.of("a"), written);
+    }
+
+    @Test
+    void awaitSettledWaitsForQueuedWritesOfGivenPlayers() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        WriteQueue queue = new WriteQueue(LOGGER, 4, 10, batch -> await(release));
+        queue.start();
+        queue.enqueue(new PendingWrite.UpsertPlayerName(PLAYER, "a", 1L));
+        assertEquals(Set.of(PLAYER), queue.getPendingPlayers());
+
+        // 写入完成之前等待超时，没有待写入数据的玩家不需要等待
+        assertFalse(queue.awaitSettled(Set.of(PLAYER), 50L));
+        assertTrue(queue.awaitSettled(Set.of(OTHER), 0L));
+
+        release.countDown();
+        assertTrue(queue.awaitSettled(Set.of(PLAYER), 5000L));
+        assertTrue(queue.getPendingPlayers().isEmpty());
+        queue.shutdown(5000L);
+    }
+
+    private static void await(CountDownLatch latch) throws SQLException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+    }
+
+    private static PendingWrite.UpsertPlayerName name(String name) {
+        return new PendingWrite.UpsertPlayerName(UUID.randomUUID(), name, 1L);
+    }
+
+    private static PendingWrite.InsertDeath insert(UUID playerId, long deathAt, long reviveAt) {
+        return new PendingWrite.InsertDeath(playerId, new DeathState(0L, true, deathAt, reviveAt, null, false, null),
+                new DeathRecord(deathAt, reviveAt, "fall", "world", 1.0, 64.0, 1.0), "FALL");
+    }
+}